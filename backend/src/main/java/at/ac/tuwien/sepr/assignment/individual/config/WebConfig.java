@@ -15,12 +15,14 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 public class WebConfig implements WebMvcConfigurer {
 
   /**
-   * Configures CORS to allow all origins and HTTP methods.
+   * Configures CORS to allow all origins and HTTP methods, and to expose the paging and truncation headers of the horse search.
    *
    * @param registry the {@link CorsRegistry} to configure
    */
   @Override
   public void addCorsMappings(CorsRegistry registry) {
-    registry.addMapping("/**").allowedMethods("GET", "POST", "OPTIONS", "HEAD", "DELETE", "PUT", "PATCH");
+    registry.addMapping("/**")
+        .allowedMethods("GET", "POST", "OPTIONS", "HEAD", "DELETE", "PUT", "PATCH")
+        .exposedHeaders("X-Next-Cursor", "X-Search-Truncated");
   }
 }
@@ -0,0 +1,18 @@
+package at.ac.tuwien.sepr.assignment.individual.dto;
+
+/**
+ * Represents an ancestor two horses share, and how many generations it is above each of them.
+ * A horse that is an ancestor of the other one counts as a common ancestor as well, 0 generations above itself.
+ *
+ * @param id               the unique identifier of the common ancestor.
+ * @param name             the name of the common ancestor.
+ * @param generations      the number of generations between the first horse and the ancestor, e.g. 1 for a parent.
+ * @param otherGenerations the number of generations between the other horse and the ancestor.
+ */
+public record HorseCommonAncestorDto(
+    Long id,
+    String name,
+    int generations,
+    int otherGenerations
+) {
+}
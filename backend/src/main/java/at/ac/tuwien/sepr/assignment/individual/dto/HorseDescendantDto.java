@@ -0,0 +1,28 @@
+package at.ac.tuwien.sepr.assignment.individual.dto;
+
+import at.ac.tuwien.sepr.assignment.individual.type.Sex;
+import java.time.LocalDate;
+
+/**
+ * Represents one descendant of a horse in its progeny.
+ * Unlike the {@link HorseTreeDto} of a pedigree, descendants are not nested; each one refers to its parents by ID,
+ * so the progeny can be sent one horse at a time, and the tree can be put together by the client if needed.
+ *
+ * @param id          the unique identifier of the descendant.
+ * @param name        the name of the descendant.
+ * @param dateOfBirth the birthdate of the descendant.
+ * @param sex         the biological sex of the descendant.
+ * @param motherId    the ID of the descendant's mother, or {@code null} if it has none.
+ * @param fatherId    the ID of the descendant's father, or {@code null} if it has none.
+ * @param generation  the generation of the descendant below the horse: 1 for its children, 2 for its grandchildren, etc.
+ */
+public record HorseDescendantDto(
+    Long id,
+    String name,
+    LocalDate dateOfBirth,
+    Sex sex,
+    Long motherId,
+    Long fatherId,
+    int generation
+) {
+}
@@ -15,8 +15,7 @@ import java.time.LocalDate;
  * @param owner         horse's owner.
  * @param mother        horse's mother (optional, may be null).
  * @param father        horse's father (optional, may be null).
- * @param image         a byte array representing the image of the horse (optional, may be null).
- * @param imageType     the MIME type of the provided horse image (optional, e.g., "image/png").
+ * @param imageUrl      the versioned URL the image of the horse can be fetched from (optional, may be null).
  */
 public record HorseDetailDto(
     Long id,
@@ -27,7 +26,6 @@ public record HorseDetailDto(
     OwnerDto owner,
     HorseDetailDto mother,
     HorseDetailDto father,
-    byte[] image,
-    String imageType
+    String imageUrl
 ) {
 }
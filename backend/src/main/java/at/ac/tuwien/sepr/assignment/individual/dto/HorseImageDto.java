@@ -0,0 +1,19 @@
+package at.ac.tuwien.sepr.assignment.individual.dto;
+
+import org.springframework.core.io.Resource;
+
+/**
+ * Represents the image of a horse, ready to be streamed to a client.
+ *
+ * @param hash          the SHA-256 hash of the original image bytes, which doubles as the image's version.
+ * @param width         the width of the thumbnail, or {@code null} if this is the original image.
+ * @param contentType   the MIME type of the image (may be null if unknown).
+ * @param content       the image bytes, to be streamed rather than read into memory at once.
+ */
+public record HorseImageDto(
+    String hash,
+    Integer width,
+    String contentType,
+    Resource content
+) {
+}
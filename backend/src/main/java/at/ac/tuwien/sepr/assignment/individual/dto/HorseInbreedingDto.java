@@ -0,0 +1,14 @@
+package at.ac.tuwien.sepr.assignment.individual.dto;
+
+/**
+ * Represents the coefficient of inbreeding (COI) of a horse.
+ *
+ * @param id                      the unique identifier of the horse.
+ * @param coefficientOfInbreeding the probability that both alleles of the horse at any locus are identical by descent,
+ *                                between 0 for horses without common ancestors of their parents and 1.
+ */
+public record HorseInbreedingDto(
+    Long id,
+    double coefficientOfInbreeding
+) {
+}
@@ -0,0 +1,18 @@
+package at.ac.tuwien.sepr.assignment.individual.dto;
+
+import java.util.List;
+
+/**
+ * Represents one page of a horse search.
+ *
+ * @param horses the horses on this page, in the requested order.
+ * @param next   the opaque cursor to request the following page with,
+ *               or {@code null} if this is the last page.
+ * @param truncated whether the fuzzy name search stopped early, so that matches may be missing from the result.
+ */
+public record HorsePageDto(
+    List<HorseListDto> horses,
+    String next,
+    boolean truncated
+) {
+}
@@ -0,0 +1,143 @@
+package at.ac.tuwien.sepr.assignment.individual.dto;
+
+import at.ac.tuwien.sepr.assignment.individual.exception.ValidationException;
+import at.ac.tuwien.sepr.assignment.individual.type.HorseField;
+import at.ac.tuwien.sepr.assignment.individual.type.Sex;
+import com.fasterxml.jackson.databind.JsonNode;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Represents a Data Transfer Object (DTO) for changing some attributes of a horse, following JSON Merge Patch (RFC 7396).
+ * Only the attributes listed in {@code fields} are changed; all others keep their current value.
+ * A listed attribute with a {@code null} value is removed.
+ *
+ * @param id          the unique identifier of the horse.
+ * @param fields      the attributes present in the patch.
+ * @param name        the new name of the horse, if {@link HorseField#NAME} is present.
+ * @param description the new description of the horse, if {@link HorseField#DESCRIPTION} is present.
+ * @param dateOfBirth the new birthdate of the horse, if {@link HorseField#DATE_OF_BIRTH} is present.
+ * @param sex         the new sex of the horse, if {@link HorseField#SEX} is present.
+ * @param ownerId     the identifier of the new owner, if {@link HorseField#OWNER_ID} is present.
+ * @param motherId    the identifier of the new mother, if {@link HorseField#MOTHER_ID} is present.
+ * @param fatherId    the identifier of the new father, if {@link HorseField#FATHER_ID} is present.
+ */
+public record HorsePatchDto(
+    long id,
+    Set<HorseField> fields,
+    String name,
+    String description,
+    LocalDate dateOfBirth,
+    Sex sex,
+    Long ownerId,
+    Long motherId,
+    Long fatherId
+) {
+
+  /**
+   * Checks whether the given attribute is changed by this patch.
+   *
+   * @param field the attribute to check
+   * @return {@code true} if the patch contains {@code field}
+   */
+  public boolean has(HorseField field) {
+    return fields.contains(field);
+  }
+
+  /**
+   * Reads a patch from a JSON Merge Patch document.
+   * The image cannot be patched; it has its own endpoint, so that it is never sent along with other changes.
+   *
+   * @param id    the identifier of the horse to patch
+   * @param patch the merge patch document, which must be a JSON object
+   * @return the patch
+   * @throws ValidationException if the document is not an object, or contains unknown attributes or values of the wrong type
+   */
+  public static HorsePatchDto fromMergePatch(long id, JsonNode patch) throws ValidationException {
+    List<String> errors = new ArrayList<>();
+    if (patch == null || !patch.isObject()) {
+      throw new ValidationException("Invalid horse patch", List.of("Patch must be a JSON object"));
+    }
+
+    Set<HorseField> fields = EnumSet.noneOf(HorseField.class);
+    String name = null;
+    String description = null;
+    LocalDate dateOfBirth = null;
+    Sex sex = null;
+    Long ownerId = null;
+    Long motherId = null;
+    Long fatherId = null;
+    for (Map.Entry<String, JsonNode> property : patch.properties()) {
+      HorseField field = HorseField.ofJsonName(property.getKey());
+      if (field == null) {
+        errors.add("Unknown or unpatchable attribute '" + property.getKey() + "'");
+        continue;
+      }
+      fields.add(field);
+      JsonNode value = property.getValue();
+      switch (field) {
+        case NAME -> name = text(field, value, errors);
+        case DESCRIPTION -> description = text(field, value, errors);
+        case DATE_OF_BIRTH -> dateOfBirth = date(field, value, errors);
+        case SEX -> sex = sex(field, value, errors);
+        case OWNER_ID -> ownerId = id(field, value, errors);
+        case MOTHER_ID -> motherId = id(field, value, errors);
+        case FATHER_ID -> fatherId = id(field, value, errors);
+        default -> throw new IllegalStateException("Unhandled horse field " + field);
+      }
+    }
+
+    if (!errors.isEmpty()) {
+      throw new ValidationException("Invalid horse patch", errors);
+    }
+    return new HorsePatchDto(id, Collections.unmodifiableSet(fields), name, description, dateOfBirth, sex, ownerId, motherId, fatherId);
+  }
+
+  private static String text(HorseField field, JsonNode value, List<String> errors) {
+    if (value.isNull()) {
+      return null;
+    }
+    if (!value.isTextual()) {
+      errors.add("'" + field.jsonName() + "' must be a string");
+      return null;
+    }
+    return value.textValue();
+  }
+
+  private static LocalDate date(HorseField field, JsonNode value, List<String> errors) {
+    String text = text(field, value, errors);
+    try {
+      return text == null ? null : LocalDate.parse(text);
+    } catch (DateTimeParseException e) {
+      errors.add("'" + field.jsonName() + "' must be a date in the format yyyy-MM-dd");
+      return null;
+    }
+  }
+
+  private static Sex sex(HorseField field, JsonNode value, List<String> errors) {
+    String text = text(field, value, errors);
+    try {
+      return text == null ? null : Sex.valueOf(text);
+    } catch (IllegalArgumentException e) {
+      errors.add("'" + field.jsonName() + "' must be 'MALE' or 'FEMALE'");
+      return null;
+    }
+  }
+
+  private static Long id(HorseField field, JsonNode value, List<String> errors) {
+    if (value.isNull()) {
+      return null;
+    }
+    if (!value.isIntegralNumber() || !value.canConvertToLong()) {
+      errors.add("'" + field.jsonName() + "' must be an integer");
+      return null;
+    }
+    return value.longValue();
+  }
+}
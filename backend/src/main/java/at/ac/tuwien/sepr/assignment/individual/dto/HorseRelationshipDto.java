@@ -0,0 +1,24 @@
+package at.ac.tuwien.sepr.assignment.individual.dto;
+
+import java.util.List;
+
+/**
+ * Represents how two horses are related.
+ *
+ * @param id                     the unique identifier of the first horse.
+ * @param otherId                the unique identifier of the other horse.
+ * @param nearestCommonAncestors the common ancestors with the fewest generations in between the two horses,
+ *                               i.e. the closest ones; empty if the horses are not related.
+ * @param path                   the horses from the first horse up to the first of the nearest common ancestors,
+ *                               and down to the other horse; empty if the horses are not related.
+ * @param kinshipCoefficient     the probability that an allele drawn from each horse at the same locus is identical
+ *                               by descent, taking all common ancestors into account, not only the nearest ones.
+ */
+public record HorseRelationshipDto(
+    Long id,
+    Long otherId,
+    List<HorseCommonAncestorDto> nearestCommonAncestors,
+    List<HorseSuggestionDto> path,
+    double kinshipCoefficient
+) {
+}
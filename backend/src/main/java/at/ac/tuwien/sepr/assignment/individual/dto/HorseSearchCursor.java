@@ -0,0 +1,97 @@
+package at.ac.tuwien.sepr.assignment.individual.dto;
+
+import at.ac.tuwien.sepr.assignment.individual.type.HorseSortKey;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in a paged horse search, pointing at the last horse of the previous page.
+ * The next page starts with the first horse that is ordered strictly after this position.
+ * Clients only ever see the {@link #encode() encoded} form, which they have to treat as opaque.
+ *
+ * @param sortKey     the order the cursor was created for.
+ * @param name        the name of the last horse (only set for {@link HorseSortKey#NAME}).
+ * @param dateOfBirth the birthdate of the last horse (only set for {@link HorseSortKey#DATE_OF_BIRTH}).
+ * @param relevance   the relevance of the last horse (only set for {@link HorseSortKey#RELEVANCE}).
+ * @param id          the unique identifier of the last horse, used as tie-breaker.
+ */
+public record HorseSearchCursor(
+    HorseSortKey sortKey,
+    String name,
+    LocalDate dateOfBirth,
+    Double relevance,
+    long id
+) {
+
+  /**
+   * Creates a cursor pointing at the given horse in the order of its name or its date of birth.
+   *
+   * @param sortKey the order the horse was listed in
+   * @param horse   the last horse of a page
+   * @return the cursor pointing at {@code horse}
+   */
+  public static HorseSearchCursor after(HorseSortKey sortKey, HorseListDto horse) {
+    return sortKey == HorseSortKey.NAME
+        ? new HorseSearchCursor(sortKey, horse.name(), null, null, horse.id())
+        : new HorseSearchCursor(sortKey, null, horse.dateOfBirth(), null, horse.id());
+  }
+
+  /**
+   * Creates a cursor pointing at the given horse in the order of relevance.
+   *
+   * @param relevance the relevance of the last horse of a page
+   * @param id        the ID of the last horse of a page
+   * @return the cursor pointing at the horse
+   */
+  public static HorseSearchCursor afterRelevance(double relevance, long id) {
+    return new HorseSearchCursor(HorseSortKey.RELEVANCE, null, null, relevance, id);
+  }
+
+  /**
+   * Encodes this cursor into the opaque, URL-safe form handed out to clients.
+   *
+   * @return the encoded cursor
+   */
+  public String encode() {
+    String value = switch (sortKey) {
+      case NAME -> name;
+      case DATE_OF_BIRTH -> dateOfBirth.toString();
+      case RELEVANCE -> relevance.toString();
+    };
+    String plain = sortKey.name() + ":" + id + ":" + value;
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(plain.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Decodes a cursor previously created by {@link #encode()}.
+   *
+   * @param encoded the encoded cursor as received from a client
+   * @return the decoded cursor
+   * @throws IllegalArgumentException if {@code encoded} is not a valid cursor
+   */
+  public static HorseSearchCursor decode(String encoded) {
+    String plain;
+    try {
+      plain = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Cursor is not valid base64", e);
+    }
+    String[] parts = plain.split(":", 3);
+    if (parts.length != 3) {
+      throw new IllegalArgumentException("Cursor has an invalid format");
+    }
+    try {
+      HorseSortKey sortKey = HorseSortKey.valueOf(parts[0]);
+      long id = Long.parseLong(parts[1]);
+      return switch (sortKey) {
+        case NAME -> new HorseSearchCursor(sortKey, parts[2], null, null, id);
+        case DATE_OF_BIRTH -> new HorseSearchCursor(sortKey, null, LocalDate.parse(parts[2]), null, id);
+        case RELEVANCE -> afterRelevance(Double.parseDouble(parts[2]), id);
+      };
+    } catch (IllegalArgumentException | DateTimeParseException e) {
+      throw new IllegalArgumentException("Cursor has an invalid format", e);
+    }
+  }
+}
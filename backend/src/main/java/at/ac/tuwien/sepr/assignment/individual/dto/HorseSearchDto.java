@@ -1,5 +1,6 @@
 package at.ac.tuwien.sepr.assignment.individual.dto;
 
+import at.ac.tuwien.sepr.assignment.individual.type.HorseSortKey;
 import at.ac.tuwien.sepr.assignment.individual.type.Sex;
 import java.time.LocalDate;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -9,17 +10,121 @@ import org.springframework.format.annotation.DateTimeFormat;
  * Each field can be null, in which case this field is not filtered by.
  *
  * @param name          the name of the horse.
+ * @param fuzzy         whether the name tolerates typos and alike sounding names, instead of being a prefix (optional).
  * @param description   a brief description or additional information about the horse.
  * @param dateOfBirth   the birthdate of the horse.
+ * @param bornAfter     the earliest birthdate of the horse, inclusive.
+ * @param bornBefore    the latest birthdate of the horse, inclusive.
+ * @param minAge        the minimum age of the horse in full years, as of today.
+ * @param maxAge        the maximum age of the horse in full years, as of today.
  * @param sex           the biological sex of the horse.
- * @param ownerName         horse's owner.
+ * @param ownerName     horse's owner.
+ * @param sort          the order of the result (optional, defaults to {@link HorseSortKey#RELEVANCE} when searching
+ *                      by description or by fuzzy name, and to {@link HorseSortKey#NAME} otherwise).
+ * @param limit         the maximum number of horses on one page (optional, capped by the server).
+ * @param cursor        the opaque cursor of the previous page (optional, null for the first page).
  */
 public record HorseSearchDto(
     String name,
+    Boolean fuzzy,
     String description,
     @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
     LocalDate dateOfBirth,
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    LocalDate bornAfter,
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    LocalDate bornBefore,
+    Integer minAge,
+    Integer maxAge,
     Sex sex,
-    String ownerName
+    String ownerName,
+    HorseSortKey sort,
+    Integer limit,
+    String cursor
 ) {
+
+  /**
+   * Checks whether the horses are searched by description.
+   *
+   * @return {@code true} if the description contains anything to search for
+   */
+  public boolean hasDescription() {
+    return description != null && !description.isBlank();
+  }
+
+  /**
+   * Checks whether the horses are searched by a name that may contain typos.
+   *
+   * @return {@code true} if fuzzy matching is requested and the name contains anything to search for
+   */
+  public boolean hasFuzzyName() {
+    return Boolean.TRUE.equals(fuzzy) && name != null && !name.isBlank();
+  }
+
+  /**
+   * The earliest birthdate a matching horse can have, combining the birthdate bounds and the maximum age.
+   * A horse is at most {@code maxAge} years old as long as it has not had its next birthday yet.
+   *
+   * @param today the date the ages are computed for
+   * @return the inclusive lower bound of the birthdate, or {@code null} if it is not restricted
+   */
+  public LocalDate earliestDateOfBirth(LocalDate today) {
+    LocalDate earliest = bornAfter;
+    if (maxAge != null) {
+      earliest = later(earliest, today.minusYears(maxAge + 1L).plusDays(1));
+    }
+    return earliest;
+  }
+
+  /**
+   * The latest birthdate a matching horse can have, combining the birthdate bounds and the minimum age.
+   *
+   * @param today the date the ages are computed for
+   * @return the inclusive upper bound of the birthdate, or {@code null} if it is not restricted
+   */
+  public LocalDate latestDateOfBirth(LocalDate today) {
+    LocalDate latest = earlier(dateOfBirth, bornBefore);
+    if (minAge != null) {
+      latest = earlier(latest, today.minusYears(minAge));
+    }
+    return latest;
+  }
+
+  private static LocalDate later(LocalDate first, LocalDate second) {
+    return first == null || second != null && second.isAfter(first) ? second : first;
+  }
+
+  private static LocalDate earlier(LocalDate first, LocalDate second) {
+    return first == null || second != null && second.isBefore(first) ? second : first;
+  }
+
+  /**
+   * The order of the result, falling back to the default order if none is requested.
+   *
+   * @return the requested order, or the default order of this search
+   */
+  public HorseSortKey sortOrDefault() {
+    if (sort != null) {
+      return sort;
+    }
+    return hasDescription() || hasFuzzyName() ? HorseSortKey.RELEVANCE : HorseSortKey.NAME;
+  }
+
+  /**
+   * Copies this search without its description filter.
+   *
+   * @return the same search, but not restricted by description
+   */
+  public HorseSearchDto withoutDescription() {
+    return new HorseSearchDto(name, fuzzy, null, dateOfBirth, bornAfter, bornBefore, minAge, maxAge, sex, ownerName, sort, limit, cursor);
+  }
+
+  /**
+   * Copies this search without its name filter.
+   *
+   * @return the same search, but not restricted by name
+   */
+  public HorseSearchDto withoutName() {
+    return new HorseSearchDto(null, null, description, dateOfBirth, bornAfter, bornBefore, minAge, maxAge, sex, ownerName, sort, limit, cursor);
+  }
 }
@@ -0,0 +1,21 @@
+package at.ac.tuwien.sepr.assignment.individual.dto;
+
+import at.ac.tuwien.sepr.assignment.individual.type.Sex;
+import java.time.LocalDate;
+
+/**
+ * Represents a horse suggested while its name is being typed, e.g. to pick the parent of another horse.
+ * It only holds what is needed to tell horses of the same name apart.
+ *
+ * @param id          the unique identifier of the horse.
+ * @param name        the name of the horse.
+ * @param dateOfBirth the birthdate of the horse.
+ * @param sex         the biological sex of the horse.
+ */
+public record HorseSuggestionDto(
+    Long id,
+    String name,
+    LocalDate dateOfBirth,
+    Sex sex
+) {
+}
@@ -0,0 +1,21 @@
+package at.ac.tuwien.sepr.assignment.individual.dto;
+
+/**
+ * Data Transfer Object for the counters of the horse image cache.
+ *
+ * @param hits          the number of image requests served from the cache
+ * @param misses        the number of image requests that had to be read from the image store
+ * @param evictions     the number of images dropped from the cache to make room for others
+ * @param entries       the number of images currently held in the cache
+ * @param bytes         the number of bytes currently held in the cache
+ * @param capacityBytes the maximum number of bytes the cache holds
+ */
+public record ImageCacheStatsDto(
+    long hits,
+    long misses,
+    long evictions,
+    int entries,
+    long bytes,
+    long capacityBytes
+) {
+}
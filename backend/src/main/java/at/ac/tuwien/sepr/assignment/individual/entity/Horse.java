@@ -16,7 +16,7 @@ import java.time.LocalDate;
  * @param ownerId       the unique identifier of the horse's owner.
  * @param motherId      the unique identifier of the horse's mother (may be null if unknown).
  * @param fatherId      the unique identifier of the horse's father (may be null if unknown).
- * @param image         the binary image data representing the horse (optional, may be null).
+ * @param imageHash     the SHA-256 hash the horse's image is stored under in the image store (optional, may be null).
  * @param imageType     the MIME type of the image (optional, e.g., "image/png").
  */
 public record Horse(
@@ -28,7 +28,7 @@ public record Horse(
     Long ownerId,
     Long motherId,
     Long fatherId,
-    byte[] image,
+    String imageHash,
     String imageType
 ) {
 }
@@ -0,0 +1,33 @@
+package at.ac.tuwien.sepr.assignment.individual.entity;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Represents the immediate family of a horse, as far as the family-tree rules need it:
+ * the horse itself, its current and prospective parents and its children, each as {@link HorseLineage}.
+ * The family is loaded in a single query, so all rules can then be checked in memory.
+ * The query also yields the image hash of the horse, so an update needs no further query for the image it replaces.
+ *
+ * @param horse     the horse itself (may be null if it does not exist).
+ * @param imageHash the hash of the horse's current image (may be null if it has none).
+ * @param relatives all loaded horses of the family, including the horse itself, by their ID.
+ * @param children  the horses that list the horse as their mother or father.
+ */
+public record HorseFamily(
+    HorseLineage horse,
+    String imageHash,
+    Map<Long, HorseLineage> relatives,
+    List<HorseLineage> children
+) {
+
+  /**
+   * Looks up a loaded member of the family.
+   *
+   * @param id the ID of the relative, may be {@code null}
+   * @return the relative, or {@code null} if {@code id} is {@code null} or no such horse exists
+   */
+  public HorseLineage relative(Long id) {
+    return id == null ? null : relatives.get(id);
+  }
+}
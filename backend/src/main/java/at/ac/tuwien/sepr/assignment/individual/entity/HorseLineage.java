@@ -0,0 +1,24 @@
+package at.ac.tuwien.sepr.assignment.individual.entity;
+
+import at.ac.tuwien.sepr.assignment.individual.type.Sex;
+import java.time.LocalDate;
+
+/**
+ * Represents the lineage-relevant part of a horse in the persistent data store.
+ * This projection holds only the attributes the family-tree rules are checked against,
+ * so it can be loaded without touching the descriptive or media columns of a horse.
+ *
+ * @param id            the unique identifier of the horse.
+ * @param sex           the biological sex of the horse.
+ * @param dateOfBirth   the birthdate of the horse.
+ * @param motherId      the unique identifier of the horse's mother (may be null if unknown).
+ * @param fatherId      the unique identifier of the horse's father (may be null if unknown).
+ */
+public record HorseLineage(
+    Long id,
+    Sex sex,
+    LocalDate dateOfBirth,
+    Long motherId,
+    Long fatherId
+) {
+}
@@ -0,0 +1,18 @@
+package at.ac.tuwien.sepr.assignment.individual.entity;
+
+/**
+ * Represents a horse together with the entities it references, as read in a single query for its detail view.
+ * The parents only contain their ID, name, birthdate and sex.
+ *
+ * @param horse  the horse itself.
+ * @param mother the horse's mother (may be null if unknown).
+ * @param father the horse's father (may be null if unknown).
+ * @param owner  the horse's owner (may be null if it has none).
+ */
+public record HorseWithRelations(
+    Horse horse,
+    Horse mother,
+    Horse father,
+    Owner owner
+) {
+}
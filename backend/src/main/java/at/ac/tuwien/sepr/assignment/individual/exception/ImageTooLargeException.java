@@ -0,0 +1,18 @@
+package at.ac.tuwien.sepr.assignment.individual.exception;
+
+/**
+ * Exception that signals, that an image,
+ * that came from outside the backend, exceeds the maximum size an image may have.
+ * The upload is aborted as soon as the limit is exceeded, so the rest of the image is never read.
+ */
+public class ImageTooLargeException extends Exception {
+
+  /**
+   * Constructs a new {@code ImageTooLargeException} with the specified detail message.
+   *
+   * @param message the detail message stating the size limit that was exceeded.
+   */
+  public ImageTooLargeException(String message) {
+    super(message);
+  }
+}
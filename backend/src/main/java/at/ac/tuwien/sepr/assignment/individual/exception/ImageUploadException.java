@@ -0,0 +1,19 @@
+package at.ac.tuwien.sepr.assignment.individual.exception;
+
+/**
+ * Exception that signals, that an image
+ * could not be read from the client uploading it, e.g. because the connection broke off.
+ * Nothing is stored then.
+ */
+public class ImageUploadException extends Exception {
+
+  /**
+   * Constructs a new {@code ImageUploadException} with the specified detail message and cause.
+   *
+   * @param message the detail message describing the failed upload.
+   * @param cause   the error reading from the client.
+   */
+  public ImageUploadException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
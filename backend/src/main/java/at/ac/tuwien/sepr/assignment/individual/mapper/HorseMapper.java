@@ -1,19 +1,21 @@
 package at.ac.tuwien.sepr.assignment.individual.mapper;
 
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseDescendantDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseDetailDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseListDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseSuggestionDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseTreeDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.OwnerDto;
 import at.ac.tuwien.sepr.assignment.individual.entity.Horse;
+import at.ac.tuwien.sepr.assignment.individual.entity.HorseWithRelations;
 import at.ac.tuwien.sepr.assignment.individual.exception.FatalException;
 import java.lang.invoke.MethodHandles;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
-import at.ac.tuwien.sepr.assignment.individual.exception.NotFoundException;
-import at.ac.tuwien.sepr.assignment.individual.persistence.HorseDao;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
@@ -25,17 +27,15 @@ import org.springframework.stereotype.Component;
 public class HorseMapper {
   private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
-
-  private final HorseDao horseDao;
+  private final OwnerMapper ownerMapper;
 
   /**
-   * Constructs a new {@code HorseMapper} with the specified data access dependency.
+   * Constructs a new {@code HorseMapper} using the given mapper for the owners of horses.
    *
-   * @param horseDao the {@link HorseDao} used to access horse-related data,
-   *                 particularly for resolving entity relationships during mapping.
+   * @param ownerMapper the {@link OwnerMapper} used to convert the owners referenced by horses.
    */
-  public HorseMapper(HorseDao horseDao) {
-    this.horseDao = horseDao;
+  public HorseMapper(OwnerMapper ownerMapper) {
+    this.ownerMapper = ownerMapper;
   }
 
   /**
@@ -62,17 +62,42 @@ public class HorseMapper {
     );
   }
 
+  /**
+   * Converts a {@link Horse} entity into a {@link HorseSuggestionDto}.
+   *
+   * @param horse the horse entity to convert
+   * @return the converted {@link HorseSuggestionDto}
+   */
+  public HorseSuggestionDto entityToSuggestionDto(Horse horse) {
+    LOG.trace("entityToSuggestionDto({})", horse);
+    return new HorseSuggestionDto(horse.id(), horse.name(), horse.dateOfBirth(), horse.sex());
+  }
+
+  /**
+   * Converts a {@link Horse} entity into a {@link HorseDescendantDto}.
+   *
+   * @param horse the descendant to convert
+   * @param generation the generation of the descendant below the horse whose progeny it belongs to
+   * @return the converted {@link HorseDescendantDto}
+   */
+  public HorseDescendantDto entityToDescendantDto(Horse horse, int generation) {
+    LOG.trace("entityToDescendantDto({}, {})", horse, generation);
+    return new HorseDescendantDto(horse.id(), horse.name(), horse.dateOfBirth(), horse.sex(), horse.motherId(), horse.fatherId(), generation);
+  }
+
   /**
    * Converts a {@link Horse} entity into a {@link HorseDetailDto}.
    * The given maps must contain the owners and parents referenced by the horse.
    *
    * @param horse   the horse entity to convert
    * @param owners  a map of horse owners by their ID
+   * @param parents a map of parent horses by their ID
    * @return the converted {@link HorseDetailDto}
    */
   public HorseDetailDto entityToDetailDto(
       Horse horse,
-      Map<Long, OwnerDto> owners) {
+      Map<Long, OwnerDto> owners,
+      Map<Long, Horse> parents) {
     LOG.trace("entityToDto({})", horse);
     if (horse == null) {
       return null;
@@ -85,34 +110,67 @@ public class HorseMapper {
         horse.dateOfBirth(),
         horse.sex(),
         getOwner(horse, owners),
-        horse.motherId() == null ? null : getParent(horse.motherId()),
-        horse.fatherId() == null ? null : getParent(horse.fatherId()),
-        horse.image(),
-        horse.imageType()
+        getParent(horse.motherId(), parents),
+        getParent(horse.fatherId(), parents),
+        imageUrl(horse)
     );
   }
 
-  private HorseDetailDto getParent(Long parentId) {
+  /**
+   * Converts a horse read together with its relations into a {@link HorseDetailDto}.
+   *
+   * @param details the horse with its parents and owner
+   * @return the converted {@link HorseDetailDto}
+   */
+  public HorseDetailDto entityToDetailDto(HorseWithRelations details) {
+    LOG.trace("entityToDetailDto({})", details);
+    Horse horse = details.horse();
+    Map<Long, OwnerDto> owners = details.owner() == null
+        ? Map.of()
+        : Map.of(details.owner().id(), ownerMapper.entityToDto(details.owner()));
+    Map<Long, Horse> parents = new HashMap<>();
+    if (details.mother() != null) {
+      parents.put(details.mother().id(), details.mother());
+    }
+    if (details.father() != null) {
+      parents.put(details.father().id(), details.father());
+    }
+    return entityToDetailDto(horse, owners, parents);
+  }
+
+  /**
+   * Builds the URL the image of the given horse is served from.
+   * The URL contains the image's hash as version, so it changes whenever the image changes
+   * and clients may cache whatever they fetched from it indefinitely.
+   *
+   * @param horse the horse whose image URL to build
+   * @return the versioned image URL, or {@code null} if the horse has no image
+   */
+  public String imageUrl(Horse horse) {
+    return horse.imageHash() == null
+        ? null
+        : "/horses/%d/image?v=%s".formatted(horse.id(), horse.imageHash());
+  }
+
+  private HorseDetailDto getParent(Long parentId, Map<Long, Horse> parents) {
     if (parentId == null) {
       return null;
     }
-    try {
-      Horse parent = horseDao.getById(parentId);
-      return new HorseDetailDto(
-              parent.id(),
-              parent.name(),
-              null,
-              parent.dateOfBirth(),
-              parent.sex(),
-              null,
-              null,
-              null,
-              null,
-              null
-      );
-    } catch (NotFoundException e) {
-      throw new FatalException("Parent horse with ID %d not found".formatted(parentId), e);
+    Horse parent = parents.get(parentId);
+    if (parent == null) {
+      throw new FatalException("Given parent map does not contain parent horse with ID %d".formatted(parentId));
     }
+    return new HorseDetailDto(
+            parent.id(),
+            parent.name(),
+            null,
+            parent.dateOfBirth(),
+            parent.sex(),
+            null,
+            null,
+            null,
+            null
+    );
   }
 
   private OwnerDto getOwner(Horse horse, Map<Long, OwnerDto> owners) {
@@ -0,0 +1,46 @@
+package at.ac.tuwien.sepr.assignment.individual.persistence;
+
+import java.lang.invoke.MethodHandles;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fills the {@code horse_ancestry} table, created by schema migration 5, for the horses that already exist.
+ * As schema migration 6, this component rebuilds the whole ancestry from the parents of the horses;
+ * from then on, the {@link HorseDao} keeps it up to date on every change.
+ */
+@Component
+public class AncestryBackfillMigration implements JavaMigration {
+  private static final Logger LOGGER = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private final HorseAncestryDao ancestryDao;
+
+  /**
+   * Constructs the {@code AncestryBackfillMigration} with the required dependencies.
+   *
+   * @param ancestryDao the ancestry to rebuild
+   */
+  public AncestryBackfillMigration(HorseAncestryDao ancestryDao) {
+    this.ancestryDao = ancestryDao;
+  }
+
+  @Override
+  public int version() {
+    return 6;
+  }
+
+  @Override
+  public String description() {
+    return "backfill horse ancestry";
+  }
+
+  /**
+   * Rebuilds the ancestry of all horses.
+   */
+  @Override
+  public void migrate() {
+    int rows = ancestryDao.rebuild();
+    LOGGER.info("Backfilled {} horse ancestry rows.", rows);
+  }
+}
@@ -0,0 +1,72 @@
+package at.ac.tuwien.sepr.assignment.individual.persistence;
+
+import java.lang.invoke.MethodHandles;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+/**
+ * Offline maintenance of the horse ancestry, run instead of serving requests.
+ * Starting the application with {@code --ancestry=rebuild} rebuilds the ancestry of all horses,
+ * {@code --ancestry=check} reports every row that does not match the parents of the horses.
+ * Afterwards the application exits, with status 1 if the check found inconsistencies.
+ * Without the argument, this component does nothing.
+ */
+@Component
+public class AncestryCommand implements ApplicationRunner {
+  private static final Logger LOGGER = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private static final String OPTION = "ancestry";
+
+  private final HorseAncestryDao ancestryDao;
+  private final ApplicationContext context;
+
+  /**
+   * Constructs the {@code AncestryCommand} with the required dependencies.
+   *
+   * @param ancestryDao the ancestry to rebuild or check
+   * @param context the application context to close once the command is done
+   */
+  public AncestryCommand(HorseAncestryDao ancestryDao, ApplicationContext context) {
+    this.ancestryDao = ancestryDao;
+    this.context = context;
+  }
+
+  /**
+   * Runs the ancestry command given on the command line, if any, and exits.
+   *
+   * @param args the command line arguments of the application
+   */
+  @Override
+  public void run(ApplicationArguments args) {
+    List<String> commands = args.getOptionValues(OPTION);
+    if (commands == null) {
+      return;
+    }
+    int status = 0;
+    for (String command : commands) {
+      switch (command) {
+        case "rebuild" -> LOGGER.info("Rebuilt the horse ancestry with {} rows.", ancestryDao.rebuild());
+        case "check" -> {
+          List<String> inconsistencies = ancestryDao.check();
+          inconsistencies.forEach(LOGGER::warn);
+          LOGGER.info("Checked the horse ancestry, found {} inconsistencies.", inconsistencies.size());
+          if (!inconsistencies.isEmpty()) {
+            status = 1;
+          }
+        }
+        default -> {
+          LOGGER.error("Unknown ancestry command '{}', expected 'rebuild' or 'check'", command);
+          status = 2;
+        }
+      }
+    }
+    final int exitCode = status;
+    System.exit(SpringApplication.exit(context, () -> exitCode));
+  }
+}
@@ -6,6 +6,7 @@ import java.sql.SQLException;
 import javax.sql.DataSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.DependsOn;
 import org.springframework.context.annotation.Profile;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.jdbc.datasource.init.ScriptUtils;
@@ -13,22 +14,27 @@ import org.springframework.stereotype.Component;
 
 /**
  * This component is only instantiated when the {@code datagen} profile is active.
- * It populates the database with test data upon initialization.
+ * It populates the database with test data upon initialization, once the schema is migrated.
+ * The test data is inserted directly, so the ancestry of the horses is rebuilt afterwards.
  * Activate this profile by adding {@code -Dspring.profiles.active=datagen} to your runtime arguments.
  */
 @Component
 @Profile("datagen")
+@DependsOn("schemaMigrator")
 public class DataGeneratorBean {
   private static final Logger LOGGER = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
   private final DataSource dataSource;
+  private final HorseAncestryDao ancestryDao;
 
   /**
    * Constructs the {@code DataGeneratorBean} with the required {@link DataSource}.
    *
    * @param dataSource the database connection source
+   * @param ancestryDao the ancestry to rebuild for the inserted horses
    */
-  public DataGeneratorBean(DataSource dataSource) {
+  public DataGeneratorBean(DataSource dataSource, HorseAncestryDao ancestryDao) {
     this.dataSource = dataSource;
+    this.ancestryDao = ancestryDao;
   }
 
   /**
@@ -41,6 +47,7 @@ public class DataGeneratorBean {
     LOGGER.info("Generating data...");
     try (var connection = dataSource.getConnection()) {
       ScriptUtils.executeSqlScript(connection, new ClassPathResource("sql/insertData.sql"));
+      ancestryDao.rebuild();
       LOGGER.info("Finished generating data successfully.");
     }
   }
@@ -0,0 +1,53 @@
+package at.ac.tuwien.sepr.assignment.individual.persistence;
+
+import java.util.List;
+
+/**
+ * Data Access Object for the ancestry of the horses, i.e. the closure of their parent relation.
+ * It holds one row per horse and each of its ancestors at each distance, so that the ancestors or the descendants
+ * of a horse, to any depth, are read in a single range scan instead of walking the parents recursively.
+ * The rows are derived from the parents of the horses, and have to be recomputed whenever they change;
+ * the {@link HorseDao} does so in the same transaction as the change itself.
+ */
+public interface HorseAncestryDao {
+
+  /**
+   * Get the IDs of all descendants of a horse, in the order of their birthdates, i.e. every horse after its parents.
+   *
+   * @param id the ID of the horse
+   * @return the IDs of the children, grandchildren and so on of the horse, without the horse itself
+   */
+  List<Long> getDescendantIds(long id);
+
+  /**
+   * Recomputes the ancestry of the given horses from their parents.
+   * The horses are recomputed in the given order, so a horse has to come after those of its parents that are recomputed,
+   * e.g. by ordering them by birthdate; the ancestry of all other parents has to be up to date.
+   *
+   * @param ids the IDs of the horses whose ancestry to recompute
+   */
+  void recompute(List<Long> ids);
+
+  /**
+   * Recomputes the ancestry of a horse whose parents changed, along with the ancestry of all its descendants.
+   *
+   * @param id the ID of the horse
+   */
+  void recomputeWithDescendants(long id);
+
+  /**
+   * Recomputes the ancestry of all horses from scratch.
+   *
+   * @return the number of ancestry rows afterwards
+   */
+  int rebuild();
+
+  /**
+   * Checks that the stored ancestry is exactly the closure of the parent relation: every horse is its own ancestor
+   * at depth 0, every other row follows from a row of the mother or the father, and every row that follows
+   * from the parents is there.
+   *
+   * @return a description of each inconsistency found; empty if the ancestry is consistent
+   */
+  List<String> check();
+}
@@ -2,20 +2,31 @@ package at.ac.tuwien.sepr.assignment.individual.persistence;
 
 
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseCreateDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorsePatchDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseSearchCursor;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseSearchDto;
-import at.ac.tuwien.sepr.assignment.individual.dto.HorseTreeDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseUpdateDto;
 import at.ac.tuwien.sepr.assignment.individual.entity.Horse;
+import at.ac.tuwien.sepr.assignment.individual.entity.HorseFamily;
+import at.ac.tuwien.sepr.assignment.individual.entity.HorseLineage;
+import at.ac.tuwien.sepr.assignment.individual.entity.HorseWithRelations;
 import at.ac.tuwien.sepr.assignment.individual.exception.NotFoundException;
+import at.ac.tuwien.sepr.assignment.individual.type.HorseSortKey;
+import at.ac.tuwien.sepr.assignment.individual.type.Sex;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Data Access Object for horses.
  * Implements access functionality to the application's persistent data store regarding horses.
+ * Every change to the parents of a horse also updates the {@link HorseAncestryDao ancestry} in the same transaction.
  */
 public interface HorseDao {
   /**
    * Get all horses stored in the persistent data store.
+   * The returned horses do not contain their image.
    *
    * @return a list of all stored horses
    */
@@ -26,12 +37,36 @@ public interface HorseDao {
    * Update the horse with the ID given in {@code horse}
    * with the data given in {@code horse}
    * in the persistent data store.
+   * The image itself is not part of the horse's row, only the hash it is stored under in the {@link ImageStore}.
    *
    * @param horse the horse to update
+   * @param imageHash the hash of the horse's new image in the {@link ImageStore}, or {@code null} to keep its current image
+   * @param before the lineage of the horse before the update, as loaded with its {@link #getFamily family},
+   *               which tells whether the ancestry has to follow a change of parents
+   * @return the updated horse, as stored
+   * @throws NotFoundException if the Horse with the given ID does not exist in the persistent data store
+   */
+  Horse update(HorseUpdateDto horse, String imageHash, HorseLineage before) throws NotFoundException;
+
+  /**
+   * Change only the attributes of a horse that are present in the given patch, leaving all other columns untouched.
+   *
+   * @param patch the attributes to change, and the ID of the horse to change them of
+   * @return the horse after the patch was applied
+   * @throws NotFoundException if the Horse with the given ID does not exist in the persistent data store
+   */
+  Horse patch(HorsePatchDto patch) throws NotFoundException;
+
+  /**
+   * Replace only the image of the horse with the given ID, leaving all other data untouched.
+   *
+   * @param id the ID of the horse whose image to replace
+   * @param imageHash the hash of the new image in the {@link ImageStore}
+   * @param imageType the MIME type of the new image
    * @return the updated horse
    * @throws NotFoundException if the Horse with the given ID does not exist in the persistent data store
    */
-  Horse update(HorseUpdateDto horse) throws NotFoundException;
+  Horse updateImage(long id, String imageHash, String imageType) throws NotFoundException;
 
 
   /**
@@ -43,15 +78,55 @@ public interface HorseDao {
    */
   Horse getById(long id) throws NotFoundException;
 
+  /**
+   * Get a horse by its ID together with its parents and its owner, in a single query.
+   *
+   * @param id the ID of the horse to get
+   * @return the horse with its parents and owner
+   * @throws NotFoundException if the Horse with the given ID does not exist in the persistent data store
+   */
+  HorseWithRelations getWithRelationsById(long id) throws NotFoundException;
+
+  /**
+   * Get all horses with the given IDs in a single query.
+   * The returned horses do not contain their image.
+   * IDs that do not belong to any horse are ignored.
+   *
+   * @param ids the IDs of the horses to get
+   * @return the horses with the given IDs, in no particular order
+   */
+  List<Horse> getAllById(Collection<Long> ids);
+
+  /**
+   * Get only the lineage-relevant attributes of a horse by its ID from the persistent data store.
+   * Use this instead of {@link #getById(long)} whenever only sex, birthdate or parents are of interest.
+   *
+   * @param id the ID of the horse to get
+   * @return the lineage projection of the horse
+   * @throws NotFoundException if the Horse with the given ID does not exist in the persistent data store
+   */
+  HorseLineage getLineageById(long id) throws NotFoundException;
+
+  /**
+   * Get only the lineage-relevant attributes of all horses with the given IDs in a single query.
+   * IDs that do not belong to any horse are ignored.
+   *
+   * @param ids the IDs of the horses to get
+   * @return the lineage projections of the horses, by their ID
+   */
+  Map<Long, HorseLineage> getLineagesById(Collection<Long> ids);
+
 
   /**
    * Creates a new horse in the persistent data store.
    * The newly created horse will be stored with the provided details.
+   * The image itself is not part of the horse's row, only the hash it is stored under in the {@link ImageStore}.
    *
    * @param horse the horse data to create
+   * @param imageHash the hash of the horse's image in the {@link ImageStore}, or {@code null} if it has none
    * @return the created horse entity with its assigned ID
    */
-  Horse create(HorseCreateDto horse);
+  Horse create(HorseCreateDto horse, String imageHash);
 
   /**
    * Deletes a horse from the persistent data store.
@@ -77,35 +152,56 @@ public interface HorseDao {
    *   <li><b>Owner Name:</b> A case-insensitive partial match against the owner's full name
    *       (combination of first and last name).</li>
    * </ul>
-   * If no criteria are provided, the method returns all horses.
+   * If no criteria are provided, all horses match. If {@code ids} are given, only horses with one of these IDs match;
+   * this is how the matches of a search in an in-memory index are combined with the other criteria.
+   * The matches are ordered by {@code sortKey} and then by ID, and at most {@code limit} of them are returned,
+   * starting right after the position given by {@code after}.
+   * The position is looked up in the index of the sort order, so later pages are as cheap as the first one.
    *
    * @param searchParameters the DTO containing the search filters
-   * @return a list of horses that match the provided search criteria
+   * @param ids the IDs the matches are restricted to, or {@code null} for no restriction
+   * @param sortKey the order in which the matches are returned, either by name or by date of birth
+   * @param after the position after which the page starts, or {@code null} for the first page
+   * @param limit the maximum number of horses to return
+   * @return a list of horses that match the provided search criteria, without their image
+   */
+  List<Horse> search(HorseSearchDto searchParameters, Collection<Long> ids, HorseSortKey sortKey, HorseSearchCursor after, int limit);
+
+  /**
+   * Finds the horses that could be a parent of a horse born on the given date, i.e. the horses of the given sex
+   * that are born before it. The matches are ordered by name and then by ID, and read from the index
+   * on sex and birthdate, so only the eligible horses are looked at.
+   *
+   * @param sex the sex of the parent, i.e. female for mothers and male for fathers
+   * @param bornBefore the birthdate of the foal, or {@code null} if it is not known yet
+   * @param namePrefix the beginning of the name of the parent, ignoring case; {@code null} or empty for any name
+   * @param limit the maximum number of horses to return
+   * @return the eligible parents, holding only their ID, name, birthdate and sex
    */
-  List<Horse> search(HorseSearchDto searchParameters);
+  List<Horse> getParentCandidates(Sex sex, LocalDate bornBefore, String namePrefix, int limit);
 
   /**
-   * Retrieves the pedigree (ancestry tree) for the horse with the specified ID.
-   * The pedigree is constructed by recursively fetching the ancestors (mother and father)
-   * of the specified horse. The recursion is limited by the given maximum number of generations.
-   * If the parameter {@code maxGenerations} is {@code null}, no generation limit is applied
-   * and the complete ancestry tree is returned.
-   * The returned list contains all {@link Horse} entities that are part of the pedigree,
-   * which can then be converted into a hierarchical structure (e.g., a {@link HorseTreeDto})
-   * by the mapper.
+   * Retrieves the immediate family of a horse in a single query:
+   * the horse itself, its current parents, the given prospective parents, and all horses that list the horse as a parent.
+   * Horses that do not exist are simply missing from the result, instead of causing an exception.
+   * The image hash of the horse is loaded along with it.
    *
-   * @param id the unique identifier of the horse for which to retrieve the pedigree
-   * @param maxGenerations the maximum number of generations to include in the pedigree;
-   *                       if {@code null}, the entire pedigree is returned
-   * @return a list of {@link Horse} entities representing the ancestry of the specified horse
+   * @param id the ID of the horse
+   * @param motherId the ID of the prospective mother, or {@code null}
+   * @param fatherId the ID of the prospective father, or {@code null}
+   * @return the lineage projections of the horse's family
    */
-  List<Horse> getPedigree(long id, Integer maxGenerations);
+  HorseFamily getFamily(long id, Long motherId, Long fatherId);
 
   /**
-   * Retrieves all horses for which the given parent is registered as either the mother or the father.
+   * Retrieves one generation of the progeny of the horse with the specified ID from the ancestry,
+   * i.e. the horses that many generations below it on at least one line, ordered by birthdate and ID.
+   * A horse descending on lines of different lengths is part of several generations.
+   * The returned horses do not contain their description, owner or image.
    *
-   * @param parentId the ID of the parent horse
-   * @return a list of Horse entities that have this parent
+   * @param id the ID of the horse whose descendants to retrieve
+   * @param generation the number of generations below the horse; 1 for its children
+   * @return the descendants of the horse in that generation, each of them once
    */
-  List<Horse> getChildrenByParentId(Long parentId);
+  List<Horse> getDescendants(long id, int generation);
 }
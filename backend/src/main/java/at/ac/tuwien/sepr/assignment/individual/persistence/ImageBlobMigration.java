@@ -0,0 +1,88 @@
+package at.ac.tuwien.sepr.assignment.individual.persistence;
+
+import java.lang.invoke.MethodHandles;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves horse images out of the database into the {@link ImageStore}.
+ * Databases created before the image store existed keep every image as a BLOB in the {@code image} column
+ * of the {@code horse} table. As schema migration 3, this component stores each of these images in the image store,
+ * references it by its hash in {@code image_hash}, and finally drops the {@code image} column.
+ * Images are moved one row at a time, so at most one image is held in memory.
+ * If the {@code image} column does not exist, there is nothing to do.
+ */
+@Component
+public class ImageBlobMigration implements JavaMigration {
+  private static final Logger LOGGER = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private static final String SQL_HAS_IMAGE_COLUMN =
+      "SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS "
+          + "WHERE TABLE_SCHEMA = CURRENT_SCHEMA AND TABLE_NAME = 'HORSE' AND COLUMN_NAME = 'IMAGE'";
+
+  private static final String SQL_SELECT_IDS_WITH_IMAGE =
+      "SELECT id FROM horse WHERE image IS NOT NULL";
+
+  private static final String SQL_SELECT_IMAGE =
+      "SELECT image FROM horse WHERE id = :id";
+
+  private static final String SQL_SET_IMAGE_HASH =
+      "UPDATE horse SET image_hash = :image_hash, image = NULL WHERE id = :id";
+
+  private static final String SQL_DROP_IMAGE_COLUMN =
+      "ALTER TABLE horse DROP COLUMN image";
+
+  private final JdbcClient jdbcClient;
+  private final ImageStore imageStore;
+
+  /**
+   * Constructs the {@code ImageBlobMigration} with the required dependencies.
+   *
+   * @param jdbcClient the JDBC client used to read the old images and update the horses
+   * @param imageStore the image store the images are moved to
+   */
+  public ImageBlobMigration(JdbcClient jdbcClient, ImageStore imageStore) {
+    this.jdbcClient = jdbcClient;
+    this.imageStore = imageStore;
+  }
+
+  @Override
+  public int version() {
+    return 3;
+  }
+
+  @Override
+  public String description() {
+    return "move image BLOBs to the image store";
+  }
+
+  /**
+   * Moves all images still stored in the database to the image store, and drops the old image column.
+   */
+  @Override
+  public void migrate() {
+    Integer imageColumns = jdbcClient.sql(SQL_HAS_IMAGE_COLUMN).query(Integer.class).single();
+    if (imageColumns == 0) {
+      LOGGER.debug("No image BLOB column present, nothing to migrate");
+      return;
+    }
+
+    List<Long> ids = jdbcClient.sql(SQL_SELECT_IDS_WITH_IMAGE).query(Long.class).list();
+    LOGGER.info("Moving {} horse images from the database to the image store...", ids.size());
+    for (Long id : ids) {
+      byte[] image = jdbcClient.sql(SQL_SELECT_IMAGE)
+          .param("id", id)
+          .query((rs, rowNum) -> rs.getBytes("image"))
+          .single();
+      jdbcClient.sql(SQL_SET_IMAGE_HASH)
+          .param("image_hash", imageStore.store(image))
+          .param("id", id)
+          .update();
+    }
+    jdbcClient.sql(SQL_DROP_IMAGE_COLUMN).update();
+    LOGGER.info("Finished moving horse images to the image store.");
+  }
+}
@@ -0,0 +1,84 @@
+package at.ac.tuwien.sepr.assignment.individual.persistence;
+
+import at.ac.tuwien.sepr.assignment.individual.exception.ImageTooLargeException;
+import at.ac.tuwien.sepr.assignment.individual.exception.ImageUploadException;
+import at.ac.tuwien.sepr.assignment.individual.exception.NotFoundException;
+import java.io.InputStream;
+import org.springframework.core.io.Resource;
+
+/**
+ * Content-addressed storage for image data.
+ * Every image is stored under the hex-encoded SHA-256 hash of its bytes, so identical images are stored only once
+ * and the hash can be kept by referencing entities instead of the image itself.
+ * Stored images are immutable: a changed image is a new image with a new hash.
+ * Besides the original, derived variants of an image (e.g. thumbnails) can be stored under the original's hash.
+ */
+public interface ImageStore {
+
+  /**
+   * Stores the given image data, unless an identical image is already stored.
+   *
+   * @param data the image bytes to store
+   * @return the hex-encoded SHA-256 hash the image is stored under
+   */
+  String store(byte[] data);
+
+  /**
+   * Stores the image read from the given stream, unless an identical image is already stored.
+   * The image is streamed to storage and hashed on the way, so it is never held in memory as a whole.
+   * The stream is read to its end, but not closed.
+   *
+   * @param data the stream to read the image bytes from
+   * @param maxBytes the maximum number of bytes the image may have
+   * @return the hex-encoded SHA-256 hash the image is stored under
+   * @throws ImageTooLargeException if the stream holds more than {@code maxBytes} bytes; nothing is stored then
+   * @throws ImageUploadException if reading from the stream fails; nothing is stored then
+   */
+  String store(InputStream data, long maxBytes) throws ImageTooLargeException, ImageUploadException;
+
+  /**
+   * Opens the image stored under the given hash for streaming, without reading it into memory.
+   * The returned resource knows its content length and can be read in ranges.
+   *
+   * @param hash the hex-encoded SHA-256 hash of the image
+   * @return a resource to stream the image bytes from
+   * @throws NotFoundException if no image is stored under {@code hash}
+   */
+  Resource load(String hash) throws NotFoundException;
+
+  /**
+   * Checks whether an image is stored under the given hash.
+   *
+   * @param hash the hex-encoded SHA-256 hash of the image
+   * @return {@code true} if the image is stored, {@code false} otherwise
+   */
+  boolean exists(String hash);
+
+  /**
+   * Stores a variant derived from the image with the given hash, replacing an existing variant of the same name.
+   *
+   * @param hash the hex-encoded SHA-256 hash of the original image
+   * @param variant the name of the variant, consisting of lowercase letters and digits only (e.g. {@code w128})
+   * @param data the bytes of the variant
+   */
+  void storeVariant(String hash, String variant, byte[] data);
+
+  /**
+   * Opens a variant of the image with the given hash for streaming.
+   *
+   * @param hash the hex-encoded SHA-256 hash of the original image
+   * @param variant the name of the variant
+   * @return a resource to stream the variant bytes from
+   * @throws NotFoundException if the variant has not been stored
+   */
+  Resource loadVariant(String hash, String variant) throws NotFoundException;
+
+  /**
+   * Checks whether a variant of the image with the given hash is stored.
+   *
+   * @param hash the hex-encoded SHA-256 hash of the original image
+   * @param variant the name of the variant
+   * @return {@code true} if the variant is stored, {@code false} otherwise
+   */
+  boolean existsVariant(String hash, String variant);
+}
@@ -0,0 +1,27 @@
+package at.ac.tuwien.sepr.assignment.individual.persistence;
+
+/**
+ * A schema migration that cannot be expressed as an SQL script, e.g. because it moves data out of the database.
+ * Java migrations are applied by the {@link SchemaMigrator}, in the same version sequence as the SQL scripts.
+ */
+public interface JavaMigration {
+
+  /**
+   * The version of this migration, which has to be unique among all SQL and Java migrations.
+   *
+   * @return the version of this migration
+   */
+  int version();
+
+  /**
+   * A short description of this migration, recorded alongside its version.
+   *
+   * @return the description of this migration
+   */
+  String description();
+
+  /**
+   * Applies this migration.
+   */
+  void migrate();
+}
@@ -0,0 +1,135 @@
+package at.ac.tuwien.sepr.assignment.individual.persistence;
+
+import at.ac.tuwien.sepr.assignment.individual.exception.FatalException;
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.stereotype.Component;
+
+/**
+ * Brings the database schema up to date once, on startup.
+ * The migrations are the SQL scripts named {@code V<version>__<description>.sql} in {@code sql/migration},
+ * and the {@link JavaMigration} beans. They are applied in the order of their versions.
+ * Each applied version is recorded in the {@code schema_version} table, so every migration runs exactly once
+ * per database, and opening a connection does not run any DDL at all.
+ * All migrations are idempotent, so that databases from before the {@code schema_version} table
+ * can simply run them all once.
+ */
+@Component
+public class SchemaMigrator {
+  private static final Logger LOGGER = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private static final String SCRIPT_LOCATION = "classpath:sql/migration/V*__*.sql";
+
+  private static final Pattern SCRIPT_NAME = Pattern.compile("V(\\d+)__(.+)\\.sql");
+
+  private static final String SQL_CREATE_VERSION_TABLE =
+      "CREATE TABLE IF NOT EXISTS schema_version ("
+          + "version INT PRIMARY KEY, "
+          + "description VARCHAR(255) NOT NULL, "
+          + "installed_on TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL)";
+
+  private static final String SQL_SELECT_VERSIONS =
+      "SELECT version FROM schema_version";
+
+  private static final String SQL_INSERT_VERSION =
+      "INSERT INTO schema_version (version, description) VALUES (:version, :description)";
+
+  private final DataSource dataSource;
+  private final JdbcClient jdbcClient;
+  private final List<JavaMigration> javaMigrations;
+
+  private record Migration(int version, String description, Runnable apply) {
+  }
+
+  /**
+   * Constructs the {@code SchemaMigrator} with the required dependencies.
+   *
+   * @param dataSource the database connection source the SQL scripts are run on
+   * @param jdbcClient the JDBC client used to read and record the applied versions
+   * @param javaMigrations the migrations implemented in Java
+   */
+  public SchemaMigrator(DataSource dataSource, JdbcClient jdbcClient, List<JavaMigration> javaMigrations) {
+    this.dataSource = dataSource;
+    this.jdbcClient = jdbcClient;
+    this.javaMigrations = javaMigrations;
+  }
+
+  /**
+   * Applies all migrations whose version is not recorded in the {@code schema_version} table yet.
+   */
+  @PostConstruct
+  public void migrate() {
+    jdbcClient.sql(SQL_CREATE_VERSION_TABLE).update();
+    Set<Integer> applied = new HashSet<>(jdbcClient.sql(SQL_SELECT_VERSIONS).query(Integer.class).list());
+
+    List<Migration> pending = migrations().stream()
+        .filter(migration -> !applied.contains(migration.version()))
+        .toList();
+    if (pending.isEmpty()) {
+      LOGGER.debug("Schema is up to date at version {}", applied.stream().max(Integer::compare).orElse(null));
+      return;
+    }
+
+    for (Migration migration : pending) {
+      LOGGER.info("Migrating schema to version {}: {}", migration.version(), migration.description());
+      migration.apply().run();
+      jdbcClient.sql(SQL_INSERT_VERSION)
+          .param("version", migration.version())
+          .param("description", migration.description())
+          .update();
+    }
+    LOGGER.info("Finished migrating schema to version {}.", pending.getLast().version());
+  }
+
+  private List<Migration> migrations() {
+    List<Migration> migrations = new ArrayList<>();
+    Resource[] scripts;
+    try {
+      scripts = new PathMatchingResourcePatternResolver().getResources(SCRIPT_LOCATION);
+    } catch (IOException e) {
+      throw new FatalException("Could not list the schema migration scripts", e);
+    }
+    for (Resource script : scripts) {
+      Matcher name = SCRIPT_NAME.matcher(script.getFilename());
+      if (!name.matches()) {
+        throw new FatalException("Schema migration script %s is not named V<version>__<description>.sql".formatted(script.getFilename()));
+      }
+      migrations.add(new Migration(Integer.parseInt(name.group(1)), name.group(2).replace('_', ' '), () -> runScript(script)));
+    }
+    for (JavaMigration migration : javaMigrations) {
+      migrations.add(new Migration(migration.version(), migration.description(), migration::migrate));
+    }
+
+    migrations.sort(Comparator.comparingInt(Migration::version));
+    for (int i = 1; i < migrations.size(); i++) {
+      if (migrations.get(i).version() == migrations.get(i - 1).version()) {
+        throw new FatalException("Schema migration version %d is used more than once".formatted(migrations.get(i).version()));
+      }
+    }
+    return migrations;
+  }
+
+  private void runScript(Resource script) {
+    try (var connection = dataSource.getConnection()) {
+      ScriptUtils.executeSqlScript(connection, script);
+    } catch (SQLException e) {
+      throw new FatalException("Could not run schema migration script %s".formatted(script.getFilename()), e);
+    }
+  }
+}
@@ -0,0 +1,268 @@
+package at.ac.tuwien.sepr.assignment.individual.persistence.impl;
+
+import at.ac.tuwien.sepr.assignment.individual.exception.FatalException;
+import at.ac.tuwien.sepr.assignment.individual.exception.ImageTooLargeException;
+import at.ac.tuwien.sepr.assignment.individual.exception.ImageUploadException;
+import at.ac.tuwien.sepr.assignment.individual.exception.NotFoundException;
+import at.ac.tuwien.sepr.assignment.individual.persistence.ImageStore;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Repository;
+
+/**
+ * {@link ImageStore} that keeps every image as a file in a local directory.
+ * Files are named by their hash and spread over subdirectories named by the first two hex digits of the hash,
+ * so no single directory grows too large. Variants are kept next to their original, named {@code <hash>.<variant>}.
+ * New images are written to a temporary file first and then moved into place atomically,
+ * so readers never see a partially written image.
+ */
+@Repository
+public class FileSystemImageStore implements ImageStore {
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  private static final Pattern HASH_PATTERN = Pattern.compile("^[0-9a-f]{64}$");
+  private static final Pattern VARIANT_PATTERN = Pattern.compile("^[a-z0-9]{1,32}$");
+
+  private final Path directory;
+
+  /**
+   * Constructs a new {@code FileSystemImageStore} keeping its files in the given directory.
+   *
+   * @param directory the directory the images are stored in; it is created if it does not exist yet
+   */
+  public FileSystemImageStore(@Value("${horse.image-store.directory}") Path directory) {
+    this.directory = directory.toAbsolutePath();
+    try {
+      Files.createDirectories(this.directory);
+    } catch (IOException e) {
+      throw new FatalException("Could not create image store directory " + this.directory, e);
+    }
+  }
+
+  @Override
+  public String store(byte[] data) {
+    LOG.trace("store({} bytes)", data.length);
+    String hash = hash(data);
+    Path target = pathOf(hash);
+    if (Files.exists(target)) {
+      LOG.debug("Image {} is already stored", hash);
+      return hash;
+    }
+    writeAtomically(target, data);
+    return hash;
+  }
+
+  @Override
+  public String store(InputStream data, long maxBytes) throws ImageTooLargeException, ImageUploadException {
+    LOG.trace("store(stream, max {} bytes)", maxBytes);
+    MessageDigest digest = sha256();
+    try {
+      Path temporary = Files.createTempFile(directory, "upload-", ".tmp");
+      try {
+        try (OutputStream out = Files.newOutputStream(temporary)) {
+          long copied = new DigestInputStream(new UploadInputStream(data), digest).transferTo(new BoundedOutputStream(out, maxBytes));
+          LOG.debug("Received image of {} bytes", copied);
+        } catch (BoundedOutputStream.LimitExceededException e) {
+          throw new ImageTooLargeException("Image must not be larger than %d bytes".formatted(maxBytes));
+        } catch (UploadInputStream.UploadFailedException e) {
+          throw new ImageUploadException("Could not read uploaded image", e.getCause());
+        }
+        String hash = HexFormat.of().formatHex(digest.digest());
+        Path target = pathOf(hash);
+        if (Files.exists(target)) {
+          LOG.debug("Image {} is already stored", hash);
+        } else {
+          moveIntoPlace(temporary, target);
+        }
+        return hash;
+      } finally {
+        Files.deleteIfExists(temporary);
+      }
+    } catch (IOException e) {
+      throw new FatalException("Could not write uploaded image to the image store", e);
+    }
+  }
+
+  @Override
+  public Resource load(String hash) throws NotFoundException {
+    LOG.trace("load({})", hash);
+    Path path = pathOf(hash);
+    if (!Files.isRegularFile(path)) {
+      throw new NotFoundException("No image with hash %s found".formatted(hash));
+    }
+    // FileSystemResource reads through NIO channels, which also serve the ranges of partial requests
+    return new FileSystemResource(path);
+  }
+
+  @Override
+  public boolean exists(String hash) {
+    LOG.trace("exists({})", hash);
+    return Files.exists(pathOf(hash));
+  }
+
+  @Override
+  public void storeVariant(String hash, String variant, byte[] data) {
+    LOG.trace("storeVariant({}, {}, {} bytes)", hash, variant, data.length);
+    writeAtomically(variantPathOf(hash, variant), data);
+  }
+
+  @Override
+  public Resource loadVariant(String hash, String variant) throws NotFoundException {
+    LOG.trace("loadVariant({}, {})", hash, variant);
+    Path path = variantPathOf(hash, variant);
+    if (!Files.isRegularFile(path)) {
+      throw new NotFoundException("No variant %s of image %s found".formatted(variant, hash));
+    }
+    return new FileSystemResource(path);
+  }
+
+  @Override
+  public boolean existsVariant(String hash, String variant) {
+    LOG.trace("existsVariant({}, {})", hash, variant);
+    return Files.exists(variantPathOf(hash, variant));
+  }
+
+  private void writeAtomically(Path target, byte[] data) {
+    try {
+      Path temporary = Files.createTempFile(directory, "upload-", ".tmp");
+      try {
+        Files.write(temporary, data);
+        moveIntoPlace(temporary, target);
+      } finally {
+        Files.deleteIfExists(temporary);
+      }
+    } catch (IOException e) {
+      throw new FatalException("Could not write " + target.getFileName() + " to the image store", e);
+    }
+  }
+
+  private void moveIntoPlace(Path temporary, Path target) throws IOException {
+    Files.createDirectories(target.getParent());
+    try {
+      Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+    } catch (FileAlreadyExistsException e) {
+      // a concurrent write of the same content won the race, which is fine as the content is identical
+      LOG.debug("{} was written concurrently", target.getFileName());
+    }
+  }
+
+  private Path variantPathOf(String hash, String variant) {
+    if (variant == null || !VARIANT_PATTERN.matcher(variant).matches()) {
+      throw new IllegalArgumentException("Not a valid image variant name: " + variant);
+    }
+    Path original = pathOf(hash);
+    return original.resolveSibling(original.getFileName() + "." + variant);
+  }
+
+  private Path pathOf(String hash) {
+    if (hash == null || !HASH_PATTERN.matcher(hash).matches()) {
+      // never let anything that is not a hash near the file system
+      throw new IllegalArgumentException("Not a valid image hash: " + hash);
+    }
+    return directory.resolve(hash.substring(0, 2)).resolve(hash);
+  }
+
+  private static String hash(byte[] data) {
+    return HexFormat.of().formatHex(sha256().digest(data));
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new FatalException("SHA-256 is not available", e);
+    }
+  }
+
+  /**
+   * Output stream that passes bytes through until a limit is reached, and fails instead of writing beyond it.
+   */
+  private static final class BoundedOutputStream extends OutputStream {
+    private final OutputStream out;
+    private final long limit;
+    private long written;
+
+    private BoundedOutputStream(OutputStream out, long limit) {
+      this.out = out;
+      this.limit = limit;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      reserve(1);
+      out.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      reserve(len);
+      out.write(b, off, len);
+    }
+
+    private void reserve(int length) throws LimitExceededException {
+      if (written + length > limit) {
+        throw new LimitExceededException();
+      }
+      written += length;
+    }
+
+    /**
+     * Signals that more bytes were to be written than the limit allows.
+     */
+    private static final class LimitExceededException extends IOException {
+    }
+  }
+
+  /**
+   * Tells the errors reading the upload from the client apart from the errors writing it to the store.
+   */
+  private static final class UploadInputStream extends FilterInputStream {
+
+    private UploadInputStream(InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+      try {
+        return super.read();
+      } catch (IOException e) {
+        throw new UploadFailedException(e);
+      }
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      try {
+        return super.read(b, off, len);
+      } catch (IOException e) {
+        throw new UploadFailedException(e);
+      }
+    }
+
+    /**
+     * Signals that the upload could not be read from the client.
+     */
+    private static final class UploadFailedException extends IOException {
+      private UploadFailedException(IOException cause) {
+        super(cause);
+      }
+    }
+  }
+}
@@ -0,0 +1,144 @@
+package at.ac.tuwien.sepr.assignment.individual.persistence.impl;
+
+import at.ac.tuwien.sepr.assignment.individual.persistence.HorseAncestryDao;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * JDBC implementation of {@link HorseAncestryDao}, on the {@code horse_ancestry} closure table.
+ * The ancestry of a horse is derived in one statement from the ancestry of its mother and its father,
+ * which is why horses are always recomputed after their parents.
+ */
+@Repository
+public class HorseAncestryJdbcDao implements HorseAncestryDao {
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private static final String TABLE_NAME = "horse_ancestry";
+
+  // package-visible, so that the plan of the very statement is checked against the indexes
+  static final String SQL_SELECT_DESCENDANT_IDS =
+      "SELECT a.descendant_id FROM " + TABLE_NAME + " a"
+          + " JOIN horse h ON h.id = a.descendant_id"
+          + " WHERE a.ancestor_id = :id AND a.depth > 0"
+          + " GROUP BY a.descendant_id, h.date_of_birth"
+          + " ORDER BY h.date_of_birth, a.descendant_id";
+
+  private static final String SQL_SELECT_ALL_IDS_BY_BIRTH =
+      "SELECT id FROM horse ORDER BY date_of_birth, id";
+
+  private static final String SQL_DELETE_BY_DESCENDANT =
+      "DELETE FROM " + TABLE_NAME + " WHERE descendant_id = :id";
+
+  private static final String SQL_DELETE_ALL =
+      "DELETE FROM " + TABLE_NAME;
+
+  private static final String SQL_COUNT =
+      "SELECT COUNT(*) FROM " + TABLE_NAME;
+
+  // the horse itself, and every ancestor of each parent one generation further away; of several routes to the same
+  // ancestor at the same depth, the first one alphabetically is kept
+  private static final String SQL_INSERT_FROM_PARENTS =
+      "INSERT INTO " + TABLE_NAME + " (descendant_id, ancestor_id, depth, path)"
+          + " SELECT :id, r.ancestor_id, r.depth, MIN(r.path) FROM ("
+          + " SELECT h.id AS ancestor_id, 0 AS depth, CAST('' AS VARCHAR(1024)) AS path FROM horse h WHERE h.id = :id"
+          + " UNION ALL SELECT a.ancestor_id, a.depth + 1, 'M' || a.path FROM horse h"
+          + " JOIN " + TABLE_NAME + " a ON a.descendant_id = h.mother_id WHERE h.id = :id"
+          + " UNION ALL SELECT a.ancestor_id, a.depth + 1, 'F' || a.path FROM horse h"
+          + " JOIN " + TABLE_NAME + " a ON a.descendant_id = h.father_id WHERE h.id = :id"
+          + ") r GROUP BY r.ancestor_id, r.depth";
+
+  private static final String SQL_CHECK_MISSING_SELF =
+      "SELECT h.id FROM horse h WHERE NOT EXISTS ("
+          + "SELECT 1 FROM " + TABLE_NAME + " a WHERE a.descendant_id = h.id AND a.depth = 0 AND a.ancestor_id = h.id)";
+
+  private static final String SQL_CHECK_UNDERIVED =
+      "SELECT a.descendant_id, a.ancestor_id, a.depth, a.path FROM " + TABLE_NAME + " a"
+          + " JOIN horse h ON h.id = a.descendant_id"
+          + " WHERE a.depth = 0 AND (a.ancestor_id <> a.descendant_id OR a.path <> '')"
+          + " OR a.depth > 0 AND NOT EXISTS (SELECT 1 FROM " + TABLE_NAME + " p"
+          + " WHERE p.descendant_id = CASE SUBSTRING(a.path, 1, 1) WHEN 'M' THEN h.mother_id WHEN 'F' THEN h.father_id END"
+          + " AND p.depth = a.depth - 1 AND p.ancestor_id = a.ancestor_id AND p.path = SUBSTRING(a.path, 2))";
+
+  private static final String SQL_CHECK_MISSING =
+      "SELECT c.id, p.ancestor_id, p.depth + 1 AS depth FROM horse c"
+          + " JOIN " + TABLE_NAME + " p ON p.descendant_id IN (c.mother_id, c.father_id)"
+          + " WHERE NOT EXISTS (SELECT 1 FROM " + TABLE_NAME + " a"
+          + " WHERE a.descendant_id = c.id AND a.depth = p.depth + 1 AND a.ancestor_id = p.ancestor_id)";
+
+  private final JdbcClient jdbcClient;
+
+  /**
+   * Constructs a new {@code HorseAncestryJdbcDao} instance with the provided {@link JdbcClient}.
+   *
+   * @param jdbcClient the JDBC client used to read and write the ancestry
+   */
+  public HorseAncestryJdbcDao(JdbcClient jdbcClient) {
+    this.jdbcClient = jdbcClient;
+  }
+
+  @Override
+  public List<Long> getDescendantIds(long id) {
+    LOG.trace("getDescendantIds({})", id);
+    return jdbcClient.sql(SQL_SELECT_DESCENDANT_IDS)
+        .param("id", id)
+        .query(Long.class)
+        .list();
+  }
+
+  @Override
+  @Transactional
+  public void recompute(List<Long> ids) {
+    LOG.trace("recompute({} horses)", ids.size());
+    for (Long id : ids) {
+      jdbcClient.sql(SQL_DELETE_BY_DESCENDANT).param("id", id).update();
+      jdbcClient.sql(SQL_INSERT_FROM_PARENTS).param("id", id).update();
+    }
+  }
+
+  @Override
+  @Transactional
+  public void recomputeWithDescendants(long id) {
+    LOG.trace("recomputeWithDescendants({})", id);
+    List<Long> ids = new ArrayList<>();
+    ids.add(id);
+    // the descendants are found through the rows that still lead to the horse, which do not depend on its parents
+    ids.addAll(getDescendantIds(id));
+    recompute(ids);
+  }
+
+  @Override
+  @Transactional
+  public int rebuild() {
+    LOG.trace("rebuild()");
+    jdbcClient.sql(SQL_DELETE_ALL).update();
+    recompute(jdbcClient.sql(SQL_SELECT_ALL_IDS_BY_BIRTH).query(Long.class).list());
+    return jdbcClient.sql(SQL_COUNT).query(Integer.class).single();
+  }
+
+  @Override
+  public List<String> check() {
+    LOG.trace("check()");
+    List<String> inconsistencies = new ArrayList<>();
+    jdbcClient.sql(SQL_CHECK_MISSING_SELF)
+        .query((result, rownum) -> "Horse %d is missing as its own ancestor".formatted(result.getLong("id")))
+        .list()
+        .forEach(inconsistencies::add);
+    jdbcClient.sql(SQL_CHECK_UNDERIVED)
+        .query((result, rownum) -> "Ancestor %d of horse %d at depth %d via '%s' does not follow from its parents".formatted(
+            result.getLong("ancestor_id"), result.getLong("descendant_id"), result.getInt("depth"), result.getString("path")))
+        .list()
+        .forEach(inconsistencies::add);
+    jdbcClient.sql(SQL_CHECK_MISSING)
+        .query((result, rownum) -> "Ancestor %d of horse %d at depth %d is missing".formatted(
+            result.getLong("ancestor_id"), result.getLong("id"), result.getInt("depth")))
+        .list()
+        .forEach(inconsistencies::add);
+    return inconsistencies;
+  }
+}
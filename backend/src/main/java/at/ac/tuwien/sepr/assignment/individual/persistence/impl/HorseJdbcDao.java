@@ -1,17 +1,33 @@
 package at.ac.tuwien.sepr.assignment.individual.persistence.impl;
 
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseCreateDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorsePatchDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseSearchCursor;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseSearchDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseUpdateDto;
 import at.ac.tuwien.sepr.assignment.individual.entity.Horse;
+import at.ac.tuwien.sepr.assignment.individual.entity.HorseFamily;
+import at.ac.tuwien.sepr.assignment.individual.entity.HorseLineage;
+import at.ac.tuwien.sepr.assignment.individual.entity.HorseWithRelations;
+import at.ac.tuwien.sepr.assignment.individual.entity.Owner;
 import at.ac.tuwien.sepr.assignment.individual.exception.FatalException;
 import at.ac.tuwien.sepr.assignment.individual.exception.NotFoundException;
+import at.ac.tuwien.sepr.assignment.individual.persistence.HorseAncestryDao;
 import at.ac.tuwien.sepr.assignment.individual.persistence.HorseDao;
+import at.ac.tuwien.sepr.assignment.individual.persistence.impl.HorseSearchQuery.Column;
+import at.ac.tuwien.sepr.assignment.individual.persistence.impl.HorseSearchQuery.Operator;
+import at.ac.tuwien.sepr.assignment.individual.type.HorseField;
+import at.ac.tuwien.sepr.assignment.individual.type.HorseSortKey;
 import at.ac.tuwien.sepr.assignment.individual.type.Sex;
 import java.lang.invoke.MethodHandles;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 import org.slf4j.Logger;
@@ -21,6 +37,7 @@ import org.springframework.jdbc.core.simple.JdbcClient;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * JDBC implementation of {@link HorseDao} for interacting with the database.
@@ -31,15 +48,59 @@ public class HorseJdbcDao implements HorseDao {
 
   private static final String TABLE_NAME = "horse";
 
+  // Column projections per use case, so that only the detail view reads the image columns
+  private static final String LIST_COLUMNS =
+      "h.id, h.name, h.description, h.date_of_birth, h.sex, h.owner_id, h.mother_id, h.father_id";
+
+  private static final String DETAIL_COLUMNS =
+      LIST_COLUMNS + ", h.image_hash, h.image_type";
+
+  private static final String LINEAGE_COLUMNS =
+      "h.id, h.sex, h.date_of_birth, h.mother_id, h.father_id";
+
+  private static final String FAMILY_COLUMNS =
+      LINEAGE_COLUMNS + ", h.image_hash";
+
+  private static final String PEDIGREE_COLUMNS =
+      "h.id, h.name, h.date_of_birth, h.sex, h.mother_id, h.father_id";
+
+  private static final String CANDIDATE_COLUMNS =
+      "h.id, h.name, h.date_of_birth, h.sex";
+
   private static final String SQL_SELECT_ALL =
-      "SELECT * FROM " + TABLE_NAME;
+      "SELECT " + LIST_COLUMNS + " FROM " + TABLE_NAME + " h";
 
   private static final String SQL_SELECT_BY_ID =
-      "SELECT * FROM " + TABLE_NAME
-          + " WHERE ID = :id";
-
+      "SELECT " + DETAIL_COLUMNS + " FROM " + TABLE_NAME + " h"
+          + " WHERE h.id = :id";
+
+  // Parents and owner are joined in, so the detail view takes a single round trip
+  private static final String SQL_SELECT_WITH_RELATIONS_BY_ID =
+      "SELECT " + DETAIL_COLUMNS + ","
+          + " m.name AS mother_name, m.date_of_birth AS mother_date_of_birth, m.sex AS mother_sex,"
+          + " f.name AS father_name, f.date_of_birth AS father_date_of_birth, f.sex AS father_sex,"
+          + " o.first_name AS owner_first_name, o.last_name AS owner_last_name, o.description AS owner_description"
+          + " FROM " + TABLE_NAME + " h"
+          + " LEFT JOIN " + TABLE_NAME + " m ON m.id = h.mother_id"
+          + " LEFT JOIN " + TABLE_NAME + " f ON f.id = h.father_id"
+          + " LEFT JOIN owner o ON o.id = h.owner_id"
+          + " WHERE h.id = :id";
+
+  private static final String SQL_SELECT_ALL_BY_ID =
+      "SELECT " + LIST_COLUMNS + " FROM " + TABLE_NAME + " h"
+          + " WHERE h.id IN (:ids)";
+
+  private static final String SQL_SELECT_LINEAGE_BY_ID =
+      "SELECT " + LINEAGE_COLUMNS + " FROM " + TABLE_NAME + " h"
+          + " WHERE h.id = :id";
+
+  private static final String SQL_SELECT_LINEAGES_BY_ID =
+      "SELECT " + LINEAGE_COLUMNS + " FROM " + TABLE_NAME + " h"
+          + " WHERE h.id IN (:ids)";
+
+  // An update without a new image keeps the stored one; the FINAL TABLE returns the updated row with it
   private static final String SQL_UPDATE =
-      "UPDATE " + TABLE_NAME
+      "SELECT " + DETAIL_COLUMNS + " FROM FINAL TABLE (UPDATE " + TABLE_NAME
           + """
               SET name = :name,
                   description = :description,
@@ -48,58 +109,69 @@ public class HorseJdbcDao implements HorseDao {
                   owner_id = :owner_id,
                   mother_id = :mother_id,
                   father_id = :father_id,
-                  image = :image,
-                  image_type = :image_type
-              WHERE id = :id
+                  image_type = CASE WHEN :image_hash IS NULL THEN image_type ELSE :image_type END,
+                  image_hash = COALESCE(:image_hash, image_hash)
+              WHERE id = :id) h
           """;
 
+  private static final String SQL_UPDATE_IMAGE =
+      "UPDATE " + TABLE_NAME + " SET image_hash = :image_hash, image_type = :image_type WHERE id = :id";
+
+  // The FINAL TABLE of the UPDATE returns the patched row, so patching takes a single round trip
+  private static final String SQL_PATCH_PREFIX =
+      "SELECT " + DETAIL_COLUMNS + " FROM FINAL TABLE (UPDATE " + TABLE_NAME + " SET ";
+
+  private static final String SQL_PATCH_SUFFIX = " WHERE id = :id) h";
+
   private static final String SQL_INSERT =
           "INSERT INTO "
                   + TABLE_NAME
-                  + " (name, description, date_of_birth, sex, owner_id, mother_id, father_id, image, image_type) "
-                  + "VALUES (:name, :description, :date_of_birth, :sex, :owner_id, :mother_id, :father_id, :image, :image_type)";
+                  + " (name, description, date_of_birth, sex, owner_id, mother_id, father_id, image_hash, image_type) "
+                  + "VALUES (:name, :description, :date_of_birth, :sex, :owner_id, :mother_id, :father_id, :image_hash, :image_type)";
 
   private static final String SQL_DELETE =
           "DELETE FROM " + TABLE_NAME + " WHERE id = :id";
 
-  private static final String SQL_GET_CHILDREN_BY_PARENT =
-          "SELECT * FROM " + TABLE_NAME + " WHERE mother_id = :parentId OR father_id = :parentId";
-
-
-  private static final String SQL_SEARCH =
-          "SELECT h.*" + " FROM " + TABLE_NAME + " h "
-                  + "LEFT JOIN owner o ON h.owner_id = o.id "
-                  + "WHERE (COALESCE(:name, '') = '' OR UPPER(h.name) LIKE UPPER(:name) || '%') "
-                  + "AND (COALESCE(:description, '') = '' OR UPPER(h.description) LIKE '%' || UPPER(:description) || '%') "
-                  + "AND (:date_of_birth IS NULL OR h.date_of_birth <= :date_of_birth) "
-                  + "AND (:sex IS NULL OR h.sex = :sex) "
-                  + "AND (COALESCE(:ownerName, '') = '' OR UPPER(o.first_name || ' ' || o.last_name) LIKE '%' || UPPER(:ownerName) || '%')";
-
-  private static final String SQL_GET_PEDIGREE =
-          "WITH RECURSIVE pedigree (id, name, date_of_birth, sex, mother_id, father_id, generation) AS ( "
-                  + "SELECT id, name, date_of_birth, sex, mother_id, father_id, 0 AS generation "
-                  + "FROM " + TABLE_NAME + " "
-                  + "WHERE id = :id "
-                  + "UNION ALL "
-                  + "SELECT h.id, h.name, h.date_of_birth, h.sex, h.mother_id, h.father_id, p.generation + 1 "
-                  + "FROM " + TABLE_NAME + " h "
-                  + "INNER JOIN pedigree p ON h.id = p.mother_id OR h.id = p.father_id "
-                  + "WHERE (:maxGenerations IS NULL OR p.generation < :maxGenerations) "
-                  + ") "
-                  + "SELECT id, name, date_of_birth, sex, mother_id, father_id "
-                  + "FROM pedigree";
+  // One branch per access path, so each can use its own index;
+  // package-visible, so that the plan of the very statement is checked against the indexes
+  static final String SQL_GET_FAMILY =
+          "SELECT " + FAMILY_COLUMNS + " FROM " + TABLE_NAME + " h"
+                  + " WHERE h.id IN (:id, :motherId, :fatherId)"
+                  + " UNION SELECT " + FAMILY_COLUMNS + " FROM " + TABLE_NAME + " h"
+                  + " WHERE h.id = (SELECT c.mother_id FROM " + TABLE_NAME + " c WHERE c.id = :id)"
+                  + " UNION SELECT " + FAMILY_COLUMNS + " FROM " + TABLE_NAME + " h"
+                  + " WHERE h.id = (SELECT c.father_id FROM " + TABLE_NAME + " c WHERE c.id = :id)"
+                  + " UNION SELECT " + FAMILY_COLUMNS + " FROM " + TABLE_NAME + " h"
+                  + " WHERE h.mother_id = :id"
+                  + " UNION SELECT " + FAMILY_COLUMNS + " FROM " + TABLE_NAME + " h"
+                  + " WHERE h.father_id = :id";
+
+  // One generation of descendants is a range of the ancestry's index on the ancestor and depth, so only that
+  // generation is read and sorted; the primary key holds each descendant once per depth
+  static final String SQL_GET_DESCENDANTS =
+          "SELECT " + PEDIGREE_COLUMNS
+                  + " FROM horse_ancestry a"
+                  + " JOIN " + TABLE_NAME + " h ON h.id = a.descendant_id"
+                  + " WHERE a.ancestor_id = :id AND a.depth = :generation"
+                  + " ORDER BY h.date_of_birth, h.id";
 
   private final JdbcClient jdbcClient;
+  private final OwnerNameIndex ownerNameIndex;
+  private final HorseAncestryDao ancestryDao;
 
   /**
    * Constructs a new {@code HorseJdbcDao} instance with the provided {@link JdbcClient}.
    *
    * @param jdbcClient the JDBC client used to interact with the underlying database
    *                   for performing CRUD operations related to horse entities.
+   * @param ownerNameIndex the index the owner names of a horse search are looked up in.
+   * @param ancestryDao the ancestry that is kept up to date with the parents of the horses.
    */
   @Autowired
-  public HorseJdbcDao(JdbcClient jdbcClient) {
+  public HorseJdbcDao(JdbcClient jdbcClient, OwnerNameIndex ownerNameIndex, HorseAncestryDao ancestryDao) {
     this.jdbcClient = jdbcClient;
+    this.ownerNameIndex = ownerNameIndex;
+    this.ancestryDao = ancestryDao;
   }
 
   @Override
@@ -107,7 +179,7 @@ public class HorseJdbcDao implements HorseDao {
     LOG.trace("getAll()");
     return jdbcClient
         .sql(SQL_SELECT_ALL)
-        .query(this::mapRow)
+        .query(this::mapListRow)
         .list();
   }
 
@@ -117,7 +189,7 @@ public class HorseJdbcDao implements HorseDao {
     List<Horse> horses = jdbcClient
         .sql(SQL_SELECT_BY_ID)
         .param("id", id)
-        .query(this::mapRow)
+        .query(this::mapDetailRow)
         .list();
 
     if (horses.isEmpty()) {
@@ -132,18 +204,102 @@ public class HorseJdbcDao implements HorseDao {
   }
 
   @Override
-  public List<Horse> getChildrenByParentId(Long parentId) {
-    LOG.trace("getChildrenByParentId({})", parentId);
+  public HorseWithRelations getWithRelationsById(long id) throws NotFoundException {
+    LOG.trace("getWithRelationsById({})", id);
+    List<HorseWithRelations> horses = jdbcClient
+        .sql(SQL_SELECT_WITH_RELATIONS_BY_ID)
+        .param("id", id)
+        .query(this::mapWithRelationsRow)
+        .list();
+
+    if (horses.isEmpty()) {
+      throw new NotFoundException("No horse with ID %d found".formatted(id));
+    }
+    return horses.getFirst();
+  }
+
+  @Override
+  public List<Horse> getAllById(Collection<Long> ids) {
+    LOG.trace("getAllById({})", ids);
+    if (ids.isEmpty()) {
+      return List.of();
+    }
     return jdbcClient
-            .sql(SQL_GET_CHILDREN_BY_PARENT)
-            .param("parentId", parentId)
-            .query(this::mapRow)
-            .list();
+        .sql(SQL_SELECT_ALL_BY_ID)
+        .param("ids", ids)
+        .query(this::mapListRow)
+        .list();
+  }
+
+  @Override
+  public Map<Long, HorseLineage> getLineagesById(Collection<Long> ids) {
+    LOG.trace("getLineagesById({})", ids);
+    Map<Long, HorseLineage> lineages = new HashMap<>();
+    if (ids.isEmpty()) {
+      return lineages;
+    }
+    jdbcClient
+        .sql(SQL_SELECT_LINEAGES_BY_ID)
+        .param("ids", ids)
+        .query(this::mapLineageRow)
+        .list()
+        .forEach(lineage -> lineages.put(lineage.id(), lineage));
+    return lineages;
+  }
+
+  @Override
+  public HorseLineage getLineageById(long id) throws NotFoundException {
+    LOG.trace("getLineageById({})", id);
+    List<HorseLineage> horses = jdbcClient
+        .sql(SQL_SELECT_LINEAGE_BY_ID)
+        .param("id", id)
+        .query(this::mapLineageRow)
+        .list();
+
+    if (horses.isEmpty()) {
+      throw new NotFoundException("No horse with ID %d found".formatted(id));
+    }
+    if (horses.size() > 1) {
+      // This should never happen!!
+      throw new FatalException("Too many horses with ID %d found".formatted(id));
+    }
+
+    return horses.getFirst();
   }
 
   @Override
-  public Horse create(HorseCreateDto horse) {
-    LOG.trace("create({})", horse);
+  public HorseFamily getFamily(long id, Long motherId, Long fatherId) {
+    LOG.trace("getFamily({}, {}, {})", id, motherId, fatherId);
+    Map<String, Object> params = new HashMap<>();
+    params.put("id", id);
+    params.put("motherId", motherId);
+    params.put("fatherId", fatherId);
+    List<FamilyMember> rows = jdbcClient
+        .sql(SQL_GET_FAMILY)
+        .params(params)
+        .query(this::mapFamilyRow)
+        .list();
+
+    Map<Long, HorseLineage> relatives = new HashMap<>();
+    List<HorseLineage> children = new ArrayList<>();
+    String imageHash = null;
+    for (FamilyMember row : rows) {
+      HorseLineage relative = row.lineage();
+      relatives.put(relative.id(), relative);
+      if (relative.id() == id) {
+        imageHash = row.imageHash();
+      }
+      if (Objects.equals(relative.motherId(), id) || Objects.equals(relative.fatherId(), id)) {
+        children.add(relative);
+      }
+    }
+    return new HorseFamily(relatives.get(id), imageHash, relatives, children);
+  }
+
+  @Override
+  @Transactional
+  public Horse create(HorseCreateDto horse, String imageHash) {
+    LOG.trace("create({}, {})", horse, imageHash);
     KeyHolder keyHolder = new GeneratedKeyHolder();
     int created = jdbcClient
             .sql(SQL_INSERT)
@@ -154,15 +310,17 @@ public class HorseJdbcDao implements HorseDao {
             .param("owner_id", horse.ownerId())
             .param("mother_id", horse.motherId())
             .param("father_id", horse.fatherId())
-            .param("image", horse.image())
+            .param("image_hash", imageHash)
             .param("image_type", horse.imageType())
-            .update(keyHolder);
+            // only the ID, the generated name_upper column would be returned as a key as well
+            .update(keyHolder, "id");
 
     if (created == 0) {
       throw new FatalException("Failed to create horse");
     }
 
     Long createdId = Objects.requireNonNull(keyHolder.getKey()).longValue();
+    ancestryDao.recompute(List.of(createdId));
 
     return new Horse(
             createdId,
@@ -173,14 +331,17 @@ public class HorseJdbcDao implements HorseDao {
             horse.ownerId(),
             horse.motherId(),
             horse.fatherId(),
-            horse.image(),
+            imageHash,
             horse.imageType()
     );
   }
 
   @Override
+  @Transactional
   public void delete(long id) throws NotFoundException {
     LOG.trace("delete({})", id);
+    // the rows through the horse are deleted along with it, so the descendants have to be found beforehand
+    List<Long> descendantIds = ancestryDao.getDescendantIds(id);
     int deleted = jdbcClient.sql(SQL_DELETE)
             .param("id", id)
             .update();
@@ -188,37 +349,70 @@ public class HorseJdbcDao implements HorseDao {
     if (deleted == 0) {
       throw new NotFoundException("Failed to delete horse with ID " + id);
     }
+    ancestryDao.recompute(descendantIds);
   }
 
   @Override
-  public List<Horse> search(HorseSearchDto searchParameters) {
-    LOG.trace("search({})", searchParameters);
-
-    return jdbcClient.sql(SQL_SEARCH)
-            .param("name", searchParameters.name())
-            .param("description", searchParameters.description())
-            .param("date_of_birth", searchParameters.dateOfBirth())
-            .param("sex", searchParameters.sex() != null ? searchParameters.sex().toString() : null)
-            .param("ownerName", searchParameters.ownerName())
-            .query(this::mapRow)
+  public List<Horse> search(HorseSearchDto searchParameters, Collection<Long> ids, HorseSortKey sortKey, HorseSearchCursor after, int limit) {
+    LOG.trace("search({}, {}, {}, {}, {})", searchParameters, ids, sortKey, after, limit);
+    // the owner name is looked up in the trigram index, so the owner table is neither joined nor scanned
+    List<Long> ownerIds = null;
+    if (searchParameters.ownerName() != null && !searchParameters.ownerName().isEmpty()) {
+      ownerIds = ownerNameIndex.search(searchParameters.ownerName(), null);
+      if (ownerIds.isEmpty()) {
+        return List.of();
+      }
+    }
+
+    // all birthdate and age bounds are folded into one range on the birthdate, so it can be read from its index
+    LocalDate today = LocalDate.now();
+    var query = HorseSearchQuery.select(LIST_COLUMNS)
+        .where(Column.ID, Operator.IN, ids)
+        .where(Column.NAME, Operator.PREFIX, searchParameters.name())
+        .where(Column.DESCRIPTION, Operator.CONTAINS, searchParameters.description())
+        .between(Column.DATE_OF_BIRTH, searchParameters.earliestDateOfBirth(today), searchParameters.latestDateOfBirth(today))
+        .where(Column.SEX, Operator.EQUALS, searchParameters.sex())
+        .where(Column.OWNER_ID, Operator.IN, ownerIds)
+        .orderBy(sortKey, after)
+        .limit(limit);
+
+    return jdbcClient.sql(query.sql())
+            .params(query.params())
+            .query(this::mapListRow)
             .list();
   }
 
   @Override
-  public List<Horse> getPedigree(long id, Integer maxGenerations) {
-    LOG.trace("getPedigree({}, {})", id, maxGenerations);
-    return jdbcClient.sql(SQL_GET_PEDIGREE)
+  public List<Horse> getParentCandidates(Sex sex, LocalDate bornBefore, String namePrefix, int limit) {
+    LOG.trace("getParentCandidates({}, {}, {}, {})", sex, bornBefore, namePrefix, limit);
+    var query = HorseSearchQuery.select(CANDIDATE_COLUMNS)
+        .where(Column.SEX, Operator.EQUALS, sex)
+        .where(Column.DATE_OF_BIRTH, Operator.LESS_THAN, bornBefore)
+        .where(Column.NAME, Operator.PREFIX, namePrefix)
+        .orderBy(HorseSortKey.NAME, null)
+        .limit(limit);
+
+    return jdbcClient.sql(query.sql())
+        .params(query.params())
+        .query(this::mapCandidateRow)
+        .list();
+  }
+
+  @Override
+  public List<Horse> getDescendants(long id, int generation) {
+    LOG.trace("getDescendants({}, {})", id, generation);
+    return jdbcClient.sql(SQL_GET_DESCENDANTS)
             .param("id", id)
-            .param("maxGenerations", maxGenerations)
+            .param("generation", generation)
             .query(this::mapRowPedigree)
             .list();
   }
 
-
   @Override
-  public Horse update(HorseUpdateDto horse) throws NotFoundException {
-    LOG.trace("update({})", horse);
-    int updated = jdbcClient
+  @Transactional
+  public Horse update(HorseUpdateDto horse, String imageHash, HorseLineage before) throws NotFoundException {
+    LOG.trace("update({}, {}, {})", horse, imageHash, before);
+    List<Horse> horses = jdbcClient
         .sql(SQL_UPDATE)
         .param("id", horse.id())
         .param("name", horse.name())
@@ -228,31 +422,102 @@ public class HorseJdbcDao implements HorseDao {
         .param("owner_id", horse.ownerId())
         .param("mother_id", horse.motherId())
         .param("father_id", horse.fatherId())
-        .param("image", horse.image())
+        .param("image_hash", imageHash)
         .param("image_type", horse.imageType())
+        .query(this::mapDetailRow)
+        .list();
+
+    if (horses.isEmpty()) {
+      throw new NotFoundException(
+          "Could not update horse with ID " + horse.id() + ", because it does not exist"
+      );
+    }
+    if (!Objects.equals(before.motherId(), horse.motherId()) || !Objects.equals(before.fatherId(), horse.fatherId())) {
+      ancestryDao.recomputeWithDescendants(horse.id());
+    }
+    return horses.getFirst();
+  }
+
+
+  @Override
+  @Transactional
+  public Horse patch(HorsePatchDto patch) throws NotFoundException {
+    LOG.trace("patch({})", patch);
+    if (patch.fields().isEmpty()) {
+      return getById(patch.id());
+    }
+
+    Map<String, Object> params = new HashMap<>();
+    params.put("id", patch.id());
+    StringBuilder assignments = new StringBuilder();
+    for (HorseField field : patch.fields()) {
+      if (!assignments.isEmpty()) {
+        assignments.append(", ");
+      }
+      assignments.append(field.column()).append(" = :").append(field.column());
+      params.put(field.column(), patchedValue(patch, field));
+    }
+
+    List<Horse> horses = jdbcClient
+        .sql(SQL_PATCH_PREFIX + assignments + SQL_PATCH_SUFFIX)
+        .params(params)
+        .query(this::mapDetailRow)
+        .list();
+    if (horses.isEmpty()) {
+      throw new NotFoundException("Could not patch horse with ID " + patch.id() + ", because it does not exist");
+    }
+    if (patch.fields().contains(HorseField.MOTHER_ID) || patch.fields().contains(HorseField.FATHER_ID)) {
+      ancestryDao.recomputeWithDescendants(patch.id());
+    }
+    return horses.getFirst();
+  }
+
+  private static Object patchedValue(HorsePatchDto patch, HorseField field) {
+    return switch (field) {
+      case NAME -> patch.name();
+      case DESCRIPTION -> patch.description();
+      case DATE_OF_BIRTH -> patch.dateOfBirth();
+      case SEX -> patch.sex() == null ? null : patch.sex().toString();
+      case OWNER_ID -> patch.ownerId();
+      case MOTHER_ID -> patch.motherId();
+      case FATHER_ID -> patch.fatherId();
+    };
+  }
+
+  @Override
+  public Horse updateImage(long id, String imageHash, String imageType) throws NotFoundException {
+    LOG.trace("updateImage({}, {}, {})", id, imageHash, imageType);
+    int updated = jdbcClient
+        .sql(SQL_UPDATE_IMAGE)
+        .param("id", id)
+        .param("image_hash", imageHash)
+        .param("image_type", imageType)
         .update();
 
     if (updated == 0) {
       throw new NotFoundException(
-          "Could not update horse with ID " + horse.id() + ", because it does not exist"
+          "Could not update image of horse with ID " + id + ", because it does not exist"
       );
     }
+    return getById(id);
+  }
+
 
+  private Horse mapListRow(ResultSet result, int rownum) throws SQLException {
     return new Horse(
-        horse.id(),
-        horse.name(),
-        horse.description(),
-        horse.dateOfBirth(),
-        horse.sex(),
-        horse.ownerId(),
-        horse.motherId(),
-        horse.fatherId(),
-        horse.image(),
-        horse.imageType());
+        result.getLong("id"),
+        result.getString("name"),
+        result.getString("description"),
+        result.getDate("date_of_birth").toLocalDate(),
+        Sex.valueOf(result.getString("sex")),
+        result.getObject("owner_id", Long.class),
+        result.getObject("mother_id", Long.class),
+        result.getObject("father_id", Long.class),
+        null,
+        null);
   }
 
-
-  private Horse mapRow(ResultSet result, int rownum) throws SQLException {
+  private Horse mapDetailRow(ResultSet result, int rownum) throws SQLException {
     return new Horse(
         result.getLong("id"),
         result.getString("name"),
@@ -262,10 +527,75 @@ public class HorseJdbcDao implements HorseDao {
         result.getObject("owner_id", Long.class),
         result.getObject("mother_id", Long.class),
         result.getObject("father_id", Long.class),
-        result.getBytes("image"),
+        result.getString("image_hash"),
         result.getString("image_type"));
   }
 
+  private HorseWithRelations mapWithRelationsRow(ResultSet result, int rownum) throws SQLException {
+    Horse horse = mapDetailRow(result, rownum);
+    return new HorseWithRelations(
+        horse,
+        mapParentColumns(result, horse.motherId(), "mother_"),
+        mapParentColumns(result, horse.fatherId(), "father_"),
+        horse.ownerId() == null
+            ? null
+            : new Owner(
+                horse.ownerId(),
+                result.getString("owner_first_name"),
+                result.getString("owner_last_name"),
+                result.getString("owner_description")));
+  }
+
+  private Horse mapParentColumns(ResultSet result, Long parentId, String prefix) throws SQLException {
+    if (parentId == null) {
+      return null;
+    }
+    return new Horse(
+        parentId,
+        result.getString(prefix + "name"),
+        null,
+        result.getDate(prefix + "date_of_birth").toLocalDate(),
+        Sex.valueOf(result.getString(prefix + "sex")),
+        null,
+        null,
+        null,
+        null,
+        null);
+  }
+
+  private Horse mapCandidateRow(ResultSet result, int rownum) throws SQLException {
+    return new Horse(
+        result.getLong("id"),
+        result.getString("name"),
+        null,
+        result.getDate("date_of_birth").toLocalDate(),
+        Sex.valueOf(result.getString("sex")),
+        null,
+        null,
+        null,
+        null,
+        null);
+  }
+
+  private HorseLineage mapLineageRow(ResultSet result, int rownum) throws SQLException {
+    return new HorseLineage(
+        result.getLong("id"),
+        Sex.valueOf(result.getString("sex")),
+        result.getDate("date_of_birth").toLocalDate(),
+        result.getObject("mother_id", Long.class),
+        result.getObject("father_id", Long.class));
+  }
+
+  /**
+   * A row of the family query: the lineage of a relative, and its image hash, which is only used for the horse itself.
+   */
+  private record FamilyMember(HorseLineage lineage, String imageHash) {
+  }
+
+  private FamilyMember mapFamilyRow(ResultSet result, int rownum) throws SQLException {
+    return new FamilyMember(mapLineageRow(result, rownum), result.getString("image_hash"));
+  }
+
   private Horse mapRowPedigree(ResultSet result, int rownum) throws SQLException {
     return new Horse(
             result.getLong("id"),
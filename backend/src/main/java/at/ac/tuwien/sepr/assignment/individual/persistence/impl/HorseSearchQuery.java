@@ -0,0 +1,251 @@
+package at.ac.tuwien.sepr.assignment.individual.persistence.impl;
+
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseSearchCursor;
+import at.ac.tuwien.sepr.assignment.individual.type.HorseSortKey;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.springframework.jdbc.core.SqlParameterValue;
+
+/**
+ * Builder for the SQL of a paged horse search.
+ * Only the conditions that are actually given end up in the statement, and the {@code owner} table is only joined
+ * if a condition needs it, so that the optimizer can pick the index of each condition.
+ * The SQL only depends on the shape of the query (which conditions, sort key and paging), never on the values;
+ * it is rendered once per shape and cached, so every search of the same shape reuses the statement
+ * that the database and the JDBC client have already parsed.
+ */
+public final class HorseSearchQuery {
+
+  /**
+   * The columns a horse search can filter by.
+   * Case-insensitive columns hold the upper-cased value, and their condition values are upper-cased as well.
+   */
+  public enum Column {
+    ID("h.id", false),
+    NAME("h.name_upper", true),
+    DESCRIPTION("UPPER(h.description)", true),
+    DATE_OF_BIRTH("h.date_of_birth", false),
+    SEX("h.sex", false),
+    OWNER_ID("h.owner_id", false);
+
+    private final String expression;
+    private final boolean caseInsensitive;
+
+    Column(String expression, boolean caseInsensitive) {
+      this.expression = expression;
+      this.caseInsensitive = caseInsensitive;
+    }
+  }
+
+  /**
+   * The comparisons a condition can make between a column and its value.
+   */
+  public enum Operator {
+    /** The column equals the value. */
+    EQUALS,
+    /** The column is greater than or equal to the value. */
+    AT_LEAST,
+    /** The column is less than or equal to the value. */
+    AT_MOST,
+    /** The column is less than the value. */
+    LESS_THAN,
+    /** The column starts with the value. */
+    PREFIX,
+    /** The column contains the value anywhere. */
+    CONTAINS,
+    /** The column equals one of the values in a collection. */
+    IN;
+
+    private String render(String expression, String param) {
+      return switch (this) {
+        case EQUALS -> expression + " = :" + param;
+        case AT_LEAST -> expression + " >= :" + param;
+        case AT_MOST -> expression + " <= :" + param;
+        case LESS_THAN -> expression + " < :" + param;
+        case PREFIX, CONTAINS -> expression + " LIKE :" + param + " ESCAPE '\\'";
+        // one array parameter instead of one parameter per element, so the SQL does not depend on the number of elements
+        case IN -> expression + " = ANY(:" + param + ")";
+      };
+    }
+  }
+
+  private record Condition(Column column, Operator operator) {
+  }
+
+  private static final ConcurrentMap<String, String> SHAPES = new ConcurrentHashMap<>();
+
+  private static final String AFTER_NAME =
+      " AND h.name >= :afterName AND (h.name > :afterName OR h.id > :afterId)";
+
+  private static final String AFTER_DATE_OF_BIRTH =
+      " AND h.date_of_birth >= :afterDateOfBirth AND (h.date_of_birth > :afterDateOfBirth OR h.id > :afterId)";
+
+  private final String columns;
+  private final List<Condition> conditions = new ArrayList<>();
+  private final Map<String, Object> params = new HashMap<>();
+  private HorseSortKey sortKey = HorseSortKey.NAME;
+  private boolean hasCursor;
+  private boolean hasLimit;
+
+  private HorseSearchQuery(String columns) {
+    this.columns = columns;
+  }
+
+  /**
+   * Starts a search for the given columns of the horses, with the horse table aliased as {@code h}.
+   *
+   * @param columns the select list of the search
+   * @return a search without any conditions
+   */
+  public static HorseSearchQuery select(String columns) {
+    return new HorseSearchQuery(columns);
+  }
+
+  /**
+   * Adds a condition, unless its value is absent.
+   * A {@code null} value, an empty string and an empty collection count as absent,
+   * so that optional search parameters can be passed on as they are.
+   *
+   * @param column the column to compare
+   * @param operator the comparison to make
+   * @param value the value to compare to; a collection for {@link Operator#IN}
+   * @return this search
+   */
+  public HorseSearchQuery where(Column column, Operator operator, Object value) {
+    if (value == null
+        || value instanceof String string && string.isEmpty()
+        || value instanceof Collection<?> collection && collection.isEmpty()) {
+      return this;
+    }
+    String param = "p" + conditions.size();
+    conditions.add(new Condition(column, operator));
+    params.put(param, switch (operator) {
+      case PREFIX -> escapeLike(toSql(column, value)) + "%";
+      case CONTAINS -> "%" + escapeLike(toSql(column, value)) + "%";
+      case IN -> new SqlParameterValue(Types.ARRAY, ((Collection<?>) value).stream().map(element -> toSql(column, element)).toArray());
+      default -> toSql(column, value);
+    });
+    return this;
+  }
+
+  /**
+   * Restricts a column to a range, inclusive at both ends. An absent bound leaves the range open at that end.
+   *
+   * @param column the column to restrict
+   * @param from the lower bound, or {@code null}
+   * @param to the upper bound, or {@code null}
+   * @return this search
+   */
+  public HorseSearchQuery between(Column column, Object from, Object to) {
+    return where(column, Operator.AT_LEAST, from)
+        .where(column, Operator.AT_MOST, to);
+  }
+
+  /**
+   * Orders the matches by the given key and then by ID, starting right after the given position.
+   * Only the orders the database knows are possible, i.e. not {@link HorseSortKey#RELEVANCE}.
+   *
+   * @param sortKey the order of the matches
+   * @param after the position after which to start, or {@code null} to start with the first match
+   * @return this search
+   * @throws IllegalArgumentException if the order is {@link HorseSortKey#RELEVANCE}
+   */
+  public HorseSearchQuery orderBy(HorseSortKey sortKey, HorseSearchCursor after) {
+    if (sortKey == HorseSortKey.RELEVANCE) {
+      throw new IllegalArgumentException("Relevance is not known to the database, matches have to be ranked by the caller");
+    }
+    this.sortKey = sortKey;
+    this.hasCursor = after != null;
+    if (after != null) {
+      params.put("afterId", after.id());
+      if (sortKey == HorseSortKey.NAME) {
+        params.put("afterName", after.name());
+      } else {
+        params.put("afterDateOfBirth", after.dateOfBirth());
+      }
+    }
+    return this;
+  }
+
+  /**
+   * Limits the number of matches returned.
+   *
+   * @param limit the maximum number of matches
+   * @return this search
+   */
+  public HorseSearchQuery limit(int limit) {
+    this.hasLimit = true;
+    params.put("limit", limit);
+    return this;
+  }
+
+  /**
+   * The SQL of this search, with a named parameter for each value.
+   *
+   * @return the SQL of this search, shared by all searches of the same shape
+   */
+  public String sql() {
+    return SHAPES.computeIfAbsent(shape(), shape -> render());
+  }
+
+  /**
+   * The values of the named parameters in the {@link #sql() SQL} of this search.
+   *
+   * @return the parameter values, by parameter name
+   */
+  public Map<String, Object> params() {
+    return params;
+  }
+
+  private String shape() {
+    var shape = new StringBuilder(columns);
+    for (Condition condition : conditions) {
+      shape.append('|').append(condition.column()).append(' ').append(condition.operator());
+    }
+    return shape.append('|').append(sortKey)
+        .append('|').append(hasCursor)
+        .append('|').append(hasLimit)
+        .toString();
+  }
+
+  private String render() {
+    var sql = new StringBuilder("SELECT ").append(columns).append(" FROM horse h");
+    sql.append(" WHERE TRUE");
+    for (int i = 0; i < conditions.size(); i++) {
+      Condition condition = conditions.get(i);
+      sql.append(" AND ").append(condition.operator().render(condition.column().expression, "p" + i));
+    }
+    if (hasCursor) {
+      sql.append(sortKey == HorseSortKey.NAME ? AFTER_NAME : AFTER_DATE_OF_BIRTH);
+    }
+    sql.append(sortKey == HorseSortKey.NAME ? " ORDER BY h.name, h.id" : " ORDER BY h.date_of_birth, h.id");
+    if (hasLimit) {
+      sql.append(" LIMIT :limit");
+    }
+    return sql.toString();
+  }
+
+  private static Object toSql(Column column, Object value) {
+    if (value instanceof Enum<?> constant) {
+      return constant.name();
+    }
+    if (column.caseInsensitive && value instanceof String string) {
+      return string.toUpperCase(Locale.ROOT);
+    }
+    return value;
+  }
+
+  private static String escapeLike(Object value) {
+    return value.toString()
+        .replace("\\", "\\\\")
+        .replace("%", "\\%")
+        .replace("_", "\\_");
+  }
+}
@@ -10,13 +10,12 @@ import java.lang.invoke.MethodHandles;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.List;
-import java.util.Map;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Objects;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.simple.JdbcClient;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
@@ -27,7 +26,7 @@ import org.springframework.stereotype.Repository;
  * JDBC implementation of {@link OwnerDao} for interacting with the database.
  */
 @Repository
-public class OwnerJdbcDao implements OwnerDao {
+public class OwnerJdbcDao implements OwnerDao, SmartInitializingSingleton {
   private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
   private static final String TABLE_NAME = "owner";
   private static final String SQL_SELECT_BY_ID =
@@ -39,26 +38,39 @@ public class OwnerJdbcDao implements OwnerDao {
           + " WHERE id IN (:ids)";
 
   private static final String SQL_SELECT_SEARCH =
-      "SELECT * FROM " + TABLE_NAME
-          + " WHERE UPPER(first_name || ' ' || last_name) LIKE UPPER('%%' || COALESCE(:name, '') || '%%')";
+      SQL_SELECT_ALL + " ORDER BY id";
+
+  private static final String SQL_SELECT_EVERY =
+      "SELECT * FROM " + TABLE_NAME;
 
   private static final String SQL_INSERT =
           "INSERT INTO " + TABLE_NAME + " (first_name, last_name, description) "
                   + "VALUES (:first_name, :last_name, :description)";
 
-  private static final String SQL_SELECT_SEARCH_LIMIT_CLAUSE = " LIMIT :limit";
-
 
   private final JdbcClient jdbcClient;
+  private final OwnerNameIndex nameIndex;
 
   /**
    * Constructs a new {@code OwnerJdbcDao} instance with the provided {@link JdbcClient}.
    *
    * @param jdbcClient the JDBC client used to perform database operations related to owner entities.
+   * @param nameIndex the trigram index the owner names are searched in, kept in sync by this DAO.
    */
   @Autowired
-  public OwnerJdbcDao(JdbcClient jdbcClient) {
+  public OwnerJdbcDao(JdbcClient jdbcClient, OwnerNameIndex nameIndex) {
     this.jdbcClient = jdbcClient;
+    this.nameIndex = nameIndex;
+  }
+
+  /**
+   * Builds the name index from the stored owners, once the schema is migrated and the test data is loaded.
+   * This happens when all singletons are created, before the web server accepts the first request.
+   */
+  @Override
+  public void afterSingletonsInstantiated() {
+    LOG.trace("afterSingletonsInstantiated()");
+    nameIndex.rebuild(jdbcClient.sql(SQL_SELECT_EVERY).query(this::mapRow).list());
   }
 
   @Override
@@ -93,20 +105,14 @@ public class OwnerJdbcDao implements OwnerDao {
   @Override
   public Collection<Owner> search(OwnerSearchDto searchParameters) {
     LOG.trace("search({})", searchParameters);
-    var query = SQL_SELECT_SEARCH;
-
-    Map<String, Object> params = new HashMap<>();
-    params.put("name", searchParameters.name());
-
-    var maxAmount = searchParameters.maxAmount();
-    if (maxAmount != null) {
-      query += SQL_SELECT_SEARCH_LIMIT_CLAUSE;
-      params.put("limit", maxAmount);
+    // the name index resolves the substring match, so only the matching rows are read
+    List<Long> ids = nameIndex.search(searchParameters.name(), searchParameters.maxAmount());
+    if (ids.isEmpty()) {
+      return List.of();
     }
-
     return jdbcClient
-        .sql(query)
-        .params(params)
+        .sql(SQL_SELECT_SEARCH)
+        .param("ids", ids)
         .query(this::mapRow)
         .list();
   }
@@ -129,12 +135,14 @@ public class OwnerJdbcDao implements OwnerDao {
 
     Long createdId = Objects.requireNonNull(keyHolder.getKey()).longValue();
 
-    return new Owner(
+    Owner createdOwner = new Owner(
             createdId,
             owner.firstName(),
             owner.lastName(),
             owner.description()
     );
+    nameIndex.put(createdOwner);
+    return createdOwner;
   }
 
   private Owner mapRow(ResultSet resultSet, int i) throws SQLException {
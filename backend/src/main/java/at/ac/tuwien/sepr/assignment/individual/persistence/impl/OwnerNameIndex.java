@@ -0,0 +1,157 @@
+package at.ac.tuwien.sepr.assignment.individual.persistence.impl;
+
+import at.ac.tuwien.sepr.assignment.individual.entity.Owner;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory trigram index over the full names of the owners, for case-insensitive substring search.
+ * Each full name ({@code first_name || ' ' || last_name}, upper-cased) is split into all its substrings of length
+ * three. A name can only contain the searched string if it contains all trigrams of that string, so the candidates
+ * are the intersection of the owners of these trigrams; each candidate is then checked against the actual name.
+ * Candidates are visited in the order of their IDs, and the search stops as soon as enough matches are found.
+ * Search strings shorter than a trigram are matched against the names directly, again stopping early.
+ */
+@Component
+public class OwnerNameIndex {
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private static final int GRAM = 3;
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  // ID of each owner -> normalized full name, in ascending order of the IDs
+  private final NavigableMap<Long, String> names = new TreeMap<>();
+
+  // trigram -> IDs of the owners whose full name contains it, in ascending order
+  private final Map<String, NavigableSet<Long>> postings = new HashMap<>();
+
+  /**
+   * Replaces the whole content of this index.
+   *
+   * @param owners all stored owners
+   */
+  public void rebuild(Collection<Owner> owners) {
+    LOG.trace("rebuild({} owners)", owners.size());
+    lock.writeLock().lock();
+    try {
+      names.clear();
+      postings.clear();
+      owners.forEach(this::add);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Adds a newly created owner to this index.
+   *
+   * @param owner the created owner
+   */
+  public void put(Owner owner) {
+    LOG.trace("put({})", owner.id());
+    lock.writeLock().lock();
+    try {
+      add(owner);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Finds the owners whose full name contains the given string, ignoring case.
+   *
+   * @param name the string to search for; {@code null} or empty matches every owner
+   * @param maxAmount the maximum number of owners to find, or {@code null} to find all of them
+   * @return the IDs of the matching owners, in ascending order
+   */
+  public List<Long> search(String name, Integer maxAmount) {
+    LOG.trace("search({}, {})", name, maxAmount);
+    String query = name == null ? "" : normalize(name);
+    int limit = maxAmount == null ? Integer.MAX_VALUE : maxAmount;
+    List<Long> matches = new ArrayList<>();
+    if (limit <= 0) {
+      return matches;
+    }
+
+    lock.readLock().lock();
+    try {
+      if (query.length() < GRAM) {
+        for (var owner : names.entrySet()) {
+          if (owner.getValue().contains(query) && collect(matches, owner.getKey(), limit)) {
+            break;
+          }
+        }
+        return matches;
+      }
+
+      List<NavigableSet<Long>> candidates = new ArrayList<>();
+      for (String trigram : trigrams(query)) {
+        NavigableSet<Long> owners = postings.get(trigram);
+        if (owners == null) {
+          return matches;
+        }
+        candidates.add(owners);
+      }
+      // walk the rarest trigram, and only look the others up for its owners
+      candidates.sort(Comparator.comparingInt(NavigableSet::size));
+      NavigableSet<Long> rarest = candidates.getFirst();
+      List<NavigableSet<Long>> others = candidates.subList(1, candidates.size());
+      for (Long id : rarest) {
+        if (others.stream().allMatch(owners -> owners.contains(id))
+            && names.get(id).contains(query)
+            && collect(matches, id, limit)) {
+          break;
+        }
+      }
+      return matches;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Adds a match, and tells whether enough matches are found.
+   */
+  private static boolean collect(List<Long> matches, Long id, int limit) {
+    matches.add(id);
+    return matches.size() >= limit;
+  }
+
+  private void add(Owner owner) {
+    String name = normalize(owner.firstName() + " " + owner.lastName());
+    names.put(owner.id(), name);
+    for (String trigram : trigrams(name)) {
+      postings.computeIfAbsent(trigram, t -> new TreeSet<>()).add(owner.id());
+    }
+  }
+
+  private static String normalize(String name) {
+    return name.toUpperCase(Locale.ROOT);
+  }
+
+  private static Set<String> trigrams(String text) {
+    Set<String> trigrams = new LinkedHashSet<>();
+    for (int i = 0; i + GRAM <= text.length(); i++) {
+      trigrams.add(text.substring(i, i + GRAM));
+    }
+    return trigrams;
+  }
+}
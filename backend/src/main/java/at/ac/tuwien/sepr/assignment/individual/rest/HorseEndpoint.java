@@ -2,33 +2,62 @@ package at.ac.tuwien.sepr.assignment.individual.rest;
 
 
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseCreateDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseDescendantDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseSearchDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseListDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseDetailDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseImageDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseInbreedingDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorsePageDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorsePatchDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseRelationshipDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseUpdateRestDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseTreeDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseSuggestionDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.ImageCacheStatsDto;
 import at.ac.tuwien.sepr.assignment.individual.exception.NotFoundException;
 import at.ac.tuwien.sepr.assignment.individual.exception.ValidationException;
 import at.ac.tuwien.sepr.assignment.individual.exception.ConflictException;
 import at.ac.tuwien.sepr.assignment.individual.exception.FailedToCreateException;
 import at.ac.tuwien.sepr.assignment.individual.exception.FailedToDeleteException;
+import at.ac.tuwien.sepr.assignment.individual.exception.ImageTooLargeException;
+import at.ac.tuwien.sepr.assignment.individual.exception.ImageUploadException;
 import at.ac.tuwien.sepr.assignment.individual.service.HorseService;
+import at.ac.tuwien.sepr.assignment.individual.type.ParentRole;
+import at.ac.tuwien.sepr.assignment.individual.type.Sex;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.invoke.MethodHandles;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.List;
 import java.util.stream.Stream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
  * REST controller for managing horse-related operations.
@@ -40,30 +69,55 @@ import org.springframework.web.server.ResponseStatusException;
 public class HorseEndpoint {
   private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
   static final String BASE_PATH = "/horses";
+  static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+  static final String TRUNCATED_HEADER = "X-Search-Truncated";
+  static final String MERGE_PATCH_JSON_VALUE = "application/merge-patch+json";
+  private static final Duration IMMUTABLE_MAX_AGE = Duration.ofDays(365);
 
   private final HorseService service;
+  private final ObjectMapper objectMapper;
 
   /**
    * Constructs a new {@code HorseEndpoint} instance with the specified service dependency.
    *
    * @param service the {@link HorseService} used to handle business logic related to horse entities.
+   * @param objectMapper the mapper that writes the lines of streamed JSON responses.
    */
   @Autowired
-  public HorseEndpoint(HorseService service) {
+  public HorseEndpoint(HorseService service, ObjectMapper objectMapper) {
     this.service = service;
+    this.objectMapper = objectMapper;
   }
 
   /**
    * Searches for horses based on the given search parameters.
+   * The result is paged: the body holds the horses of the requested page, and if there are further matches,
+   * the {@value #NEXT_CURSOR_HEADER} response header holds the cursor to pass as {@code cursor} for the next page.
+   * If the fuzzy name search stopped early, so that matches may be missing, the {@value #TRUNCATED_HEADER} header is {@code true}.
    *
-   * @param searchParameters the parameters to filter the horse search
-   * @return a stream of {@link HorseListDto} matching the search criteria
+   * @param searchParameters the parameters to filter the horse search, including the paging parameters
+   * @return the {@link HorseListDto}s on the requested page
+   * @throws ResponseStatusException if the paging parameters or the birthdate and age ranges are invalid
    */
   @GetMapping
-  public Stream<HorseListDto> searchHorses(HorseSearchDto searchParameters) {
+  public ResponseEntity<List<HorseListDto>> searchHorses(HorseSearchDto searchParameters) {
     LOG.info("GET " + BASE_PATH);
     LOG.debug("request parameters: {}", searchParameters);
-    return service.search(searchParameters);
+    try {
+      HorsePageDto page = service.search(searchParameters);
+      var response = ResponseEntity.ok();
+      if (page.next() != null) {
+        response.header(NEXT_CURSOR_HEADER, page.next());
+      }
+      if (page.truncated()) {
+        response.header(TRUNCATED_HEADER, "true");
+      }
+      return response.body(page.horses());
+    } catch (ValidationException e) {
+      HttpStatus status = HttpStatus.BAD_REQUEST;
+      logClientError(status, "Horse search failed due to invalid search parameters", e);
+      throw new ResponseStatusException(status, e.getMessage(), e);
+    }
   }
 
   /**
@@ -86,6 +140,49 @@ public class HorseEndpoint {
   }
 
 
+  /**
+   * Streams the image of a horse, or one of its thumbnails.
+   * The response carries the image's hash (and thumbnail width) as strong ETag, so conditional requests
+   * are answered with 304, and {@code Range} requests are answered with the requested parts only.
+   * When requested through the versioned URL handed out in {@link HorseDetailDto#imageUrl()},
+   * i.e. with {@code v} matching the current image, the response may be cached forever,
+   * as a changed image gets a new URL. Any other request has to be revalidated.
+   *
+   * @param id      the unique identifier of the horse
+   * @param version (optional) the image version the client expects, as contained in the image URL
+   * @param width   (optional) the width of the requested thumbnail; the original image is returned if absent
+   * @return the image bytes with their content type
+   * @throws ResponseStatusException if the horse is not found or has no image, or the width is not supported
+   */
+  @GetMapping("{id}/image")
+  public ResponseEntity<Resource> getImage(
+      @PathVariable("id") long id,
+      @RequestParam(value = "v", required = false) String version,
+      @RequestParam(value = "w", required = false) Integer width) {
+    LOG.info("GET " + BASE_PATH + "/{}/image?w={}", id, width);
+    try {
+      HorseImageDto image = service.getImage(id, width);
+      CacheControl cacheControl = image.hash().equals(version)
+          ? CacheControl.maxAge(IMMUTABLE_MAX_AGE).cachePublic().immutable()
+          : CacheControl.noCache();
+      // Spring answers If-None-Match with 304 and Range with 206 based on these headers
+      return ResponseEntity.ok()
+          .eTag(image.width() == null ? image.hash() : image.hash() + "-w" + image.width())
+          .cacheControl(cacheControl)
+          .contentType(imageMediaType(image))
+          .header("X-Content-Type-Options", "nosniff")
+          .body(image.content());
+    } catch (NotFoundException e) {
+      HttpStatus status = HttpStatus.NOT_FOUND;
+      logClientError(status, "Horse image not found", e);
+      throw new ResponseStatusException(status, e.getMessage(), e);
+    } catch (ValidationException e) {
+      HttpStatus status = HttpStatus.BAD_REQUEST;
+      logClientError(status, "Horse image thumbnail width not supported", e);
+      throw new ResponseStatusException(status, e.getMessage(), e);
+    }
+  }
+
   /**
    * Updates the details of an existing horse, including an optional image file.
    *
@@ -112,6 +209,161 @@ public class HorseEndpoint {
     }
   }
 
+  /**
+   * Changes only the given attributes of an existing horse, following JSON Merge Patch (RFC 7396).
+   * Attributes missing from the body keep their value, attributes set to {@code null} are removed.
+   * The image cannot be patched; use {@code PUT /horses/{id}/image} instead.
+   *
+   * @param id    the ID of the horse to patch
+   * @param patch the merge patch document
+   * @return the patched horse details
+   * @throws ResponseStatusException if the horse is not found or the patch is invalid
+   */
+  @PatchMapping(path = "{id}", consumes = {MERGE_PATCH_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+  public HorseDetailDto patch(@PathVariable("id") long id, @RequestBody JsonNode patch) {
+    LOG.info("PATCH " + BASE_PATH + "/{}", id);
+    LOG.debug("Body of request:\n{}", patch);
+    try {
+      return service.patch(HorsePatchDto.fromMergePatch(id, patch));
+    } catch (NotFoundException e) {
+      HttpStatus status = HttpStatus.NOT_FOUND;
+      logClientError(status, "Horse to patch not found", e);
+      throw new ResponseStatusException(status, e.getMessage(), e);
+    } catch (ValidationException e) {
+      HttpStatus status = HttpStatus.BAD_REQUEST;
+      logClientError(status, "Horse patch failed due to incorrect data", e);
+      throw new ResponseStatusException(status, e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Suggests horses whose name starts with the given prefix, e.g. to pick the parents of a horse while typing.
+   * The suggestions only hold what tells the horses apart, and are answered without a database query.
+   *
+   * @param prefix the beginning of the name, ignoring case; absent or empty for all horses
+   * @param sex    the sex of the suggested horses; absent for horses of either sex
+   * @param limit  the maximum number of suggestions; absent for the default number (capped by the server)
+   * @return the suggested horses, in the order of their names
+   * @throws ResponseStatusException if the limit is not positive
+   */
+  @GetMapping("autocomplete")
+  public List<HorseSuggestionDto> autocomplete(@RequestParam(name = "prefix", required = false) String prefix,
+                                               @RequestParam(name = "sex", required = false) Sex sex,
+                                               @RequestParam(name = "limit", required = false) Integer limit) {
+    LOG.info("GET " + BASE_PATH + "/autocomplete");
+    LOG.debug("request parameters: prefix={}, sex={}, limit={}", prefix, sex, limit);
+    try {
+      return service.autocomplete(prefix, sex, limit);
+    } catch (ValidationException e) {
+      HttpStatus status = HttpStatus.BAD_REQUEST;
+      logClientError(status, "Horse autocomplete failed due to an invalid limit", e);
+      throw new ResponseStatusException(status, e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Suggests the horses that could be the mother or father of the given horse, e.g. to pick its parents while typing.
+   * Only horses of the right sex that are born before the horse are suggested, so every suggestion passes validation.
+   *
+   * @param id     the ID of the horse to find a parent for
+   * @param role   whether to find a mother or a father
+   * @param prefix the beginning of the name of the parent, ignoring case; absent or empty for any name
+   * @param limit  the maximum number of suggestions; absent for the default number (capped by the server)
+   * @return the eligible parents, in the order of their names
+   * @throws ResponseStatusException if the horse is not found, or the limit is not positive
+   */
+  @GetMapping("{id}/parent-candidates")
+  public List<HorseSuggestionDto> parentCandidates(@PathVariable("id") long id,
+                                                   @RequestParam(name = "role") ParentRole role,
+                                                   @RequestParam(name = "prefix", required = false) String prefix,
+                                                   @RequestParam(name = "limit", required = false) Integer limit) {
+    LOG.info("GET " + BASE_PATH + "/{}/parent-candidates", id);
+    LOG.debug("request parameters: role={}, prefix={}, limit={}", role, prefix, limit);
+    try {
+      return service.parentCandidates(id, role, prefix, limit);
+    } catch (NotFoundException e) {
+      HttpStatus status = HttpStatus.NOT_FOUND;
+      logClientError(status, "Horse to find parent candidates for not found", e);
+      throw new ResponseStatusException(status, e.getMessage(), e);
+    } catch (ValidationException e) {
+      HttpStatus status = HttpStatus.BAD_REQUEST;
+      logClientError(status, "Parent candidate search failed due to an invalid limit", e);
+      throw new ResponseStatusException(status, e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Suggests the horses that could be the mother or father of a horse that is about to be created.
+   *
+   * @param role        whether to find a mother or a father
+   * @param dateOfBirth the birthdate of the new horse; absent if it is not known yet, then only the sex is checked
+   * @param prefix      the beginning of the name of the parent, ignoring case; absent or empty for any name
+   * @param limit       the maximum number of suggestions; absent for the default number (capped by the server)
+   * @return the eligible parents, in the order of their names
+   * @throws ResponseStatusException if the limit is not positive
+   */
+  @GetMapping("parent-candidates")
+  public List<HorseSuggestionDto> parentCandidates(
+      @RequestParam(name = "role") ParentRole role,
+      @RequestParam(name = "dateOfBirth", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateOfBirth,
+      @RequestParam(name = "prefix", required = false) String prefix,
+      @RequestParam(name = "limit", required = false) Integer limit) {
+    LOG.info("GET " + BASE_PATH + "/parent-candidates");
+    LOG.debug("request parameters: role={}, dateOfBirth={}, prefix={}, limit={}", role, dateOfBirth, prefix, limit);
+    try {
+      return service.parentCandidates(role, dateOfBirth, prefix, limit);
+    } catch (ValidationException e) {
+      HttpStatus status = HttpStatus.BAD_REQUEST;
+      logClientError(status, "Parent candidate search failed due to an invalid limit", e);
+      throw new ResponseStatusException(status, e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Returns the counters of the cache horse images are served from, to judge whether its capacity fits the load.
+   *
+   * @return the hit, miss and eviction counters of the image cache
+   */
+  @GetMapping("image-cache")
+  public ImageCacheStatsDto getImageCacheStats() {
+    LOG.info("GET " + BASE_PATH + "/image-cache");
+    return service.imageCacheStats();
+  }
+
+  /**
+   * Replaces the image of a horse with the raw request body.
+   * The body is streamed into the image store without being buffered in memory, and aborted once it exceeds
+   * the maximum image size. The stored content type is determined from the image content itself.
+   *
+   * @param id    the ID of the horse whose image to replace
+   * @param image the raw image bytes of the request body
+   * @return the updated horse details, including the new image URL
+   * @throws ResponseStatusException if the horse is not found, the body is not a supported image, is too large or breaks off
+   */
+  @PutMapping(path = "{id}/image", consumes = {"image/*", MediaType.APPLICATION_OCTET_STREAM_VALUE})
+  public HorseDetailDto updateImage(@PathVariable("id") long id, InputStream image) {
+    LOG.info("PUT " + BASE_PATH + "/{}/image", id);
+    try {
+      return service.updateImage(id, image);
+    } catch (NotFoundException e) {
+      HttpStatus status = HttpStatus.NOT_FOUND;
+      logClientError(status, "Horse to update image of not found", e);
+      throw new ResponseStatusException(status, e.getMessage(), e);
+    } catch (ValidationException e) {
+      HttpStatus status = HttpStatus.BAD_REQUEST;
+      logClientError(status, "Horse image update failed due to unsupported image format", e);
+      throw new ResponseStatusException(status, e.getMessage(), e);
+    } catch (ImageTooLargeException e) {
+      HttpStatus status = HttpStatus.PAYLOAD_TOO_LARGE;
+      logClientError(status, "Horse image update failed due to image size", e);
+      throw new ResponseStatusException(status, e.getMessage(), e);
+    } catch (ImageUploadException e) {
+      HttpStatus status = HttpStatus.BAD_REQUEST;
+      logClientError(status, "Horse image update failed due to an incomplete upload", e);
+      throw new ResponseStatusException(status, e.getMessage(), e);
+    }
+  }
+
 
   /**
    * Creates a new horse in the system.
@@ -197,6 +449,122 @@ public class HorseEndpoint {
     }
   }
 
+  /**
+   * Streams the descendants (progeny) of the horse with the given ID as newline-delimited JSON,
+   * one {@link HorseDescendantDto} per line, generation by generation.
+   * Each generation is sent as soon as it is read, so clients can show the first generations
+   * while the later ones of a large progeny are still being read.
+   *
+   * @param id the unique identifier of the horse
+   * @param maxGenerations (optional) how many generations of descendants to fetch.
+   * @return the response streaming the descendants
+   */
+  @GetMapping(path = "/{id}/descendants", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public ResponseEntity<StreamingResponseBody> getDescendants(
+      @PathVariable("id") long id,
+      @RequestParam(value = "maxGenerations", required = false) Integer maxGenerations
+  ) {
+    LOG.info("GET " + BASE_PATH + "/{}/descendants", id);
+    try {
+      Stream<HorseDescendantDto> descendants = service.getDescendants(id, maxGenerations);
+      StreamingResponseBody body = output -> writeDescendants(descendants, output);
+      return ResponseEntity.ok()
+          .contentType(MediaType.APPLICATION_NDJSON)
+          .body(body);
+    } catch (NotFoundException e) {
+      HttpStatus status = HttpStatus.NOT_FOUND;
+      logClientError(status, "Descendants fetch failed: Horse not found", e);
+      throw new ResponseStatusException(status, e.getMessage(), e);
+    } catch (ValidationException e) {
+      HttpStatus status = HttpStatus.BAD_REQUEST;
+      logClientError(status, "Descendants fetch failed", e);
+      throw new ResponseStatusException(status, e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Returns the coefficient of inbreeding (COI) of the horse with the given ID.
+   *
+   * @param id the unique identifier of the horse
+   * @return the coefficient of inbreeding of the horse
+   * @throws ResponseStatusException if the horse is not found
+   */
+  @GetMapping("/{id}/inbreeding")
+  public HorseInbreedingDto getInbreeding(@PathVariable("id") long id) {
+    LOG.info("GET " + BASE_PATH + "/{}/inbreeding", id);
+    try {
+      return service.getInbreeding(id);
+    } catch (NotFoundException e) {
+      HttpStatus status = HttpStatus.NOT_FOUND;
+      logClientError(status, "Inbreeding fetch failed: Horse not found", e);
+      throw new ResponseStatusException(status, e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Returns the coefficients of inbreeding (COI) of all horses, computed in one batch, the most inbred horses first.
+   *
+   * @return the coefficients of inbreeding of all horses
+   */
+  @GetMapping("/inbreeding")
+  public Stream<HorseInbreedingDto> allInbreeding() {
+    LOG.info("GET " + BASE_PATH + "/inbreeding");
+    return service.allInbreeding();
+  }
+
+  /**
+   * Returns how the two horses with the given IDs are related.
+   *
+   * @param id the unique identifier of the one horse
+   * @param otherId the unique identifier of the other horse
+   * @return the nearest common ancestors of the horses, the path between them, and their kinship coefficient
+   * @throws ResponseStatusException if one of the horses is not found, or both IDs are the same
+   */
+  @GetMapping("/{id}/relationship/{otherId}")
+  public HorseRelationshipDto getRelationship(@PathVariable("id") long id, @PathVariable("otherId") long otherId) {
+    LOG.info("GET " + BASE_PATH + "/{}/relationship/{}", id, otherId);
+    try {
+      return service.getRelationship(id, otherId);
+    } catch (NotFoundException e) {
+      HttpStatus status = HttpStatus.NOT_FOUND;
+      logClientError(status, "Relationship fetch failed: Horse not found", e);
+      throw new ResponseStatusException(status, e.getMessage(), e);
+    } catch (ValidationException e) {
+      HttpStatus status = HttpStatus.BAD_REQUEST;
+      logClientError(status, "Relationship fetch failed", e);
+      throw new ResponseStatusException(status, e.getMessage(), e);
+    }
+  }
+
+  private void writeDescendants(Stream<HorseDescendantDto> descendants, OutputStream output) throws IOException {
+    try (descendants) {
+      Iterator<HorseDescendantDto> iterator = descendants.iterator();
+      int generation = 1;
+      while (iterator.hasNext()) {
+        HorseDescendantDto descendant = iterator.next();
+        // flushed once per generation rather than per line, so a generation goes out in as few writes as possible
+        if (descendant.generation() != generation) {
+          output.flush();
+          generation = descendant.generation();
+        }
+        output.write(objectMapper.writeValueAsBytes(descendant));
+        output.write('\n');
+      }
+    }
+  }
+
+
+  private MediaType imageMediaType(HorseImageDto image) {
+    if (image.contentType() == null) {
+      return MediaType.APPLICATION_OCTET_STREAM;
+    }
+    try {
+      return MediaType.parseMediaType(image.contentType());
+    } catch (InvalidMediaTypeException e) {
+      LOG.warn("Image {} has an invalid content type {}", image.hash(), image.contentType());
+      return MediaType.APPLICATION_OCTET_STREAM;
+    }
+  }
 
   /**
    * Logs client-side errors with relevant details.
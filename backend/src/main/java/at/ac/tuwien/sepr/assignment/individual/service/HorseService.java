@@ -2,14 +2,29 @@ package at.ac.tuwien.sepr.assignment.individual.service;
 
 
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseCreateDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseDescendantDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseListDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseDetailDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseImageDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseInbreedingDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorsePageDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorsePatchDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseRelationshipDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseUpdateDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseTreeDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseSearchDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseSuggestionDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.ImageCacheStatsDto;
 import at.ac.tuwien.sepr.assignment.individual.exception.ConflictException;
+import at.ac.tuwien.sepr.assignment.individual.exception.ImageTooLargeException;
+import at.ac.tuwien.sepr.assignment.individual.exception.ImageUploadException;
 import at.ac.tuwien.sepr.assignment.individual.exception.NotFoundException;
 import at.ac.tuwien.sepr.assignment.individual.exception.ValidationException;
+import at.ac.tuwien.sepr.assignment.individual.type.ParentRole;
+import at.ac.tuwien.sepr.assignment.individual.type.Sex;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.util.List;
 import java.util.stream.Stream;
 
 /**
@@ -37,6 +52,33 @@ public interface HorseService {
    */
   HorseDetailDto update(HorseUpdateDto horse) throws NotFoundException, ValidationException, ConflictException;
 
+  /**
+   * Changes only the attributes of a horse that are present in {@code patch}.
+   * Only what the patched attributes can affect is validated, so that e.g. changing the description
+   * neither loads nor checks the horse's parents and children.
+   *
+   * @param patch the attributes to change
+   * @return the patched horse
+   * @throws NotFoundException if the horse with given ID does not exist in the persistent data store
+   * @throws ValidationException if the patched attributes are in themselves incorrect, or do not fit the horse's relatives
+   */
+  HorseDetailDto patch(HorsePatchDto patch) throws NotFoundException, ValidationException;
+
+  /**
+   * Replaces the image of the horse with the given ID by the image read from {@code image}.
+   * The image is streamed into the image store, so memory use does not depend on the image size.
+   * Its format is determined from its content; the MIME type claimed by the client is not trusted.
+   *
+   * @param id the ID of the horse whose image to replace
+   * @param image the stream to read the new image from
+   * @return the updated horse
+   * @throws NotFoundException if the horse with given ID does not exist in the persistent data store
+   * @throws ValidationException if the content is not an image in one of the supported formats
+   * @throws ImageTooLargeException if the image is larger than the maximum image size
+   * @throws ImageUploadException if the image could not be read from the client
+   */
+  HorseDetailDto updateImage(long id, InputStream image) throws NotFoundException, ValidationException, ImageTooLargeException, ImageUploadException;
+
 
   /**
    * Get the horse with given ID, with more detail information.
@@ -49,6 +91,67 @@ public interface HorseService {
    */
   HorseDetailDto getById(long id) throws NotFoundException;
 
+  /**
+   * Get the image of the horse with the given ID, or a thumbnail of it, ready to be streamed.
+   * Thumbnails are only available in a fixed set of widths; a missing thumbnail is generated on demand.
+   *
+   * @param id the ID of the horse whose image to get
+   * @param width the width of the requested thumbnail, or {@code null} for the original image
+   * @return the image of the horse with ID {@code id}
+   * @throws NotFoundException if the horse does not exist, or if it has no image
+   * @throws ValidationException if thumbnails are not available in the requested width
+   */
+  HorseImageDto getImage(long id, Integer width) throws NotFoundException, ValidationException;
+
+  /**
+   * Suggests horses whose name starts with the given prefix, ignoring case, in the order of their names.
+   * The suggestions are answered from memory, without querying the persistent data store.
+   *
+   * @param prefix the beginning of the name; {@code null} or empty for all horses
+   * @param sex the sex of the suggested horses, or {@code null} for horses of either sex
+   * @param limit the maximum number of suggestions, or {@code null} for the default number (capped by the server)
+   * @return the suggested horses
+   * @throws ValidationException if the limit is not positive
+   */
+  List<HorseSuggestionDto> autocomplete(String prefix, Sex sex, Integer limit) throws ValidationException;
+
+  /**
+   * Suggests the horses that could be the given parent of an existing horse, i.e. the horses of the sex of that role
+   * which are born before the horse. These are exactly the parents that pass the validation of the horse,
+   * so the suggestions never lead to a rejected update.
+   *
+   * @param id the ID of the horse to find a parent for
+   * @param role whether to find a mother or a father
+   * @param prefix the beginning of the name of the parent, ignoring case; {@code null} or empty for any name
+   * @param limit the maximum number of suggestions, or {@code null} for the default number (capped by the server)
+   * @return the eligible parents, in the order of their names
+   * @throws NotFoundException if the horse does not exist
+   * @throws ValidationException if the limit is not positive
+   */
+  List<HorseSuggestionDto> parentCandidates(long id, ParentRole role, String prefix, Integer limit)
+      throws NotFoundException, ValidationException;
+
+  /**
+   * Suggests the horses that could be the given parent of a horse that is not created yet, i.e. the horses
+   * of the sex of that role which are born before the given date.
+   *
+   * @param role whether to find a mother or a father
+   * @param dateOfBirth the birthdate of the new horse, or {@code null} if it is not known yet
+   * @param prefix the beginning of the name of the parent, ignoring case; {@code null} or empty for any name
+   * @param limit the maximum number of suggestions, or {@code null} for the default number (capped by the server)
+   * @return the eligible parents, in the order of their names
+   * @throws ValidationException if the limit is not positive
+   */
+  List<HorseSuggestionDto> parentCandidates(ParentRole role, LocalDate dateOfBirth, String prefix, Integer limit)
+      throws ValidationException;
+
+  /**
+   * Get the counters of the cache the horse images are served from.
+   *
+   * @return the current hit, miss and eviction counters of the image cache
+   */
+  ImageCacheStatsDto imageCacheStats();
+
 
   /**
    * Creates a new horse in the persistent data store.
@@ -79,18 +182,25 @@ public interface HorseService {
    * The search criteria are specified in a {@link HorseSearchDto}. Each field in the DTO is optional;
    * if a field is null, that criterion will not be applied. The supported criteria are:
    * <ul>
-   *   <li><b>Name:</b> A case-insensitive partial match against the horse's name.</li>
-   *   <li><b>Description:</b> A case-insensitive partial match against the horse's description.</li>
+   *   <li><b>Name:</b> A case-insensitive partial match against the horse's name. If fuzzy matching is requested,
+   *       the whole name may instead contain a few typos or just sound alike, and the closest names come first.</li>
+   *   <li><b>Description:</b> Words that the horse's description has to contain, case-insensitively;
+   *       the last word may be incomplete. Unless another order is requested, the best matches come first.</li>
    *   <li><b>Date of Birth:</b> Returns horses that have the specified date of birth.</li>
+   *   <li><b>Birthdate and age ranges:</b> Returns horses born within the given dates, and aged within the given years.</li>
    *   <li><b>Sex:</b> An exact match against the horse's sex.</li>
    *   <li><b>Owner Name:</b> A case-insensitive partial match against the owner's full name (concatenation of first and last name).</li>
    * </ul>
-   * If no criteria are provided, all horses will be returned.
+   * If no criteria are provided, all horses match.
+   * The matches are returned page by page, ordered by the requested sort key and then by ID.
+   * A page holds at most the requested number of horses, which is capped by the server.
+   * The cursor of the returned page is used to request the following page.
    *
-   * @param searchParameters the DTO containing the search filters
-   * @return a stream of {@link HorseListDto} objects representing the horses that match the specified criteria
+   * @param searchParameters the DTO containing the search filters and the paging parameters
+   * @return a {@link HorsePageDto} with the horses on the requested page and the cursor of the next page
+   * @throws ValidationException if the paging parameters are invalid (e.g., non-positive limit, malformed cursor)
    */
-  Stream<HorseListDto> search(HorseSearchDto searchParameters);
+  HorsePageDto search(HorseSearchDto searchParameters) throws ValidationException;
 
   /**
    * Retrieves the pedigree (family tree) of the horse with the given ID.
@@ -108,4 +218,50 @@ public interface HorseService {
    * @throws ValidationException if the provided generation limit is invalid (e.g., negative).
    */
   HorseTreeDto getPedigree(long id, Integer maxGenerations) throws NotFoundException, ValidationException;
+
+  /**
+   * Retrieves the progeny of the horse with the given ID: its children, their children, and so on.
+   * The descendants come one generation after the other, each generation ordered by birthdate.
+   * The horse itself is checked and the arguments are validated right away, whereas the descendants are only
+   * read from the persistent data store one generation at a time, while the stream is consumed;
+   * so the whole progeny is never held in memory at once. A horse descending on several lines is only included
+   * in the first generation it belongs to.
+   *
+   * @param id the unique identifier of the horse whose descendants are to be retrieved.
+   * @param maxGenerations the maximum number of descendant generations to include;
+   *                       if null, all generations are included.
+   * @return a stream of the descendants, in generation order.
+   * @throws NotFoundException if no horse with the given ID exists in the persistent data store.
+   * @throws ValidationException if the provided generation limit is invalid (e.g., negative).
+   */
+  Stream<HorseDescendantDto> getDescendants(long id, Integer maxGenerations) throws NotFoundException, ValidationException;
+
+  /**
+   * Computes the coefficient of inbreeding (COI) of the horse with the given ID from its whole pedigree.
+   *
+   * @param id the unique identifier of the horse.
+   * @return the coefficient of inbreeding of the horse.
+   * @throws NotFoundException if no horse with the given ID exists in the persistent data store.
+   */
+  HorseInbreedingDto getInbreeding(long id) throws NotFoundException;
+
+  /**
+   * Computes the coefficients of inbreeding (COI) of all horses in one batch.
+   *
+   * @return the coefficients of inbreeding of all horses, the most inbred horses first.
+   */
+  Stream<HorseInbreedingDto> allInbreeding();
+
+  /**
+   * Finds out how two horses are related: their nearest common ancestors with the number of generations
+   * to each of the horses, the path from one horse to the other through the nearest common ancestor,
+   * and the kinship coefficient of the horses.
+   *
+   * @param id the unique identifier of the one horse.
+   * @param otherId the unique identifier of the other horse.
+   * @return the relationship of the two horses.
+   * @throws NotFoundException if one of the horses does not exist in the persistent data store.
+   * @throws ValidationException if both IDs are the same.
+   */
+  HorseRelationshipDto getRelationship(long id, long otherId) throws NotFoundException, ValidationException;
 }
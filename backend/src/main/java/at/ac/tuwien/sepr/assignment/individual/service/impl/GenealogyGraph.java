@@ -0,0 +1,359 @@
+package at.ac.tuwien.sepr.assignment.individual.service.impl;
+
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseTreeDto;
+import at.ac.tuwien.sepr.assignment.individual.entity.Horse;
+import at.ac.tuwien.sepr.assignment.individual.type.Sex;
+import java.lang.invoke.MethodHandles;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.IntStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory graph of the lineage of all horses, so that pedigrees are walked without querying the database.
+ * Each horse gets a dense index, and its attributes are kept in primitive arrays at that index: the indexes of its
+ * mother and father, its birthdate as epoch day, and its sex as a bit. Walking to a parent is a single array access.
+ * Readers work on an immutable {@link Snapshot}, which is replaced as a whole by every change, so a reader never sees
+ * a change half applied. New horses are appended behind the end of the current snapshot, which its readers never look
+ * at, so creating a horse does not copy anything; changing or deleting a horse only copies the arrays whose value
+ * for that horse changes, and leaves the snapshot as it is if none does, e.g. if only the description changed.
+ * Indexes are not reused: a deleted horse is only marked as deleted, and references to it are treated as absent,
+ * just like the database sets them to {@code null}.
+ * Whatever is derived from the lineage, like the inbreeding coefficients, can register a {@link LineageListener}
+ * to learn when the parents of a horse that is already in the graph change.
+ */
+@Component
+public class GenealogyGraph implements HorseIndex {
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  /** The index of a horse that is not in the graph, e.g. the parent of a horse without that parent. */
+  static final int NONE = -1;
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  private volatile Snapshot snapshot = new Snapshot(new ConcurrentHashMap<>(), 0, INITIAL_CAPACITY);
+
+  private final List<LineageListener> lineageListeners = new CopyOnWriteArrayList<>();
+
+  /**
+   * Gets notified whenever the lineage of horses in the graph changes.
+   * Adding a horse is no such change, as no horse that was already in the graph can descend from it.
+   */
+  interface LineageListener {
+
+    /**
+     * Called after the parents of a horse changed, or the horse was deleted, which changes the lineage of the horse
+     * and of all its descendants.
+     *
+     * @param before the snapshot before the change, in which the descendants of the horse can still be found
+     * @param index the index of the horse whose parents changed, or {@link #NONE} if the whole graph was rebuilt
+     */
+    void lineageChanged(Snapshot before, int index);
+  }
+
+  /**
+   * An immutable state of the graph. All horses below its size are fixed for the lifetime of the snapshot.
+   */
+  static final class Snapshot {
+    // ID -> index of all horses of this and later snapshots, up to the next rebuild; it only ever grows
+    private final Map<Long, Integer> indexes;
+    private final int size;
+    private final long[] ids;
+    private final int[] mothers;
+    private final int[] fathers;
+    private final int[] births;
+    private final String[] names;
+    private final long[] males;
+    private final long[] deleted;
+    // the horses of this snapshot ordered by birthdate, computed when first needed
+    private volatile int[] birthOrder;
+
+    private Snapshot(Map<Long, Integer> indexes, int size, int capacity) {
+      this(indexes, size, new long[capacity], new int[capacity], new int[capacity], new int[capacity], new String[capacity],
+          new long[words(capacity)], new long[words(capacity)]);
+    }
+
+    private Snapshot(Map<Long, Integer> indexes, int size, long[] ids, int[] mothers, int[] fathers, int[] births,
+                     String[] names, long[] males, long[] deleted) {
+      this.indexes = indexes;
+      this.size = size;
+      this.ids = ids;
+      this.mothers = mothers;
+      this.fathers = fathers;
+      this.births = births;
+      this.names = names;
+      this.males = males;
+      this.deleted = deleted;
+    }
+
+    /**
+     * Looks up the index of a horse.
+     *
+     * @param id the ID of the horse
+     * @return the index of the horse, or {@link #NONE} if it is not in this snapshot
+     */
+    int indexOf(long id) {
+      Integer index = indexes.get(id);
+      return index == null || !contains(index) ? NONE : index;
+    }
+
+    int mother(int index) {
+      return parent(mothers[index]);
+    }
+
+    int father(int index) {
+      return parent(fathers[index]);
+    }
+
+    long id(int index) {
+      return ids[index];
+    }
+
+    String name(int index) {
+      return names[index];
+    }
+
+    int epochDayOfBirth(int index) {
+      return births[index];
+    }
+
+    Sex sex(int index) {
+      return isSet(males, index) ? Sex.MALE : Sex.FEMALE;
+    }
+
+    /**
+     * Lists the horses of this snapshot by birthdate, and by index among horses born on the same day.
+     * As a horse is born after its parents, every horse comes after its parents, i.e. this is a topological order
+     * of the lineage.
+     *
+     * @return the indexes of all horses of this snapshot, ordered by birthdate; not to be modified
+     */
+    int[] birthOrder() {
+      int[] order = birthOrder;
+      if (order == null) {
+        order = IntStream.range(0, size)
+            .filter(index -> !isSet(deleted, index))
+            .boxed()
+            .sorted(Comparator.comparingInt((Integer index) -> births[index]).thenComparingInt(index -> index))
+            .mapToInt(Integer::intValue)
+            .toArray();
+        birthOrder = order;
+      }
+      return order;
+    }
+
+    private int parent(int index) {
+      return index != NONE && contains(index) ? index : NONE;
+    }
+
+    private boolean contains(int index) {
+      return index < size && !isSet(deleted, index);
+    }
+
+    private HorseTreeDto tree(int index, int generations) {
+      HorseTreeDto mother = null;
+      HorseTreeDto father = null;
+      if (generations > 0) {
+        int motherIndex = mother(index);
+        int fatherIndex = father(index);
+        mother = motherIndex == NONE ? null : tree(motherIndex, generations - 1);
+        father = fatherIndex == NONE ? null : tree(fatherIndex, generations - 1);
+      }
+      return new HorseTreeDto(id(index), name(index), LocalDate.ofEpochDay(epochDayOfBirth(index)), sex(index), mother, father);
+    }
+  }
+
+  /**
+   * Returns the current state of the graph. Everything read from one snapshot is consistent,
+   * so a walk through the graph should take the snapshot once and stick to it.
+   *
+   * @return the current snapshot
+   */
+  Snapshot snapshot() {
+    return snapshot;
+  }
+
+  /**
+   * Registers a listener to be notified of every change to the lineage of the horses in the graph.
+   *
+   * @param listener the listener to notify
+   */
+  void addLineageListener(LineageListener listener) {
+    lineageListeners.add(listener);
+  }
+
+  /**
+   * Builds the pedigree of a horse, i.e. the horse with its ancestors, from the current snapshot.
+   *
+   * @param id the ID of the horse
+   * @param maxGenerations the number of ancestor generations to include, or {@code null} for all of them
+   * @return the pedigree of the horse, or {@code null} if there is no horse with that ID
+   */
+  public HorseTreeDto pedigree(long id, Integer maxGenerations) {
+    LOG.trace("pedigree({}, {})", id, maxGenerations);
+    Snapshot graph = snapshot;
+    int index = graph.indexOf(id);
+    if (index == NONE) {
+      return null;
+    }
+    return graph.tree(index, maxGenerations == null ? Integer.MAX_VALUE : maxGenerations);
+  }
+
+  @Override
+  public synchronized void rebuild(Collection<Horse> horses) {
+    LOG.trace("rebuild({} horses)", horses.size());
+    var next = new Snapshot(new ConcurrentHashMap<>(), horses.size(), Math.max(INITIAL_CAPACITY, horses.size()));
+    int index = 0;
+    for (Horse horse : horses) {
+      next.indexes.put(horse.id(), index++);
+    }
+    // parents are only resolved once all horses have their index, as they may come after their children
+    index = 0;
+    for (Horse horse : horses) {
+      write(next, index++, horse);
+    }
+    Snapshot before = snapshot;
+    snapshot = next;
+    lineageListeners.forEach(listener -> listener.lineageChanged(before, NONE));
+  }
+
+  @Override
+  public synchronized void put(Horse horse) {
+    LOG.trace("put({})", horse.id());
+    Snapshot current = snapshot;
+    Integer existing = current.indexes.get(horse.id());
+    if (existing != null && existing < current.size) {
+      update(current, existing, horse);
+      return;
+    }
+    Snapshot next = current.size < current.ids.length
+        ? new Snapshot(current.indexes, current.size + 1, current.ids, current.mothers, current.fathers, current.births,
+            current.names, current.males, current.deleted)
+        : copy(current, current.size + 1, current.ids.length * 2);
+    int index = current.size;
+    next.indexes.put(horse.id(), index);
+    write(next, index, horse);
+    snapshot = next;
+  }
+
+  @Override
+  public synchronized void remove(long id) {
+    LOG.trace("remove({})", id);
+    Snapshot current = snapshot;
+    int index = current.indexOf(id);
+    if (index == NONE) {
+      return;
+    }
+    long[] deleted = current.deleted.clone();
+    set(deleted, index, true);
+    snapshot = new Snapshot(current.indexes, current.size, current.ids, current.mothers, current.fathers, current.births,
+        current.names, current.males, deleted);
+    lineageListeners.forEach(listener -> listener.lineageChanged(current, index));
+  }
+
+  private void update(Snapshot current, int index, Horse horse) {
+    int mother = indexOf(current, horse.motherId());
+    int father = indexOf(current, horse.fatherId());
+    int birth = Math.toIntExact(horse.dateOfBirth().toEpochDay());
+    boolean male = horse.sex() == Sex.MALE;
+    boolean lineageChanged = mother != current.mothers[index] || father != current.fathers[index];
+    boolean birthChanged = birth != current.births[index];
+    boolean wasDeleted = isSet(current.deleted, index);
+    boolean nameChanged = !horse.name().equals(current.names[index]);
+    boolean sexChanged = male != isSet(current.males, index);
+    if (!lineageChanged && !birthChanged && !wasDeleted && !nameChanged && !sexChanged) {
+      return;
+    }
+
+    int[] mothers = current.mothers;
+    int[] fathers = current.fathers;
+    if (lineageChanged) {
+      mothers = mothers.clone();
+      mothers[index] = mother;
+      fathers = fathers.clone();
+      fathers[index] = father;
+    }
+    int[] births = current.births;
+    if (birthChanged) {
+      births = births.clone();
+      births[index] = birth;
+    }
+    String[] names = current.names;
+    if (nameChanged) {
+      names = names.clone();
+      names[index] = horse.name();
+    }
+    long[] males = current.males;
+    if (sexChanged) {
+      males = males.clone();
+      set(males, index, male);
+    }
+    long[] deleted = current.deleted;
+    if (wasDeleted) {
+      deleted = deleted.clone();
+      clear(deleted, index);
+    }
+    var next = new Snapshot(current.indexes, current.size, current.ids, mothers, fathers, births, names, males, deleted);
+    if (!birthChanged && !wasDeleted) {
+      // the same horses with the same birthdates, so the same order
+      next.birthOrder = current.birthOrder;
+    }
+    snapshot = next;
+    if (lineageChanged) {
+      lineageListeners.forEach(listener -> listener.lineageChanged(current, index));
+    }
+  }
+
+  private static Snapshot copy(Snapshot current, int size, int capacity) {
+    return new Snapshot(current.indexes, size,
+        Arrays.copyOf(current.ids, capacity),
+        Arrays.copyOf(current.mothers, capacity),
+        Arrays.copyOf(current.fathers, capacity),
+        Arrays.copyOf(current.births, capacity),
+        Arrays.copyOf(current.names, capacity),
+        Arrays.copyOf(current.males, words(capacity)),
+        Arrays.copyOf(current.deleted, words(capacity)));
+  }
+
+  private static void write(Snapshot graph, int index, Horse horse) {
+    graph.ids[index] = horse.id();
+    graph.mothers[index] = indexOf(graph, horse.motherId());
+    graph.fathers[index] = indexOf(graph, horse.fatherId());
+    graph.births[index] = Math.toIntExact(horse.dateOfBirth().toEpochDay());
+    graph.names[index] = horse.name();
+    set(graph.males, index, horse.sex() == Sex.MALE);
+  }
+
+  private static int indexOf(Snapshot graph, Long id) {
+    Integer index = id == null ? null : graph.indexes.get(id);
+    return index == null ? NONE : index;
+  }
+
+  private static int words(int bits) {
+    return (bits + Long.SIZE - 1) / Long.SIZE;
+  }
+
+  private static boolean isSet(long[] bits, int index) {
+    return (bits[index / Long.SIZE] & 1L << index) != 0;
+  }
+
+  private static void set(long[] bits, int index, boolean value) {
+    if (value) {
+      bits[index / Long.SIZE] |= 1L << index;
+    } else {
+      clear(bits, index);
+    }
+  }
+
+  private static void clear(long[] bits, int index) {
+    bits[index / Long.SIZE] &= ~(1L << index);
+  }
+}
@@ -0,0 +1,163 @@
+package at.ac.tuwien.sepr.assignment.individual.service.impl;
+
+import at.ac.tuwien.sepr.assignment.individual.entity.Horse;
+import java.lang.invoke.MethodHandles;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Inverted index over the words of the horse descriptions.
+ * A search term matches the words it equals, and, with less weight, the words it is a prefix of, so that
+ * a search can be issued while the term is still being typed. All terms of a search have to match.
+ * Matches are ranked by tf-idf: words that occur often in a description, but in few descriptions overall,
+ * count the most. Only the words starting with a search term are looked at, so a search takes the same time
+ * however many horses there are, as long as the number of matches stays the same.
+ */
+@Component
+public class HorseDescriptionIndex implements HorseIndex {
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  /** Weight of a word that a search term is a prefix of, relative to a word that equals the term. */
+  private static final double PREFIX_WEIGHT = 0.5;
+
+  private static final Pattern WORD_SEPARATOR = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  // word -> ID of each horse whose description contains it -> number of occurrences in that description
+  private final NavigableMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+
+  // ID of each indexed horse -> words of its description, so that removing a horse does not scan all words
+  private final Map<Long, Map<String, Integer>> documents = new HashMap<>();
+
+  @Override
+  public void rebuild(Collection<Horse> horses) {
+    LOG.trace("rebuild({} horses)", horses.size());
+    lock.writeLock().lock();
+    try {
+      postings.clear();
+      documents.clear();
+      horses.forEach(this::add);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void put(Horse horse) {
+    LOG.trace("put({})", horse.id());
+    lock.writeLock().lock();
+    try {
+      removeDocument(horse.id());
+      add(horse);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void remove(long id) {
+    LOG.trace("remove({})", id);
+    lock.writeLock().lock();
+    try {
+      removeDocument(id);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Searches the descriptions for all words of the given query.
+   *
+   * @param query the words to search for, the last of which may still be incomplete
+   * @return the relevance of each matching horse, by horse ID; empty if nothing matches, or the query has no words
+   */
+  public Map<Long, Double> search(String query) {
+    LOG.trace("search({})", query);
+    List<String> terms = words(query).distinct().toList();
+    Map<Long, Double> scores = new HashMap<>();
+    if (terms.isEmpty()) {
+      return scores;
+    }
+
+    lock.readLock().lock();
+    try {
+      for (int i = 0; i < terms.size(); i++) {
+        Map<Long, Double> termScores = score(terms.get(i));
+        if (i == 0) {
+          scores.putAll(termScores);
+        } else {
+          scores.keySet().retainAll(termScores.keySet());
+          scores.replaceAll((id, score) -> score + termScores.get(id));
+        }
+        if (scores.isEmpty()) {
+          break;
+        }
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    return scores;
+  }
+
+  /**
+   * Scores all descriptions containing a word that equals or starts with the term.
+   * If a description contains several such words, the best of them counts.
+   */
+  private Map<Long, Double> score(String term) {
+    Map<Long, Double> scores = new HashMap<>();
+    for (var word : postings.subMap(term, true, term + Character.MAX_VALUE, false).entrySet()) {
+      double weight = word.getKey().equals(term) ? 1.0 : PREFIX_WEIGHT;
+      double idf = Math.log(1.0 + (double) documents.size() / word.getValue().size());
+      word.getValue().forEach((id, occurrences) ->
+          scores.merge(id, weight * (1.0 + Math.log(occurrences)) * idf, Math::max));
+    }
+    return scores;
+  }
+
+  private void add(Horse horse) {
+    if (horse.description() == null) {
+      return;
+    }
+    Map<String, Integer> words = new HashMap<>();
+    words(horse.description()).forEach(word -> words.merge(word, 1, Integer::sum));
+    if (words.isEmpty()) {
+      return;
+    }
+    documents.put(horse.id(), words);
+    words.forEach((word, occurrences) ->
+        postings.computeIfAbsent(word, w -> new HashMap<>()).put(horse.id(), occurrences));
+  }
+
+  private void removeDocument(long id) {
+    Map<String, Integer> words = documents.remove(id);
+    if (words == null) {
+      return;
+    }
+    for (String word : words.keySet()) {
+      Map<Long, Integer> horses = postings.get(word);
+      horses.remove(id);
+      if (horses.isEmpty()) {
+        postings.remove(word);
+      }
+    }
+  }
+
+  private static Stream<String> words(String text) {
+    return Arrays.stream(WORD_SEPARATOR.split(text.toLowerCase(Locale.ROOT)))
+        .filter(word -> !word.isEmpty());
+  }
+}
@@ -0,0 +1,272 @@
+package at.ac.tuwien.sepr.assignment.individual.service.impl;
+
+import at.ac.tuwien.sepr.assignment.individual.entity.Horse;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Index over the horse names for searches that tolerate typos.
+ * The distinct names are kept in a BK-tree: each child of a name is stored under its edit distance to that name,
+ * so by the triangle inequality a search only has to descend into the children whose distance is within the
+ * tolerated number of edits of the distance to the searched name, and skips the rest of the tree.
+ * Besides, the names are indexed by their Soundex key, so that names which sound alike are found even if they
+ * are spelled too differently. A search compares at most {@value #MAX_COMPARISONS} names, so it takes a bounded
+ * time however many names there are; beyond that, the remaining part of the tree is not searched, and the matches
+ * are marked as truncated. A horse with exactly the searched name is always found, as its node is looked up directly.
+ */
+@Component
+public class HorseFuzzyNameIndex implements HorseIndex {
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  /** Upper bound for the number of names a search compares the searched name to. */
+  public static final int MAX_COMPARISONS = 20_000;
+
+  private static final Pattern NON_LETTERS = Pattern.compile("[^\\p{L}]+");
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  private Node root;
+
+  // normalized name -> its node in the tree; nodes stay when their last horse is gone, as the tree is routed through them
+  private final Map<String, Node> nodes = new HashMap<>();
+
+  // ID of each indexed horse -> its normalized name, to find the node to remove the horse from
+  private final Map<Long, String> names = new HashMap<>();
+
+  // Soundex key -> IDs of the horses whose name has that key
+  private final Map<String, Set<Long>> phonetic = new HashMap<>();
+
+  /**
+   * The horses found by a search.
+   *
+   * @param distances the edit distance of each matching horse's name, by horse ID
+   * @param truncated whether the search stopped before comparing all names that could match, so that matches may be missing
+   */
+  public record Matches(Map<Long, Integer> distances, boolean truncated) {
+  }
+
+  private static final class Node {
+    private final String name;
+    private final Set<Long> ids = new HashSet<>();
+    private final Map<Integer, Node> children = new HashMap<>();
+
+    private Node(String name) {
+      this.name = name;
+    }
+  }
+
+  @Override
+  public void rebuild(Collection<Horse> horses) {
+    LOG.trace("rebuild({} horses)", horses.size());
+    lock.writeLock().lock();
+    try {
+      root = null;
+      nodes.clear();
+      names.clear();
+      phonetic.clear();
+      horses.forEach(this::add);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void put(Horse horse) {
+    LOG.trace("put({})", horse.id());
+    lock.writeLock().lock();
+    try {
+      removeHorse(horse.id());
+      add(horse);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void remove(long id) {
+    LOG.trace("remove({})", id);
+    lock.writeLock().lock();
+    try {
+      removeHorse(id);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Finds the horses whose name is within a few edits of the given name, or sounds like it, ignoring case.
+   * Short names tolerate one edit, longer ones two. Names that only sound alike count as one edit more
+   * than the most distant spelling that is still tolerated.
+   *
+   * @param name the name to search for
+   * @return the matching horses, with the edit distance of their names; none if the name has no letters
+   */
+  public Matches search(String name) {
+    LOG.trace("search({})", name);
+    String query = normalize(name);
+    Map<Long, Integer> distances = new HashMap<>();
+    if (query.isEmpty()) {
+      return new Matches(distances, false);
+    }
+    int maxDistance = query.length() <= 4 ? 1 : 2;
+
+    boolean truncated;
+    lock.readLock().lock();
+    try {
+      Node exact = nodes.get(query);
+      if (exact != null) {
+        exact.ids.forEach(id -> distances.put(id, 0));
+      }
+      Deque<Node> pending = new ArrayDeque<>();
+      if (root != null) {
+        pending.push(root);
+      }
+      int comparisons = 0;
+      while (!pending.isEmpty() && comparisons < MAX_COMPARISONS) {
+        Node node = pending.pop();
+        final int distance = distance(query, node.name);
+        comparisons++;
+        if (distance <= maxDistance) {
+          node.ids.forEach(id -> distances.put(id, distance));
+        }
+        for (int childDistance = Math.max(1, distance - maxDistance); childDistance <= distance + maxDistance; childDistance++) {
+          Node child = node.children.get(childDistance);
+          if (child != null) {
+            pending.push(child);
+          }
+        }
+      }
+      truncated = !pending.isEmpty();
+      if (truncated) {
+        LOG.warn("Fuzzy search for '{}' stopped after {} comparisons, further matches may be missing", name, comparisons);
+      }
+      for (Long id : phonetic.getOrDefault(phoneticKey(query), Set.of())) {
+        distances.putIfAbsent(id, maxDistance + 1);
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    return new Matches(distances, truncated);
+  }
+
+  private void add(Horse horse) {
+    String name = normalize(horse.name());
+    if (name.isEmpty()) {
+      return;
+    }
+    names.put(horse.id(), name);
+    phonetic.computeIfAbsent(phoneticKey(name), key -> new HashSet<>()).add(horse.id());
+    Node node = nodes.get(name);
+    if (node == null) {
+      node = new Node(name);
+      nodes.put(name, node);
+      insert(node);
+    }
+    node.ids.add(horse.id());
+  }
+
+  private void insert(Node node) {
+    if (root == null) {
+      root = node;
+      return;
+    }
+    Node parent = root;
+    while (true) {
+      int distance = distance(node.name, parent.name);
+      Node child = parent.children.get(distance);
+      if (child == null) {
+        parent.children.put(distance, node);
+        return;
+      }
+      parent = child;
+    }
+  }
+
+  private void removeHorse(long id) {
+    String name = names.remove(id);
+    if (name == null) {
+      return;
+    }
+    nodes.get(name).ids.remove(id);
+    Set<Long> sameSound = phonetic.get(phoneticKey(name));
+    sameSound.remove(id);
+    if (sameSound.isEmpty()) {
+      phonetic.remove(phoneticKey(name));
+    }
+  }
+
+  private static String normalize(String name) {
+    return name == null ? "" : NON_LETTERS.matcher(name.toLowerCase(Locale.ROOT)).replaceAll("");
+  }
+
+  /**
+   * The Levenshtein distance between two names, i.e. the number of inserted, deleted or replaced letters.
+   * Unlike distances that also count swapped letters as one edit, it satisfies the triangle inequality the tree relies on.
+   */
+  private static int distance(String first, String second) {
+    int[] previous = new int[second.length() + 1];
+    int[] current = new int[second.length() + 1];
+    for (int j = 0; j <= second.length(); j++) {
+      previous[j] = j;
+    }
+    for (int i = 1; i <= first.length(); i++) {
+      current[0] = i;
+      for (int j = 1; j <= second.length(); j++) {
+        int replace = previous[j - 1] + (first.charAt(i - 1) == second.charAt(j - 1) ? 0 : 1);
+        current[j] = Math.min(replace, Math.min(previous[j], current[j - 1]) + 1);
+      }
+      int[] swap = previous;
+      previous = current;
+      current = swap;
+    }
+    return previous[second.length()];
+  }
+
+  /**
+   * The Soundex key of a name: its first letter, followed by the digits of the next three consonant sounds.
+   */
+  private static String phoneticKey(String name) {
+    var key = new StringBuilder().append(name.charAt(0));
+    char previous = soundexDigit(name.charAt(0));
+    for (int i = 1; i < name.length() && key.length() < 4; i++) {
+      char letter = name.charAt(i);
+      char digit = soundexDigit(letter);
+      if (digit != '0' && digit != previous) {
+        key.append(digit);
+      }
+      // vowels separate equal consonant sounds, whereas h and w do not
+      if (letter != 'h' && letter != 'w') {
+        previous = digit;
+      }
+    }
+    while (key.length() < 4) {
+      key.append('0');
+    }
+    return key.toString();
+  }
+
+  private static char soundexDigit(char letter) {
+    return switch (letter) {
+      case 'b', 'f', 'p', 'v' -> '1';
+      case 'c', 'g', 'j', 'k', 'q', 's', 'x', 'z' -> '2';
+      case 'd', 't' -> '3';
+      case 'l' -> '4';
+      case 'm', 'n' -> '5';
+      case 'r' -> '6';
+      default -> '0';
+    };
+  }
+}
@@ -0,0 +1,33 @@
+package at.ac.tuwien.sepr.assignment.individual.service.impl;
+
+import at.ac.tuwien.sepr.assignment.individual.entity.Horse;
+import java.util.Collection;
+
+/**
+ * An in-memory index over the horses, answering a kind of search the database cannot answer efficiently.
+ * All indexes are built from the stored horses once the application is ready,
+ * and the {@link HorseServiceImpl} keeps them in sync with every horse it creates, changes or deletes.
+ */
+public interface HorseIndex {
+
+  /**
+   * Replaces the whole content of this index.
+   *
+   * @param horses all stored horses
+   */
+  void rebuild(Collection<Horse> horses);
+
+  /**
+   * Adds a horse to this index, or replaces the horse with the same ID.
+   *
+   * @param horse the created or changed horse
+   */
+  void put(Horse horse);
+
+  /**
+   * Removes a horse from this index; does nothing if the horse is not in it.
+   *
+   * @param id the ID of the deleted horse
+   */
+  void remove(long id);
+}
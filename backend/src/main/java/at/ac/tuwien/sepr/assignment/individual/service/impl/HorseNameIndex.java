@@ -0,0 +1,108 @@
+package at.ac.tuwien.sepr.assignment.individual.service.impl;
+
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseSuggestionDto;
+import at.ac.tuwien.sepr.assignment.individual.entity.Horse;
+import at.ac.tuwien.sepr.assignment.individual.type.Sex;
+import java.lang.invoke.MethodHandles;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sorted index over the horse names, for suggesting horses while their name is being typed.
+ * The names are kept in concurrent skip lists, ordered case-insensitively; the horses starting with a prefix
+ * are a contiguous range of such a list, so a suggestion takes logarithmic time in the number of horses,
+ * plus the number of suggestions. There is one list of all horses and one per sex, so that suggestions
+ * restricted to one sex do not have to skip the horses of the other.
+ * Reads do not lock; changes are serialized, so that a horse is never listed under two names.
+ */
+@Component
+public class HorseNameIndex implements HorseIndex {
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private final ConcurrentNavigableMap<String, HorseSuggestionDto> all = new ConcurrentSkipListMap<>();
+  private final Map<Sex, ConcurrentNavigableMap<String, HorseSuggestionDto>> bySex = new EnumMap<>(Sex.class);
+
+  // ID of each indexed horse -> its key in the lists, to find the entry to replace when the name changes
+  private final Map<Long, String> keys = new ConcurrentHashMap<>();
+
+  /**
+   * Constructs an empty {@code HorseNameIndex}.
+   */
+  public HorseNameIndex() {
+    for (Sex sex : Sex.values()) {
+      bySex.put(sex, new ConcurrentSkipListMap<>());
+    }
+  }
+
+  @Override
+  public synchronized void rebuild(Collection<Horse> horses) {
+    LOG.trace("rebuild({} horses)", horses.size());
+    all.clear();
+    bySex.values().forEach(Map::clear);
+    keys.clear();
+    horses.forEach(this::add);
+  }
+
+  @Override
+  public synchronized void put(Horse horse) {
+    LOG.trace("put({})", horse.id());
+    removeEntry(horse.id());
+    add(horse);
+  }
+
+  @Override
+  public synchronized void remove(long id) {
+    LOG.trace("remove({})", id);
+    removeEntry(id);
+  }
+
+  /**
+   * Suggests the horses whose name starts with the given prefix, ignoring case, in the order of their names.
+   *
+   * @param prefix the beginning of the name; {@code null} or empty for all horses
+   * @param sex the sex of the suggested horses, or {@code null} for horses of either sex
+   * @param limit the maximum number of suggestions
+   * @return at most {@code limit} horses whose name starts with {@code prefix}
+   */
+  public List<HorseSuggestionDto> suggest(String prefix, Sex sex, int limit) {
+    LOG.trace("suggest({}, {}, {})", prefix, sex, limit);
+    ConcurrentNavigableMap<String, HorseSuggestionDto> names = sex == null ? all : bySex.get(sex);
+    if (prefix != null && !prefix.isEmpty()) {
+      String from = normalize(prefix);
+      names = names.subMap(from, true, from + Character.MAX_VALUE, false);
+    }
+    return names.values().stream()
+        .limit(limit)
+        .toList();
+  }
+
+  private void add(Horse horse) {
+    // the ID makes the key unique among horses of the same name
+    String key = normalize(horse.name()) + '\0' + horse.id();
+    var suggestion = new HorseSuggestionDto(horse.id(), horse.name(), horse.dateOfBirth(), horse.sex());
+    keys.put(horse.id(), key);
+    all.put(key, suggestion);
+    bySex.get(horse.sex()).put(key, suggestion);
+  }
+
+  private void removeEntry(long id) {
+    String key = keys.remove(id);
+    if (key != null) {
+      all.remove(key);
+      bySex.values().forEach(names -> names.remove(key));
+    }
+  }
+
+  private static String normalize(String name) {
+    return name.toLowerCase(Locale.ROOT);
+  }
+}
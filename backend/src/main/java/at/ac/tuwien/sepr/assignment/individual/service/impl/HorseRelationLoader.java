@@ -0,0 +1,106 @@
+package at.ac.tuwien.sepr.assignment.individual.service.impl;
+
+import at.ac.tuwien.sepr.assignment.individual.dto.OwnerDto;
+import at.ac.tuwien.sepr.assignment.individual.entity.Horse;
+import at.ac.tuwien.sepr.assignment.individual.exception.FatalException;
+import at.ac.tuwien.sepr.assignment.individual.exception.NotFoundException;
+import at.ac.tuwien.sepr.assignment.individual.persistence.HorseDao;
+import at.ac.tuwien.sepr.assignment.individual.service.OwnerService;
+import java.lang.invoke.MethodHandles;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Batch loader for the owners and parents referenced by horses.
+ * Horses are {@link #add(Horse) added} first, which only collects the IDs they reference.
+ * The referenced owners and parents are then loaded with one query per entity type on first access,
+ * and kept for the lifetime of the loader, so adding more horses later only loads what is still missing.
+ * A loader is meant to be used for a single service call and is not thread-safe.
+ */
+class HorseRelationLoader {
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private final OwnerService ownerService;
+  private final HorseDao dao;
+  private final Set<Long> pendingOwnerIds = new HashSet<>();
+  private final Set<Long> pendingParentIds = new HashSet<>();
+  private final Map<Long, OwnerDto> owners = new HashMap<>();
+  private final Map<Long, Horse> parents = new HashMap<>();
+
+  HorseRelationLoader(OwnerService ownerService, HorseDao dao) {
+    this.ownerService = ownerService;
+    this.dao = dao;
+  }
+
+  /**
+   * Collects the owner and parents referenced by the given horse, to be loaded on next access.
+   *
+   * @param horse the horse whose relations will be needed
+   * @return this loader
+   */
+  HorseRelationLoader add(Horse horse) {
+    if (horse.ownerId() != null && !owners.containsKey(horse.ownerId())) {
+      pendingOwnerIds.add(horse.ownerId());
+    }
+    for (Long parentId : new Long[] {horse.motherId(), horse.fatherId()}) {
+      if (parentId != null && !parents.containsKey(parentId)) {
+        pendingParentIds.add(parentId);
+      }
+    }
+    return this;
+  }
+
+  /**
+   * Collects the owners and parents referenced by the given horses, to be loaded on next access.
+   *
+   * @param horses the horses whose relations will be needed
+   * @return this loader
+   */
+  HorseRelationLoader addAll(Collection<Horse> horses) {
+    horses.forEach(this::add);
+    return this;
+  }
+
+  /**
+   * Returns the owners of all horses added so far, loading the ones not loaded yet in a single query.
+   *
+   * @return the owners by their ID
+   */
+  Map<Long, OwnerDto> owners() {
+    if (!pendingOwnerIds.isEmpty()) {
+      LOG.debug("Loading {} owners in one batch", pendingOwnerIds.size());
+      try {
+        owners.putAll(ownerService.getAllById(pendingOwnerIds));
+      } catch (NotFoundException e) {
+        throw new FatalException("Horse, that is already persisted, refers to non-existing owner", e);
+      }
+      pendingOwnerIds.clear();
+    }
+    return Collections.unmodifiableMap(owners);
+  }
+
+  /**
+   * Returns the parents of all horses added so far, loading the ones not loaded yet in a single query.
+   *
+   * @return the parents by their ID
+   */
+  Map<Long, Horse> parents() {
+    if (!pendingParentIds.isEmpty()) {
+      LOG.debug("Loading {} parents in one batch", pendingParentIds.size());
+      List<Horse> loaded = dao.getAllById(pendingParentIds);
+      if (loaded.size() != pendingParentIds.size()) {
+        throw new FatalException("Horse, that is already persisted, refers to non-existing parent");
+      }
+      loaded.forEach(parent -> parents.put(parent.id(), parent));
+      pendingParentIds.clear();
+    }
+    return Collections.unmodifiableMap(parents);
+  }
+}
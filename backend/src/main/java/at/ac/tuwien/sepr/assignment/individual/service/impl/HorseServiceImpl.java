@@ -1,30 +1,55 @@
 package at.ac.tuwien.sepr.assignment.individual.service.impl;
 
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseCreateDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseDescendantDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorsePageDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorsePatchDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseRelationshipDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseSearchCursor;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseSearchDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseSuggestionDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseTreeDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseDetailDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseImageDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseInbreedingDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseUpdateDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseListDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.ImageCacheStatsDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.OwnerDto;
 import at.ac.tuwien.sepr.assignment.individual.entity.Horse;
+import at.ac.tuwien.sepr.assignment.individual.entity.HorseFamily;
 import at.ac.tuwien.sepr.assignment.individual.exception.ConflictException;
-import at.ac.tuwien.sepr.assignment.individual.exception.FatalException;
+import at.ac.tuwien.sepr.assignment.individual.exception.ImageTooLargeException;
+import at.ac.tuwien.sepr.assignment.individual.exception.ImageUploadException;
 import at.ac.tuwien.sepr.assignment.individual.exception.NotFoundException;
 import at.ac.tuwien.sepr.assignment.individual.exception.ValidationException;
 import at.ac.tuwien.sepr.assignment.individual.mapper.HorseMapper;
 import at.ac.tuwien.sepr.assignment.individual.persistence.HorseDao;
+import at.ac.tuwien.sepr.assignment.individual.persistence.ImageStore;
 import at.ac.tuwien.sepr.assignment.individual.service.HorseService;
 import at.ac.tuwien.sepr.assignment.individual.service.OwnerService;
+import at.ac.tuwien.sepr.assignment.individual.type.HorseSortKey;
+import at.ac.tuwien.sepr.assignment.individual.type.ImageFormat;
+import at.ac.tuwien.sepr.assignment.individual.type.ParentRole;
+import at.ac.tuwien.sepr.assignment.individual.type.Sex;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.lang.invoke.MethodHandles;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Objects;
 import java.util.Map;
-import java.util.Collections;
-import java.util.stream.Collectors;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
 import java.util.stream.Stream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -32,12 +57,41 @@ import org.springframework.stereotype.Service;
  * Implementation of {@link HorseService} for handling image storage and retrieval.
  */
 @Service
-public class HorseServiceImpl implements HorseService {
+public class HorseServiceImpl implements HorseService, SmartInitializingSingleton {
   private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  /** Number of horses on a search page, if the client does not ask for a specific amount. */
+  static final int DEFAULT_PAGE_SIZE = 50;
+
+  /** Upper bound for the number of horses on a search page, regardless of what the client asks for. */
+  static final int MAX_PAGE_SIZE = 200;
+
+  /** Number of suggested horses, if the client does not ask for a specific amount. */
+  static final int DEFAULT_SUGGESTIONS = 10;
+
+  /** Upper bound for the number of suggested horses, regardless of what the client asks for. */
+  static final int MAX_SUGGESTIONS = 50;
+
+  /** Upper bound for the number of index matches the database checks against the other criteria at once. */
+  static final int MAX_CANDIDATE_BATCH = 1000;
+
+  /** Upper bound for the size of an uploaded image, in bytes. */
+  static final long MAX_IMAGE_BYTES = 10L * 1024 * 1024;
+
   private final HorseDao dao;
   private final HorseMapper mapper;
   private final HorseValidator validator;
   private final OwnerService ownerService;
+  private final ImageStore imageStore;
+  private final ThumbnailGenerator thumbnailGenerator;
+  private final ImageCache imageCache;
+  private final HorseDescriptionIndex descriptionIndex;
+  private final HorseNameIndex nameIndex;
+  private final HorseFuzzyNameIndex fuzzyNameIndex;
+  private final GenealogyGraph genealogy;
+  private final InbreedingCalculator inbreeding;
+  private final RelationshipFinder relationships;
+  private final List<HorseIndex> indexes;
 
 
   /**
@@ -47,65 +101,194 @@ public class HorseServiceImpl implements HorseService {
    * @param mapper the mapper responsible for converting between entities and DTOs.
    * @param validator the validator used for validating horse-related data.
    * @param ownerService the service handling owner-related business logic.
+   * @param imageStore the content-addressed store the horse images are kept in.
+   * @param thumbnailGenerator the generator of the thumbnails of horse images.
+   * @param imageCache the cache for frequently requested horse images.
+   * @param descriptionIndex the index the descriptions are searched in.
+   * @param nameIndex the index the horse names are suggested from.
+   * @param fuzzyNameIndex the index the names are searched in when typos are tolerated.
+   * @param genealogy the in-memory lineage graph the pedigrees are walked in.
+   * @param inbreeding the calculator of the coefficients of inbreeding.
+   * @param relationships the finder of the relationships between horses.
+   * @param indexes all in-memory indexes over the horses, which are kept in sync with every change.
    */
 
   @Autowired
   public HorseServiceImpl(HorseDao dao,
                           HorseMapper mapper,
                           HorseValidator validator,
-                          OwnerService ownerService) {
+                          OwnerService ownerService,
+                          ImageStore imageStore,
+                          ThumbnailGenerator thumbnailGenerator,
+                          ImageCache imageCache,
+                          HorseDescriptionIndex descriptionIndex,
+                          HorseNameIndex nameIndex,
+                          HorseFuzzyNameIndex fuzzyNameIndex,
+                          GenealogyGraph genealogy,
+                          InbreedingCalculator inbreeding,
+                          RelationshipFinder relationships,
+                          List<HorseIndex> indexes) {
     this.dao = dao;
     this.mapper = mapper;
     this.validator = validator;
     this.ownerService = ownerService;
+    this.imageStore = imageStore;
+    this.thumbnailGenerator = thumbnailGenerator;
+    this.imageCache = imageCache;
+    this.descriptionIndex = descriptionIndex;
+    this.nameIndex = nameIndex;
+    this.fuzzyNameIndex = fuzzyNameIndex;
+    this.genealogy = genealogy;
+    this.inbreeding = inbreeding;
+    this.relationships = relationships;
+    this.indexes = indexes;
+  }
+
+  /**
+   * Builds all in-memory indexes from the stored horses, once the schema is migrated and the test data is loaded.
+   * This happens when all singletons are created, which is before the web server accepts the first request,
+   * so no request is ever answered from empty indexes.
+   */
+  @Override
+  public void afterSingletonsInstantiated() {
+    LOG.trace("afterSingletonsInstantiated()");
+    List<Horse> horses = dao.getAll();
+    indexes.forEach(index -> index.rebuild(horses));
+    LOG.info("Built {} in-memory horse indexes over {} horses", indexes.size(), horses.size());
   }
 
   @Override
   public Stream<HorseListDto> allHorses() {
     LOG.trace("allHorses()");
     var horses = dao.getAll();
-    var ownerIds = horses.stream()
-        .map(Horse::ownerId)
-        .filter(Objects::nonNull)
-        .collect(Collectors.toUnmodifiableSet());
-    Map<Long, OwnerDto> ownerMap;
-    try {
-      ownerMap = ownerService.getAllById(ownerIds);
-    } catch (NotFoundException e) {
-      throw new FatalException("Horse, that is already persisted, refers to non-existing owner", e);
-    }
+    Map<Long, OwnerDto> owners = relationLoader().addAll(horses).owners();
     return horses.stream()
-        .map(horse -> mapper.entityToListDto(horse, ownerMap));
+        .map(horse -> mapper.entityToListDto(horse, owners));
   }
 
 
   @Override
   public HorseDetailDto update(HorseUpdateDto horse) throws NotFoundException, ValidationException, ConflictException {
     LOG.trace("update({})", horse);
-    validator.validateForUpdate(horse);
+    // the family the validation loads has the current parents and image as well, so the update reads nothing else
+    HorseFamily family = validator.validateForUpdate(horse);
+    var updatedHorse = dao.update(horse, storeImage(horse.image()), family.horse());
+    evictReplacedImage(family.imageHash(), updatedHorse.imageHash());
+    index(updatedHorse);
+    return toDetailDto(updatedHorse);
+  }
+
 
-    var updatedHorse = dao.update(horse);
-    return mapper.entityToDetailDto(
-        updatedHorse,
-        ownerMapForSingleId(updatedHorse.ownerId()));
+  @Override
+  public HorseDetailDto patch(HorsePatchDto patch) throws NotFoundException, ValidationException {
+    LOG.trace("patch({})", patch);
+    validator.validateForPatch(patch);
+    Horse patchedHorse = dao.patch(patch);
+    index(patchedHorse);
+    return toDetailDto(patchedHorse);
   }
 
+  @Override
+  public HorseDetailDto updateImage(long id, InputStream image)
+      throws NotFoundException, ValidationException, ImageTooLargeException, ImageUploadException {
+    LOG.trace("updateImage({})", id);
+    // fail before the upload is read, rather than storing an image for a horse that does not exist
+    final String previousImageHash = dao.getById(id).imageHash();
+
+    InputStream in = new BufferedInputStream(image);
+    ImageFormat format;
+    try {
+      in.mark(ImageFormat.MAGIC_LENGTH);
+      byte[] header = in.readNBytes(ImageFormat.MAGIC_LENGTH);
+      format = ImageFormat.sniff(header, header.length);
+      in.reset();
+    } catch (IOException e) {
+      throw new ImageUploadException("Could not read uploaded image", e);
+    }
+    if (format == null) {
+      throw new ValidationException("Invalid image for horse",
+          List.of("Image is not a PNG, JPEG, GIF or WebP image"));
+    }
+
+    String hash = imageStore.store(in, MAX_IMAGE_BYTES);
+    thumbnailGenerator.generateAllAsync(hash);
+    Horse updatedHorse = dao.updateImage(id, hash, format.mimeType());
+    evictReplacedImage(previousImageHash, hash);
+    index(updatedHorse);
+    return toDetailDto(updatedHorse);
+  }
 
   @Override
   public HorseDetailDto getById(long id) throws NotFoundException {
     LOG.trace("details({})", id);
+    return mapper.entityToDetailDto(dao.getWithRelationsById(id));
+  }
+
+  @Override
+  public HorseImageDto getImage(long id, Integer width) throws NotFoundException, ValidationException {
+    LOG.trace("getImage({}, {})", id, width);
+    if (width != null && !thumbnailGenerator.isSupportedWidth(width)) {
+      throw new ValidationException("Invalid thumbnail width",
+          List.of("Thumbnails are available in widths " + ThumbnailGenerator.WIDTHS + ", not " + width));
+    }
     Horse horse = dao.getById(id);
-    return mapper.entityToDetailDto(
-        horse,
-        ownerMapForSingleId(horse.ownerId()));
+    if (horse.imageHash() == null) {
+      throw new NotFoundException("Horse with ID %d has no image".formatted(id));
+    }
+    String hash = horse.imageHash();
+    var content = width == null
+        ? imageCache.get(hash, () -> imageStore.load(hash))
+        : imageCache.get(hash + ".w" + width, () -> thumbnailGenerator.getThumbnail(hash, width));
+    return new HorseImageDto(hash, width, horse.imageType(), content);
+  }
+
+  @Override
+  public List<HorseSuggestionDto> autocomplete(String prefix, Sex sex, Integer limit) throws ValidationException {
+    LOG.trace("autocomplete({}, {}, {})", prefix, sex, limit);
+    return nameIndex.suggest(prefix, sex, suggestionLimit(limit));
+  }
+
+  @Override
+  public List<HorseSuggestionDto> parentCandidates(long id, ParentRole role, String prefix, Integer limit)
+      throws NotFoundException, ValidationException {
+    LOG.trace("parentCandidates({}, {}, {}, {})", id, role, prefix, limit);
+    // the horse itself and all its descendants are born after it, so they are never candidates
+    return parentCandidates(role, dao.getLineageById(id).dateOfBirth(), prefix, limit);
+  }
+
+  @Override
+  public List<HorseSuggestionDto> parentCandidates(ParentRole role, LocalDate dateOfBirth, String prefix, Integer limit)
+      throws ValidationException {
+    LOG.trace("parentCandidates({}, {}, {}, {})", role, dateOfBirth, prefix, limit);
+    return dao.getParentCandidates(role.sex(), dateOfBirth, prefix, suggestionLimit(limit)).stream()
+        .map(mapper::entityToSuggestionDto)
+        .toList();
+  }
+
+  /**
+   * Determines the number of horses to suggest, from the number the client asks for.
+   */
+  private static int suggestionLimit(Integer limit) throws ValidationException {
+    if (limit != null && limit < 1) {
+      throw new ValidationException("Invalid number of suggestions",
+          List.of("Invalid number of suggestions: " + limit + ", must be at least 1"));
+    }
+    return limit != null ? Math.min(limit, MAX_SUGGESTIONS) : DEFAULT_SUGGESTIONS;
+  }
+
+  @Override
+  public ImageCacheStatsDto imageCacheStats() {
+    LOG.trace("imageCacheStats()");
+    return imageCache.stats();
   }
 
   @Override
   public HorseDetailDto create(HorseCreateDto horse) throws ValidationException, ConflictException {
     LOG.trace("create({})", horse);
     validator.validateForCreate(horse);
-    var createdHorse = dao.create(horse);
-    return mapper.entityToDetailDto(createdHorse, ownerMapForSingleId(createdHorse.ownerId()));
+    var createdHorse = dao.create(horse, storeImage(horse.image()));
+    index(createdHorse);
+    return toDetailDto(createdHorse);
   }
 
   @Override
@@ -114,33 +297,224 @@ public class HorseServiceImpl implements HorseService {
     validator.validateForDelete(id);
     Horse horseToDeletion = dao.getById(id);
     dao.delete(id);
-    return mapper.entityToDetailDto(horseToDeletion, ownerMapForSingleId(horseToDeletion.ownerId()));
+    imageCache.invalidate(horseToDeletion.imageHash());
+    indexes.forEach(index -> index.remove(id));
+    return toDetailDto(horseToDeletion);
   }
 
   @Override
-  public Stream<HorseListDto> search(HorseSearchDto searchParameters) {
+  public HorsePageDto search(HorseSearchDto searchParameters) throws ValidationException {
     LOG.trace("search({})", searchParameters);
-    return dao.search(searchParameters).stream()
-            .map(horse -> mapper.entityToListDto(horse, ownerMapForSingleId(horse.ownerId())));
+    validator.validateForSearch(searchParameters);
+    final HorseSortKey sortKey = searchParameters.sortOrDefault();
+    final int limit = searchParameters.limit() != null ? Math.min(searchParameters.limit(), MAX_PAGE_SIZE) : DEFAULT_PAGE_SIZE;
+    final HorseSearchCursor after = searchParameters.cursor() == null || searchParameters.cursor().isBlank()
+        ? null
+        : HorseSearchCursor.decode(searchParameters.cursor());
+
+    // The description and a fuzzy name are searched in the in-memory indexes; the database only checks the other criteria for their matches
+    HorseSearchDto filters = searchParameters;
+    Map<Long, Double> relevance = null;
+    boolean truncated = false;
+    if (searchParameters.hasDescription()) {
+      relevance = descriptionIndex.search(searchParameters.description());
+      filters = filters.withoutDescription();
+    }
+    if (searchParameters.hasFuzzyName()) {
+      HorseFuzzyNameIndex.Matches matches = fuzzyNameIndex.search(searchParameters.name());
+      truncated = matches.truncated();
+      Map<Long, Double> similarity = new HashMap<>();
+      matches.distances().forEach((id, distance) -> similarity.put(id, 1.0 / (1 + distance)));
+      if (relevance == null) {
+        relevance = similarity;
+      } else {
+        relevance.keySet().retainAll(similarity.keySet());
+        relevance.replaceAll((id, score) -> score + similarity.get(id));
+      }
+      filters = filters.withoutName();
+    }
+    if (relevance != null && relevance.isEmpty()) {
+      return new HorsePageDto(List.of(), null, truncated);
+    }
+
+    // One horse more than requested tells us whether there is a next page, without a separate COUNT query
+    List<Horse> found = relevance == null
+        ? dao.search(filters, null, sortKey, after, limit + 1)
+        : firstMatches(filters, rank(relevance, sortKey, after), limit + 1);
+    List<Horse> page = found.size() > limit ? found.subList(0, limit) : found;
+    // one query for the owners of the whole page, instead of one per horse
+    Map<Long, OwnerDto> owners = relationLoader().addAll(page).owners();
+    List<HorseListDto> horses = page.stream()
+        .map(horse -> mapper.entityToListDto(horse, owners))
+        .toList();
+    String next = null;
+    if (found.size() > limit) {
+      HorseListDto last = horses.getLast();
+      next = sortKey == HorseSortKey.RELEVANCE
+          ? HorseSearchCursor.afterRelevance(relevance.get(last.id()), last.id()).encode()
+          : HorseSearchCursor.after(sortKey, last).encode();
+    }
+    return new HorsePageDto(horses, next, truncated);
   }
 
   @Override
   public HorseTreeDto getPedigree(long id, Integer maxGenerations) throws NotFoundException, ValidationException {
     LOG.trace("getPedigree({}, {})", id, maxGenerations);
     validator.validatePedigreeGenerations(maxGenerations);
-    List<Horse> results = dao.getPedigree(id, maxGenerations);
-    return mapper.entityToTreeDto(id, results);
+    HorseTreeDto pedigree = genealogy.pedigree(id, maxGenerations);
+    if (pedigree == null) {
+      throw new NotFoundException("No horse with ID %d found".formatted(id));
+    }
+    return pedigree;
   }
 
+  /**
+   * One generation of the progeny of a horse; generation 0 is the horse itself.
+   */
+  private record Generation(int number, List<Horse> horses) {
+  }
 
-  private Map<Long, OwnerDto> ownerMapForSingleId(Long ownerId) {
-    try {
-      return ownerId == null
-          ? null
-          : Collections.singletonMap(ownerId, ownerService.getById(ownerId));
-    } catch (NotFoundException e) {
-      throw new FatalException("Owner %d referenced by horse not found".formatted(ownerId));
+  @Override
+  public Stream<HorseDescendantDto> getDescendants(long id, Integer maxGenerations) throws NotFoundException, ValidationException {
+    LOG.trace("getDescendants({}, {})", id, maxGenerations);
+    validator.validatePedigreeGenerations(maxGenerations);
+    Horse horse = dao.getById(id);
+    int generations = maxGenerations == null ? Integer.MAX_VALUE : maxGenerations;
+    // only the IDs of the horses seen so far are kept, so that a horse descending on several lines is listed once
+    Set<Long> seen = new HashSet<>();
+    seen.add(id);
+    return Stream.iterate(new Generation(0, List.of(horse)),
+            generation -> !generation.horses().isEmpty(),
+            generation -> nextGeneration(id, generation, generations, seen))
+        .skip(1)
+        .flatMap(generation -> generation.horses().stream()
+            .map(descendant -> mapper.entityToDescendantDto(descendant, generation.number())));
+  }
+
+  @Override
+  public HorseInbreedingDto getInbreeding(long id) throws NotFoundException {
+    LOG.trace("getInbreeding({})", id);
+    Double coefficient = inbreeding.coefficientOfInbreeding(id);
+    if (coefficient == null) {
+      throw new NotFoundException("No horse with ID %d found".formatted(id));
+    }
+    return new HorseInbreedingDto(id, coefficient);
+  }
+
+  @Override
+  public Stream<HorseInbreedingDto> allInbreeding() {
+    LOG.trace("allInbreeding()");
+    return inbreeding.coefficientsOfInbreeding().entrySet().stream()
+        .map(coefficient -> new HorseInbreedingDto(coefficient.getKey(), coefficient.getValue()))
+        .sorted(Comparator.comparingDouble(HorseInbreedingDto::coefficientOfInbreeding).reversed()
+            .thenComparing(HorseInbreedingDto::id));
+  }
+
+  @Override
+  public HorseRelationshipDto getRelationship(long id, long otherId) throws NotFoundException, ValidationException {
+    LOG.trace("getRelationship({}, {})", id, otherId);
+    validator.validateForRelationship(id, otherId);
+    HorseRelationshipDto relationship = relationships.relationship(id, otherId);
+    if (relationship == null) {
+      throw new NotFoundException("No horses with IDs %d and %d found".formatted(id, otherId));
     }
+    return relationship;
+  }
+
+
+  // a generation without any horse ends the progeny, as every descendant further down descends from one of them
+  private Generation nextGeneration(long id, Generation generation, int maxGenerations, Set<Long> seen) {
+    if (generation.number() >= maxGenerations) {
+      return new Generation(generation.number() + 1, List.of());
+    }
+    List<Horse> descendants = dao.getDescendants(id, generation.number() + 1).stream()
+        .filter(descendant -> seen.add(descendant.id()))
+        .toList();
+    return new Generation(generation.number() + 1, descendants);
+  }
+
+  private String storeImage(byte[] image) {
+    if (image == null) {
+      return null;
+    }
+    String hash = imageStore.store(image);
+    thumbnailGenerator.generateAllAsync(hash);
+    return hash;
+  }
+
+  /**
+   * Orders the matches of the in-memory indexes in the requested order, and drops those up to the cursor.
+   * The relevance is known from the indexes, and the name and birthdate from the {@link GenealogyGraph},
+   * so the matches are put in order before the database sees any of them.
+   */
+  private List<Long> rank(Map<Long, Double> relevance, HorseSortKey sortKey, HorseSearchCursor after) {
+    GenealogyGraph.Snapshot graph = genealogy.snapshot();
+    Comparator<Long> order;
+    Predicate<Long> isAfterCursor;
+    switch (sortKey) {
+      case RELEVANCE -> {
+        order = Comparator.comparingDouble((Long id) -> relevance.get(id)).reversed();
+        isAfterCursor = id -> relevance.get(id) < after.relevance()
+            || relevance.get(id).equals(after.relevance()) && id > after.id();
+      }
+      case NAME -> {
+        order = Comparator.comparing((Long id) -> graph.name(graph.indexOf(id)));
+        isAfterCursor = id -> graph.name(graph.indexOf(id)).compareTo(after.name()) > 0
+            || graph.name(graph.indexOf(id)).equals(after.name()) && id > after.id();
+      }
+      default -> {
+        order = Comparator.comparingInt((Long id) -> graph.epochDayOfBirth(graph.indexOf(id)));
+        isAfterCursor = id -> graph.epochDayOfBirth(graph.indexOf(id)) > after.dateOfBirth().toEpochDay()
+            || graph.epochDayOfBirth(graph.indexOf(id)) == after.dateOfBirth().toEpochDay() && id > after.id();
+      }
+    }
+    return relevance.keySet().stream()
+        // a horse the graph does not know has been deleted since it was indexed
+        .filter(id -> graph.indexOf(id) != GenealogyGraph.NONE)
+        .filter(id -> after == null || isAfterCursor.test(id))
+        .sorted(order.thenComparingLong(id -> id))
+        .toList();
+  }
+
+  /**
+   * Checks the ranked matches against the remaining criteria in the database, in batches from the first match on,
+   * until enough of them pass. Each batch is twice the size of the previous one, up to {@link #MAX_CANDIDATE_BATCH},
+   * so a selective filter takes a few round trips, and no statement carries more than a batch of IDs.
+   */
+  private List<Horse> firstMatches(HorseSearchDto filters, List<Long> ranked, int limit) {
+    List<Horse> found = new ArrayList<>();
+    int batch = limit;
+    for (int from = 0; from < ranked.size() && found.size() < limit; from += batch, batch = Math.min(2 * batch, MAX_CANDIDATE_BATCH)) {
+      List<Long> candidates = ranked.subList(from, Math.min(from + batch, ranked.size()));
+      Map<Long, Horse> passed = new HashMap<>();
+      dao.search(filters, candidates, HorseSortKey.NAME, null, candidates.size())
+          .forEach(horse -> passed.put(horse.id(), horse));
+      candidates.stream()
+          .map(passed::get)
+          .filter(Objects::nonNull)
+          .limit(limit - found.size())
+          .forEach(found::add);
+    }
+    return found;
+  }
+
+  private void index(Horse horse) {
+    indexes.forEach(index -> index.put(horse));
+  }
+
+  private void evictReplacedImage(String previousHash, String currentHash) {
+    if (previousHash != null && !previousHash.equals(currentHash)) {
+      imageCache.invalidate(previousHash);
+    }
+  }
+
+  private HorseDetailDto toDetailDto(Horse horse) {
+    HorseRelationLoader relations = relationLoader().add(horse);
+    return mapper.entityToDetailDto(horse, relations.owners(), relations.parents());
+  }
+
+  private HorseRelationLoader relationLoader() {
+    return new HorseRelationLoader(ownerService, dao);
   }
 
 }
@@ -2,16 +2,26 @@ package at.ac.tuwien.sepr.assignment.individual.service.impl;
 
 
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseCreateDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorsePatchDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseSearchCursor;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseSearchDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseUpdateDto;
-import at.ac.tuwien.sepr.assignment.individual.entity.Horse;
+import at.ac.tuwien.sepr.assignment.individual.entity.HorseFamily;
+import at.ac.tuwien.sepr.assignment.individual.entity.HorseLineage;
 import at.ac.tuwien.sepr.assignment.individual.exception.ConflictException;
 import at.ac.tuwien.sepr.assignment.individual.exception.NotFoundException;
 import at.ac.tuwien.sepr.assignment.individual.exception.ValidationException;
 import java.lang.invoke.MethodHandles;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
 
 import at.ac.tuwien.sepr.assignment.individual.persistence.HorseDao;
+import at.ac.tuwien.sepr.assignment.individual.type.HorseField;
+import at.ac.tuwien.sepr.assignment.individual.type.HorseSortKey;
 import at.ac.tuwien.sepr.assignment.individual.type.Sex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,6 +34,8 @@ import org.springframework.stereotype.Component;
 @Component
 public class HorseValidator {
   private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  // the highest age a horse can have, in years
+  private static final int MAX_AGE_YEARS = 62;
   private final HorseDao dao;
 
   /**
@@ -38,126 +50,108 @@ public class HorseValidator {
 
   /**
    * Validates a horse before updating, ensuring all fields meet constraints and checking for conflicts.
+   * The horse, its new parents and its children are loaded in a single query, and all family-tree rules
+   * are then checked against them in memory.
    *
    * @param horse the {@link HorseUpdateDto} to validate
+   * @return the family of the horse as it is stored, including the horse itself, for the update to build on
    * @throws ValidationException if validation fails
    * @throws ConflictException   if conflicts with existing data are detected
    */
-  public void validateForUpdate(HorseUpdateDto horse) throws ValidationException, ConflictException {
+  public HorseFamily validateForUpdate(HorseUpdateDto horse) throws ValidationException, ConflictException {
     LOG.trace("validateForUpdate({})", horse);
     List<String> validationErrors = new ArrayList<>();
 
     if (horse.id() == null) {
       validationErrors.add("No ID given");
     }
-
-    if (horse.name() == null || horse.name().isBlank()) {
-      validationErrors.add("Horse name is required");
-    } else {
-      if (horse.name().length() > 255) {
-        validationErrors.add("Horse name too long: longer than 255 characters");
-      }
-      String namePattern = "^[A-Z][a-zA-Z-]*$";
-      if (!horse.name().matches(namePattern)) {
-        validationErrors.add("Horse name must start with a capital letter and contain only letters and suitable characters");
-      }
+    validateName(horse.name(), validationErrors);
+    validateDescription(horse.description(), validationErrors);
+    validateDateOfBirth(horse.dateOfBirth(), validationErrors);
+    if (horse.sex() == null) {
+      validationErrors.add("Horse gender (sex) is required");
     }
-
-    if (horse.description() != null) {
-      if (horse.description().isBlank()) {
-        validationErrors.add("Horse description is given but blank");
-      }
-      if (horse.description().length() > 4095) {
-        validationErrors.add("Horse description too long: longer than 4095 characters");
-      }
+    if (horse.ownerId() != null && horse.ownerId() <= 0) {
+      validationErrors.add("Invalid owner ID: must be a positive number");
     }
 
-    if (horse.dateOfBirth() == null) {
-      validationErrors.add("Horse date of birth is required");
-    } else {
-      if (horse.dateOfBirth().isAfter(java.time.LocalDate.now())) {
-        validationErrors.add("Horse date of birth cannot be in the future");
-      }
-      if (horse.dateOfBirth().isBefore(java.time.LocalDate.now().minusYears(62))) {
-        validationErrors.add("Horse date of birth indicates an age over 62 years, which is not possible");
+    // the family rules compare birthdates and sexes, so they need the horse's own ones to be there
+    HorseFamily family = null;
+    if (horse.id() != null && horse.dateOfBirth() != null && horse.sex() != null) {
+      family = dao.getFamily(horse.id(), horse.motherId(), horse.fatherId());
+      validateParent(horse.id(), horse.motherId(), family.relative(horse.motherId()), Sex.FEMALE, horse.dateOfBirth(), validationErrors);
+      validateParent(horse.id(), horse.fatherId(), family.relative(horse.fatherId()), Sex.MALE, horse.dateOfBirth(), validationErrors);
+
+      HorseLineage existing = family.horse();
+      if (existing == null) {
+        validationErrors.add("Existing horse record not found for parent's update.");
+      } else if (existing.sex() != horse.sex() || !existing.dateOfBirth().equals(horse.dateOfBirth())) {
+        validateAsParent(horse.id(), family.children(), horse.sex(), horse.dateOfBirth(), validationErrors);
       }
     }
 
-    if (horse.sex() == null) {
-      validationErrors.add("Horse gender (sex) is required");
-    } else if (!horse.sex().toString().equals("MALE") && !horse.sex().toString().equals("FEMALE")) {
-      validationErrors.add("Invalid horse gender: must be 'MALE' or 'FEMALE'");
+    if (!validationErrors.isEmpty()) {
+      throw new ValidationException("Validation of horse for update failed", validationErrors);
     }
+    return family;
+  }
 
-    if (horse.motherId() != null && horse.motherId().equals(horse.id())) {
-      validationErrors.add("A horse cannot be its own mother");
+  /**
+   * Validates a patch before applying it, checking only what the patched attributes can affect.
+   * Name, description and owner are checked on their own. The horse's lineage is only loaded if its
+   * birthdate, sex or parents are patched, and only then are the parents and children checked,
+   * against the horse as it will be after the patch.
+   *
+   * @param patch the {@link HorsePatchDto} to validate
+   * @throws ValidationException if validation fails
+   * @throws NotFoundException   if the lineage has to be checked and the horse does not exist
+   */
+  public void validateForPatch(HorsePatchDto patch) throws ValidationException, NotFoundException {
+    LOG.trace("validateForPatch({})", patch);
+    List<String> validationErrors = new ArrayList<>();
+
+    if (patch.has(HorseField.NAME)) {
+      validateName(patch.name(), validationErrors);
     }
-    if (horse.fatherId() != null && horse.fatherId().equals(horse.id())) {
-      validationErrors.add("A horse cannot be its own father");
+    if (patch.has(HorseField.DESCRIPTION)) {
+      validateDescription(patch.description(), validationErrors);
     }
-
-    if (horse.motherId() != null) {
-      try {
-        Horse mother = dao.getById(horse.motherId());
-        if (!mother.dateOfBirth().isBefore(horse.dateOfBirth())) {
-          validationErrors.add("Mother's date of birth must be before the horse's date of birth");
-        }
-        if (mother.sex().equals(Sex.MALE)) {
-          validationErrors.add("Mother should be female");
-        }
-      } catch (NotFoundException e) {
-        validationErrors.add("Mother not found");
-      }
+    if (patch.has(HorseField.DATE_OF_BIRTH)) {
+      validateDateOfBirth(patch.dateOfBirth(), validationErrors);
     }
-
-    if (horse.fatherId() != null) {
-      try {
-        Horse father = dao.getById(horse.fatherId());
-        if (!father.dateOfBirth().isBefore(horse.dateOfBirth())) {
-          validationErrors.add("Father's date of birth must be before the horse's date of birth");
-        }
-        if (father.sex().equals(Sex.FEMALE)) {
-          validationErrors.add("Father should be male");
-        }
-      } catch (NotFoundException e) {
-        validationErrors.add("Father not found");
-      }
+    if (patch.has(HorseField.SEX) && patch.sex() == null) {
+      validationErrors.add("Horse gender (sex) is required");
     }
-
-    if (horse.ownerId() != null && horse.ownerId() <= 0) {
+    if (patch.has(HorseField.OWNER_ID) && patch.ownerId() != null && patch.ownerId() <= 0) {
       validationErrors.add("Invalid owner ID: must be a positive number");
     }
 
-    try {
-      Horse existing = dao.getById(horse.id());
-      List<Horse> children = dao.getChildrenByParentId(horse.id());
-      if (!children.isEmpty()) {
-        if (!existing.sex().equals(horse.sex())) {
-          for (Horse child : children) {
-            if (child.motherId() != null && child.motherId().equals(horse.id()) && horse.sex() != Sex.FEMALE) {
-              validationErrors.add("Cannot change parent's sex to " + horse.sex()
-                      + " because horse with ID " + child.id() + " lists this horse as its mother.");
-            }
-            if (child.fatherId() != null && child.fatherId().equals(horse.id()) && horse.sex() != Sex.MALE) {
-              validationErrors.add("Cannot change parent's sex to " + horse.sex()
-                      + " because horse with ID " + child.id() + " lists this horse as its father.");
-            }
-          }
-        }
-        if (!existing.dateOfBirth().equals(horse.dateOfBirth())) {
-          for (Horse child : children) {
-            if (!horse.dateOfBirth().isBefore(child.dateOfBirth())) {
-              validationErrors.add("Parent's new date of birth must be before the child's date of birth (child ID " + child.id() + ").");
-            }
-          }
-        }
+    boolean birthChanged = patch.has(HorseField.DATE_OF_BIRTH);
+    boolean lineageChanged = birthChanged || patch.has(HorseField.SEX)
+        || patch.has(HorseField.MOTHER_ID) || patch.has(HorseField.FATHER_ID);
+    if (lineageChanged && validationErrors.isEmpty()) {
+      HorseFamily family = dao.getFamily(patch.id(), patch.motherId(), patch.fatherId());
+      HorseLineage existing = family.horse();
+      if (existing == null) {
+        throw new NotFoundException("No horse with ID %d found".formatted(patch.id()));
+      }
+      LocalDate dateOfBirth = birthChanged ? patch.dateOfBirth() : existing.dateOfBirth();
+      Sex sex = patch.has(HorseField.SEX) ? patch.sex() : existing.sex();
+      if (patch.has(HorseField.MOTHER_ID) || birthChanged) {
+        Long motherId = patch.has(HorseField.MOTHER_ID) ? patch.motherId() : existing.motherId();
+        validateParent(patch.id(), motherId, family.relative(motherId), Sex.FEMALE, dateOfBirth, validationErrors);
+      }
+      if (patch.has(HorseField.FATHER_ID) || birthChanged) {
+        Long fatherId = patch.has(HorseField.FATHER_ID) ? patch.fatherId() : existing.fatherId();
+        validateParent(patch.id(), fatherId, family.relative(fatherId), Sex.MALE, dateOfBirth, validationErrors);
+      }
+      if (sex != existing.sex() || !dateOfBirth.equals(existing.dateOfBirth())) {
+        validateAsParent(patch.id(), family.children(), sex, dateOfBirth, validationErrors);
       }
-    } catch (NotFoundException e) {
-      validationErrors.add("Existing horse record not found for parent's update.");
     }
 
     if (!validationErrors.isEmpty()) {
-      throw new ValidationException("Validation of horse for update failed", validationErrors);
+      throw new ValidationException("Validation of horse patch failed", validationErrors);
     }
   }
 
@@ -171,78 +165,101 @@ public class HorseValidator {
     LOG.trace("validateForCreate({})", horse);
     List<String> validationErrors = new ArrayList<>();
 
-    if (horse.name() == null || horse.name().isBlank()) {
+    validateName(horse.name(), validationErrors);
+    validateDescription(horse.description(), validationErrors);
+    validateDateOfBirth(horse.dateOfBirth(), validationErrors);
+    if (horse.sex() == null) {
+      validationErrors.add("Horse gender (sex) is required");
+    }
+
+    // both parents in one query; the parents' birthdates are compared to the horse's own one
+    if (horse.dateOfBirth() != null && (horse.motherId() != null || horse.fatherId() != null)) {
+      Map<Long, HorseLineage> parents = dao.getLineagesById(
+          Stream.of(horse.motherId(), horse.fatherId()).filter(Objects::nonNull).toList());
+      validateParent(null, horse.motherId(), parents.get(horse.motherId()), Sex.FEMALE, horse.dateOfBirth(), validationErrors);
+      validateParent(null, horse.fatherId(), parents.get(horse.fatherId()), Sex.MALE, horse.dateOfBirth(), validationErrors);
+    }
+
+    if (horse.ownerId() != null && horse.ownerId() <= 0) {
+      validationErrors.add("Invalid owner ID: must be a positive number");
+    }
+
+    if (!validationErrors.isEmpty()) {
+      throw new ValidationException("Validation of horse for creation failed", validationErrors);
+    }
+  }
+
+  private void validateName(String name, List<String> validationErrors) {
+    if (name == null || name.isBlank()) {
       validationErrors.add("Horse name is required");
     } else {
-      if (horse.name().length() > 255) {
+      if (name.length() > 255) {
         validationErrors.add("Horse name too long: longer than 255 characters");
       }
-      String namePattern = "^[A-Z][a-zA-Z-]*$";
-      if (!horse.name().matches(namePattern)) {
+      if (!name.matches("^[A-Z][a-zA-Z-]*$")) {
         validationErrors.add("Horse name must start with a capital letter and contain only letters and suitable characters");
       }
     }
+  }
 
-    if (horse.description() != null) {
-      if (horse.description().isBlank()) {
+  private void validateDescription(String description, List<String> validationErrors) {
+    if (description != null) {
+      if (description.isBlank()) {
         validationErrors.add("Horse description is given but blank");
       }
-      if (horse.description().length() > 4095) {
+      if (description.length() > 4095) {
         validationErrors.add("Horse description too long: longer than 4095 characters");
       }
     }
+  }
 
-    if (horse.dateOfBirth() == null) {
+  private void validateDateOfBirth(LocalDate dateOfBirth, List<String> validationErrors) {
+    if (dateOfBirth == null) {
       validationErrors.add("Horse date of birth is required");
     } else {
-      if (horse.dateOfBirth().isAfter(java.time.LocalDate.now())) {
+      if (dateOfBirth.isAfter(LocalDate.now())) {
         validationErrors.add("Horse date of birth cannot be in the future");
       }
-      if (horse.dateOfBirth().isBefore(java.time.LocalDate.now().minusYears(62))) {
-        validationErrors.add("Horse date of birth indicates an age over 62 years, which is not allowed");
+      if (dateOfBirth.isBefore(LocalDate.now().minusYears(MAX_AGE_YEARS))) {
+        validationErrors.add("Horse date of birth indicates an age over " + MAX_AGE_YEARS + " years, which is not possible");
       }
     }
+  }
 
-    if (horse.sex() == null) {
-      validationErrors.add("Horse gender (sex) is required");
-    } else if (!horse.sex().toString().equals("MALE") && !horse.sex().toString().equals("FEMALE")) {
-      validationErrors.add("Invalid horse gender: must be 'MALE' or 'FEMALE'");
+  // the ID of a horse that is not created yet is null, as it cannot be its own parent
+  private void validateParent(Long id, Long parentId, HorseLineage parent, Sex parentSex, LocalDate dateOfBirth,
+                              List<String> validationErrors) {
+    if (parentId == null) {
+      return;
     }
-
-    if (horse.motherId() != null) {
-      try {
-        Horse mother = dao.getById(horse.motherId());
-        if (!mother.dateOfBirth().isBefore(horse.dateOfBirth())) {
-          validationErrors.add("Mother's date of birth should be before horse's date of birth");
-        }
-        if (mother.sex().equals(Sex.MALE)) {
-          validationErrors.add("Mother should be female");
-        }
-      } catch (NotFoundException e) {
-        validationErrors.add("Mother not found");
+    String role = parentSex == Sex.FEMALE ? "Mother" : "Father";
+    if (parentId.equals(id)) {
+      validationErrors.add("A horse cannot be its own " + role.toLowerCase());
+    } else if (parent == null) {
+      validationErrors.add(role + " not found");
+    } else {
+      if (!parent.dateOfBirth().isBefore(dateOfBirth)) {
+        validationErrors.add(role + "'s date of birth must be before the horse's date of birth");
       }
-    }
-
-    if (horse.fatherId() != null) {
-      try {
-        Horse father = dao.getById(horse.fatherId());
-        if (!father.dateOfBirth().isBefore(horse.dateOfBirth())) {
-          validationErrors.add("Father's date of birth should be before horse's date of birth");
-        }
-        if (father.sex().equals(Sex.FEMALE)) {
-          validationErrors.add("Father should be male");
-        }
-      } catch (NotFoundException e) {
-        validationErrors.add("Father not found");
+      if (parent.sex() != parentSex) {
+        validationErrors.add(role + " should be " + parentSex.toString().toLowerCase());
       }
     }
+  }
 
-    if (horse.ownerId() != null && horse.ownerId() <= 0) {
-      validationErrors.add("Invalid owner ID: must be a positive number");
-    }
-
-    if (!validationErrors.isEmpty()) {
-      throw new ValidationException("Validation of horse for creation failed", validationErrors);
+  private void validateAsParent(long id, List<HorseLineage> children, Sex sex, LocalDate dateOfBirth, List<String> validationErrors) {
+    for (HorseLineage child : children) {
+      if (child.motherId() != null && child.motherId() == id && sex != Sex.FEMALE) {
+        validationErrors.add("Cannot change parent's sex to " + sex
+            + " because horse with ID " + child.id() + " lists this horse as its mother.");
+      }
+      if (child.fatherId() != null && child.fatherId() == id && sex != Sex.MALE) {
+        validationErrors.add("Cannot change parent's sex to " + sex
+            + " because horse with ID " + child.id() + " lists this horse as its father.");
+      }
+      if (!dateOfBirth.isBefore(child.dateOfBirth())) {
+        validationErrors.add("Parent's new date of birth must be before the child's date of birth (child ID " + child.id() + ").");
+      }
     }
   }
 
@@ -263,6 +280,78 @@ public class HorseValidator {
     }
   }
 
+  /**
+   * Validates that a relationship is asked for between two different horses.
+   *
+   * @param id the ID of the one horse
+   * @param otherId the ID of the other horse
+   * @throws ValidationException if both IDs are the same
+   */
+  public void validateForRelationship(long id, long otherId) throws ValidationException {
+    LOG.trace("validateForRelationship({}, {})", id, otherId);
+    if (id == otherId) {
+      throw new ValidationException("Relationship of horse is invalid", List.of("A horse cannot be related to itself"));
+    }
+  }
+
+  /**
+   * Validates the paging parameters of a horse search.
+   * The page size must be positive, a given cursor must have been issued for the requested sort order,
+   * and sorting by relevance is only possible when searching by description or by fuzzy name.
+   * Ages must lie between 0 and the highest age a horse can have, and the lower bounds of the age and birthdate ranges must not exceed their upper bounds.
+   *
+   * @param searchParameters the search parameters to validate
+   * @throws ValidationException if the limit, the cursor or a range is invalid
+   */
+  public void validateForSearch(HorseSearchDto searchParameters) throws ValidationException {
+    LOG.trace("validateForSearch({})", searchParameters);
+    List<String> validationErrors = new ArrayList<>();
+
+    if (searchParameters.limit() != null && searchParameters.limit() < 1) {
+      validationErrors.add("Invalid page size: " + searchParameters.limit() + ", must be at least 1");
+    }
+
+    if (searchParameters.minAge() != null && searchParameters.minAge() < 0) {
+      validationErrors.add("Invalid minimum age: " + searchParameters.minAge() + ", must not be negative");
+    }
+    if (searchParameters.minAge() != null && searchParameters.minAge() > MAX_AGE_YEARS) {
+      validationErrors.add("Invalid minimum age: " + searchParameters.minAge() + ", must be at most " + MAX_AGE_YEARS);
+    }
+    if (searchParameters.maxAge() != null && searchParameters.maxAge() < 0) {
+      validationErrors.add("Invalid maximum age: " + searchParameters.maxAge() + ", must not be negative");
+    }
+    if (searchParameters.maxAge() != null && searchParameters.maxAge() > MAX_AGE_YEARS) {
+      validationErrors.add("Invalid maximum age: " + searchParameters.maxAge() + ", must be at most " + MAX_AGE_YEARS);
+    }
+    if (searchParameters.minAge() != null && searchParameters.maxAge() != null && searchParameters.minAge() > searchParameters.maxAge()) {
+      validationErrors.add("Minimum age " + searchParameters.minAge() + " is greater than maximum age " + searchParameters.maxAge());
+    }
+    if (searchParameters.bornAfter() != null && searchParameters.bornBefore() != null
+        && searchParameters.bornAfter().isAfter(searchParameters.bornBefore())) {
+      validationErrors.add("Earliest birthdate " + searchParameters.bornAfter() + " is after latest birthdate " + searchParameters.bornBefore());
+    }
+
+    if (searchParameters.sort() == HorseSortKey.RELEVANCE && !searchParameters.hasDescription() && !searchParameters.hasFuzzyName()) {
+      validationErrors.add("Sorting by relevance requires a description or a fuzzy name to search for");
+    }
+
+    if (searchParameters.cursor() != null && !searchParameters.cursor().isBlank()) {
+      try {
+        HorseSearchCursor cursor = HorseSearchCursor.decode(searchParameters.cursor());
+        HorseSortKey sortKey = searchParameters.sortOrDefault();
+        if (cursor.sortKey() != sortKey) {
+          validationErrors.add("Cursor was issued for sort order " + cursor.sortKey() + ", not " + sortKey);
+        }
+      } catch (IllegalArgumentException e) {
+        validationErrors.add("Invalid cursor: " + e.getMessage());
+      }
+    }
+
+    if (!validationErrors.isEmpty()) {
+      throw new ValidationException("Validation of horse search failed", validationErrors);
+    }
+  }
+
   /**
    * Validates a horse before deletion, ensuring it exists in the system.
    *
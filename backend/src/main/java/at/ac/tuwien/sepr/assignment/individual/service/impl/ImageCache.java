@@ -0,0 +1,267 @@
+package at.ac.tuwien.sepr.assignment.individual.service.impl;
+
+import at.ac.tuwien.sepr.assignment.individual.dto.ImageCacheStatsDto;
+import at.ac.tuwien.sepr.assignment.individual.exception.FatalException;
+import at.ac.tuwien.sepr.assignment.individual.exception.NotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Size-bounded LRU cache for the bytes of frequently requested images.
+ * Images are held in direct byte buffers outside the Java heap, so a full cache neither grows the heap
+ * nor adds to the work of the garbage collector. Images are read from the image store straight into
+ * these buffers, and cache hits are streamed from them through a read-only view. A hit is never copied into
+ * a heap array as a whole, but it is still copied chunk by chunk into the servlet's heap buffer as the response
+ * is written, so only one chunk per response is on the heap at a time.
+ * Entries are keyed by image hash (and variant); as stored images never change, entries only have to be
+ * invalidated once a horse no longer uses an image.
+ * The capacity bounds the bytes of the cached entries, not the off-heap memory: a direct buffer cannot be freed
+ * explicitly while a response may still be streaming from it, so the memory of an evicted or invalidated entry is only
+ * released once the garbage collector collects its buffer. Until then, the off-heap memory in use can exceed the
+ * capacity; the JVM bounds it as a whole with {@code -XX:MaxDirectMemorySize}.
+ */
+@Component
+public class ImageCache {
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  /** Fraction of the capacity a single image may take, so one large image cannot flush the whole cache. */
+  private static final int MAX_ENTRY_FRACTION = 8;
+
+  private final long capacityBytes;
+  private final long maxEntryBytes;
+  private final ReentrantLock lock = new ReentrantLock();
+  // access order turns the iteration order into least recently used first
+  private final LinkedHashMap<String, ByteBuffer> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long usedBytes;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  /**
+   * Functional interface for loading an image that is not cached yet.
+   */
+  @FunctionalInterface
+  public interface Loader {
+    /**
+     * Opens the image to cache.
+     *
+     * @return the image
+     * @throws NotFoundException if there is no such image
+     */
+    Resource load() throws NotFoundException;
+  }
+
+  /**
+   * Constructs a new {@code ImageCache} holding at most the given number of bytes.
+   *
+   * @param capacityBytes the maximum number of image bytes to keep off-heap
+   */
+  public ImageCache(@Value("${horse.image-cache.capacity-bytes}") long capacityBytes) {
+    this.capacityBytes = capacityBytes;
+    this.maxEntryBytes = capacityBytes / MAX_ENTRY_FRACTION;
+  }
+
+  /**
+   * Returns the cached image with the given key, loading and caching it first if necessary.
+   * Images too large to be cached are returned as loaded, without caching them.
+   *
+   * @param key the key of the image, i.e. its hash, followed by the name of its variant if it is one
+   * @param loader loads the image if it is not cached
+   * @return the image
+   * @throws NotFoundException if the image is not cached and the loader does not find it
+   */
+  public Resource get(String key, Loader loader) throws NotFoundException {
+    LOG.trace("get({})", key);
+    ByteBuffer cached;
+    lock.lock();
+    try {
+      cached = entries.get(key);
+    } finally {
+      lock.unlock();
+    }
+    if (cached != null) {
+      hits.increment();
+      return new ByteBufferResource(key, cached);
+    }
+
+    misses.increment();
+    Resource loaded = loader.load();
+    long length = contentLength(loaded);
+    if (length > maxEntryBytes) {
+      LOG.debug("Image {} with {} bytes is too large to be cached", key, length);
+      return loaded;
+    }
+    return new ByteBufferResource(key, put(key, readOffHeap(loaded, (int) length)));
+  }
+
+  /**
+   * Removes an image and all of its variants from the cache.
+   *
+   * @param hash the hash of the image to remove; {@code null} is ignored
+   */
+  public void invalidate(String hash) {
+    LOG.trace("invalidate({})", hash);
+    if (hash == null) {
+      return;
+    }
+    lock.lock();
+    try {
+      Iterator<Map.Entry<String, ByteBuffer>> iterator = entries.entrySet().iterator();
+      while (iterator.hasNext()) {
+        Map.Entry<String, ByteBuffer> entry = iterator.next();
+        if (entry.getKey().startsWith(hash)) {
+          usedBytes -= entry.getValue().capacity();
+          iterator.remove();
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the current counters of this cache.
+   *
+   * @return the hit, miss and eviction counters, and the current size of the cache
+   */
+  public ImageCacheStatsDto stats() {
+    lock.lock();
+    try {
+      return new ImageCacheStatsDto(hits.sum(), misses.sum(), evictions.sum(), entries.size(), usedBytes, capacityBytes);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private ByteBuffer put(String key, ByteBuffer buffer) {
+    lock.lock();
+    try {
+      ByteBuffer existing = entries.putIfAbsent(key, buffer);
+      if (existing != null) {
+        // a concurrent miss loaded the same image first
+        return existing;
+      }
+      usedBytes += buffer.capacity();
+      Iterator<Map.Entry<String, ByteBuffer>> eldest = entries.entrySet().iterator();
+      while (usedBytes > capacityBytes) {
+        Map.Entry<String, ByteBuffer> evicted = eldest.next();
+        // buffers still being streamed stay valid; their memory is released when the garbage collector collects them
+        usedBytes -= evicted.getValue().capacity();
+        eldest.remove();
+        evictions.increment();
+        LOG.debug("Evicted image {} from the cache", evicted.getKey());
+      }
+      return buffer;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private static ByteBuffer readOffHeap(Resource resource, int length) {
+    ByteBuffer buffer = ByteBuffer.allocateDirect(length);
+    try (ReadableByteChannel channel = resource.readableChannel()) {
+      while (buffer.hasRemaining()) {
+        if (channel.read(buffer) < 0) {
+          throw new FatalException("Image %s was truncated while caching it".formatted(resource.getDescription()));
+        }
+      }
+    } catch (IOException e) {
+      throw new FatalException("Could not read image %s to cache it".formatted(resource.getDescription()), e);
+    }
+    return buffer.flip().asReadOnlyBuffer();
+  }
+
+  private static long contentLength(Resource resource) {
+    try {
+      return resource.contentLength();
+    } catch (IOException e) {
+      throw new FatalException("Could not determine size of image " + resource.getDescription(), e);
+    }
+  }
+
+  /**
+   * Resource streaming a cached image from its off-heap buffer.
+   * Every stream reads through its own view of the buffer, so concurrent and partial reads do not interfere.
+   */
+  private static final class ByteBufferResource extends AbstractResource {
+    private final String key;
+    private final ByteBuffer buffer;
+
+    private ByteBufferResource(String key, ByteBuffer buffer) {
+      this.key = key;
+      this.buffer = buffer;
+    }
+
+    @Override
+    public InputStream getInputStream() {
+      return new ByteBufferInputStream(buffer.duplicate());
+    }
+
+    @Override
+    public long contentLength() {
+      return buffer.limit();
+    }
+
+    @Override
+    public String getDescription() {
+      return "cached image [" + key + "]";
+    }
+  }
+
+  /**
+   * Input stream over a byte buffer. Skipping moves the buffer position,
+   * so ranges at the end of a large image are served without reading what comes before them.
+   */
+  private static final class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer buffer;
+
+    private ByteBufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      if (len == 0) {
+        return 0;
+      }
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      int count = Math.min(len, buffer.remaining());
+      buffer.get(b, off, count);
+      return count;
+    }
+
+    @Override
+    public long skip(long n) {
+      int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+      buffer.position(buffer.position() + count);
+      return count;
+    }
+
+    @Override
+    public int available() {
+      return buffer.remaining();
+    }
+  }
+}
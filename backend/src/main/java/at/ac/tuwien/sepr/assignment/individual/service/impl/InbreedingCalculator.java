@@ -0,0 +1,272 @@
+package at.ac.tuwien.sepr.assignment.individual.service.impl;
+
+import at.ac.tuwien.sepr.assignment.individual.service.impl.GenealogyGraph.Snapshot;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Computes Wright's coefficient of inbreeding (COI) of the horses from the {@link GenealogyGraph}.
+ * Instead of counting the paths through every common ancestor, which takes exponential time in deep pedigrees,
+ * it uses the algorithm of Meuwissen and Luo: the horses are processed in birth order, so the coefficients of the
+ * parents are known when a horse is reached; the coefficient of a horse then follows from the contributions of its
+ * ancestors, which are collected in a single pass from the youngest to the oldest one.
+ * A single horse only takes the horses of its own pedigree into account; the whole registry is computed in one pass.
+ * The coefficients are cached per horse. When the parents of a horse change, the cached coefficients of that horse
+ * and of all its descendants are dropped, and computed again when they are next asked for. Storing the results of a
+ * computation and dropping coefficients exclude each other, so a computation that overlaps a change never caches
+ * coefficients of the lineage before the change.
+ */
+@Component
+public class InbreedingCalculator {
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private static final int NONE = GenealogyGraph.NONE;
+
+  private final GenealogyGraph genealogy;
+
+  // horse ID -> its coefficient of inbreeding, for the current lineage of the horse
+  private final Map<Long, Double> coefficients = new ConcurrentHashMap<>();
+
+  // counts the invalidations, so that a computation overlapping one does not cache its outdated results
+  private final AtomicLong invalidations = new AtomicLong();
+
+  // held while caching and while invalidating, so that no invalidation comes between the check of the count and the caching
+  private final Object cacheLock = new Object();
+
+  /**
+   * Constructs the {@code InbreedingCalculator} on the given lineage graph.
+   *
+   * @param genealogy the graph the pedigrees are taken from, whose changes invalidate the cached coefficients
+   */
+  public InbreedingCalculator(GenealogyGraph genealogy) {
+    this.genealogy = genealogy;
+    genealogy.addLineageListener(this::invalidate);
+  }
+
+  /**
+   * Computes the coefficient of inbreeding of a horse, i.e. the probability that both alleles at any locus
+   * are identical by descent.
+   *
+   * @param id the ID of the horse
+   * @return the coefficient of inbreeding of the horse, between 0 and 1, or {@code null} if there is no horse with that ID
+   */
+  public Double coefficientOfInbreeding(long id) {
+    LOG.trace("coefficientOfInbreeding({})", id);
+    Double cached = coefficients.get(id);
+    if (cached != null) {
+      return cached;
+    }
+    long version = invalidations.get();
+    Snapshot graph = genealogy.snapshot();
+    int index = graph.indexOf(id);
+    if (index == NONE) {
+      return null;
+    }
+    Pedigree pedigree = new Pedigree(graph, ancestorsInBirthOrder(graph, index));
+    pedigree.computeAll();
+    cache(pedigree, version);
+    return pedigree.inbreeding[pedigree.positionOf(index)];
+  }
+
+  /**
+   * Computes the coefficients of inbreeding of all horses in a single pass.
+   *
+   * @return the coefficient of inbreeding of each horse, by horse ID
+   */
+  public Map<Long, Double> coefficientsOfInbreeding() {
+    LOG.trace("coefficientsOfInbreeding()");
+    long version = invalidations.get();
+    Snapshot graph = genealogy.snapshot();
+    Pedigree pedigree = new Pedigree(graph, graph.birthOrder());
+    pedigree.computeAll();
+    cache(pedigree, version);
+    Map<Long, Double> all = new HashMap<>();
+    for (int position = 0; position < pedigree.order.length; position++) {
+      all.put(graph.id(pedigree.order[position]), pedigree.inbreeding[position]);
+    }
+    return all;
+  }
+
+  /**
+   * Computes the kinship coefficient of two horses, i.e. the probability that an allele drawn from each of them
+   * at the same locus is identical by descent. It is the coefficient of inbreeding a foal of the two would have.
+   *
+   * @param id the ID of the one horse
+   * @param otherId the ID of the other horse
+   * @return the kinship coefficient of the two horses, or {@code null} if there is no horse with one of the IDs
+   */
+  public Double kinship(long id, long otherId) {
+    LOG.trace("kinship({}, {})", id, otherId);
+    long version = invalidations.get();
+    Snapshot graph = genealogy.snapshot();
+    int index = graph.indexOf(id);
+    int otherIndex = graph.indexOf(otherId);
+    if (index == NONE || otherIndex == NONE) {
+      return null;
+    }
+    Pedigree pedigree = new Pedigree(graph, ancestorsInBirthOrder(graph, index, otherIndex));
+    pedigree.computeAll();
+    cache(pedigree, version);
+    return pedigree.offspringInbreeding(pedigree.positionOf(index), pedigree.positionOf(otherIndex));
+  }
+
+  private void cache(Pedigree pedigree, long version) {
+    synchronized (cacheLock) {
+      if (invalidations.get() != version) {
+        return;
+      }
+      for (int position = 0; position < pedigree.order.length; position++) {
+        coefficients.put(pedigree.graph.id(pedigree.order[position]), pedigree.inbreeding[position]);
+      }
+    }
+  }
+
+  private void invalidate(Snapshot before, int index) {
+    if (index == NONE) {
+      synchronized (cacheLock) {
+        invalidations.incrementAndGet();
+        coefficients.clear();
+      }
+      return;
+    }
+    // a single sweep in birth order finds all descendants, as every horse comes after its parents
+    BitSet affected = new BitSet();
+    affected.set(index);
+    for (int horse : before.birthOrder()) {
+      int mother = before.mother(horse);
+      int father = before.father(horse);
+      if (mother != NONE && affected.get(mother) || father != NONE && affected.get(father)) {
+        affected.set(horse);
+      }
+    }
+    synchronized (cacheLock) {
+      invalidations.incrementAndGet();
+      affected.stream().forEach(horse -> coefficients.remove(before.id(horse)));
+    }
+    LOG.debug("Lineage of horse {} changed, dropped the inbreeding coefficients of {} horses", before.id(index), affected.cardinality());
+  }
+
+  private static int[] ancestorsInBirthOrder(Snapshot graph, int... indexes) {
+    BitSet seen = new BitSet();
+    Deque<Integer> pending = new ArrayDeque<>();
+    for (int index : indexes) {
+      seen.set(index);
+      pending.push(index);
+    }
+    while (!pending.isEmpty()) {
+      int horse = pending.pop();
+      for (int parent : new int[] {graph.mother(horse), graph.father(horse)}) {
+        if (parent != NONE && !seen.get(parent)) {
+          seen.set(parent);
+          pending.push(parent);
+        }
+      }
+    }
+    return seen.stream()
+        .boxed()
+        .sorted(Comparator.comparingInt(graph::epochDayOfBirth).thenComparingInt(horse -> horse))
+        .mapToInt(Integer::intValue)
+        .toArray();
+  }
+
+  /**
+   * The horses of a pedigree in birth order, with the state of the algorithm of Meuwissen and Luo.
+   * Horses are addressed by their position in the order; every horse of the pedigree has its parents in it as well.
+   */
+  private static final class Pedigree {
+    private final Snapshot graph;
+    private final int[] order;
+    private final Map<Integer, Integer> positions = new HashMap<>();
+    private final int[] mothers;
+    private final int[] fathers;
+    private final double[] inbreeding;
+    // the Mendelian sampling variance of each horse, the diagonal of D in A = L D L'
+    private final double[] variances;
+    // scratch space for the column of L of the horse being computed, zero outside of a computation
+    private final double[] contributions;
+
+    private Pedigree(Snapshot graph, int[] order) {
+      this.graph = graph;
+      this.order = order;
+      for (int position = 0; position < order.length; position++) {
+        positions.put(order[position], position);
+      }
+      mothers = new int[order.length];
+      fathers = new int[order.length];
+      for (int position = 0; position < order.length; position++) {
+        mothers[position] = positionOf(graph.mother(order[position]));
+        fathers[position] = positionOf(graph.father(order[position]));
+      }
+      inbreeding = new double[order.length];
+      variances = new double[order.length];
+      contributions = new double[order.length];
+    }
+
+    private int positionOf(int index) {
+      return index == NONE ? NONE : positions.get(index);
+    }
+
+    private void computeAll() {
+      for (int position = 0; position < order.length; position++) {
+        boolean fullSibling = position > 0
+            && mothers[position] != NONE && fathers[position] != NONE
+            && mothers[position] == mothers[position - 1] && fathers[position] == fathers[position - 1];
+        // full siblings born in a row share their parents, so they share their coefficient as well
+        inbreeding[position] = fullSibling ? inbreeding[position - 1] : offspringInbreeding(mothers[position], fathers[position]);
+        variances[position] = variance(mothers[position], fathers[position]);
+      }
+    }
+
+    /**
+     * The coefficient of inbreeding of an offspring of the given parents, i.e. their kinship coefficient.
+     * The coefficients of the parents and all their ancestors have to be computed already.
+     */
+    private double offspringInbreeding(int mother, int father) {
+      if (mother == NONE || father == NONE) {
+        return 0;
+      }
+      // the ancestors are visited from the youngest to the oldest, so every contribution to an ancestor
+      // is complete once it is visited
+      PriorityQueue<Integer> pending = new PriorityQueue<>(Comparator.reverseOrder());
+      double relationship = variance(mother, father);
+      contribute(pending, mother, 0.5);
+      contribute(pending, father, 0.5);
+      while (!pending.isEmpty()) {
+        int ancestor = pending.poll();
+        double contribution = contributions[ancestor];
+        contributions[ancestor] = 0;
+        relationship += contribution * contribution * variances[ancestor];
+        contribute(pending, mothers[ancestor], contribution / 2);
+        contribute(pending, fathers[ancestor], contribution / 2);
+      }
+      return relationship - 1;
+    }
+
+    private void contribute(PriorityQueue<Integer> pending, int ancestor, double contribution) {
+      if (ancestor == NONE) {
+        return;
+      }
+      if (contributions[ancestor] == 0) {
+        pending.add(ancestor);
+      }
+      contributions[ancestor] += contribution;
+    }
+
+    private double variance(int mother, int father) {
+      double known = (mother == NONE ? 0 : 1) + (father == NONE ? 0 : 1);
+      double parentInbreeding = (mother == NONE ? 0 : inbreeding[mother]) + (father == NONE ? 0 : inbreeding[father]);
+      return 1 - known / 4 - parentInbreeding / 4;
+    }
+  }
+}
@@ -0,0 +1,169 @@
+package at.ac.tuwien.sepr.assignment.individual.service.impl;
+
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseCommonAncestorDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseRelationshipDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseSuggestionDto;
+import at.ac.tuwien.sepr.assignment.individual.service.impl.GenealogyGraph.Snapshot;
+import java.lang.invoke.MethodHandles;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Finds out how two horses are related, from the {@link GenealogyGraph}.
+ * The ancestors of both horses are searched breadth-first at the same time, always one more generation on the side
+ * that is fewer generations up. A common ancestor is found as soon as one side reaches an ancestor the other side
+ * has already reached. The search stops once every ancestor that is still unknown to either side is too many
+ * generations up to be nearer than the nearest common ancestor found, so only the generations up to the nearest
+ * common ancestors are searched, however deep the pedigrees are.
+ */
+@Component
+public class RelationshipFinder {
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private static final int NONE = GenealogyGraph.NONE;
+
+  private final GenealogyGraph genealogy;
+  private final InbreedingCalculator inbreeding;
+
+  /**
+   * Constructs the {@code RelationshipFinder} on the given lineage graph.
+   *
+   * @param genealogy the graph the ancestors are searched in
+   * @param inbreeding the calculator of the kinship coefficients
+   */
+  public RelationshipFinder(GenealogyGraph genealogy, InbreedingCalculator inbreeding) {
+    this.genealogy = genealogy;
+    this.inbreeding = inbreeding;
+  }
+
+  /**
+   * The part of the search going up from one of the horses.
+   */
+  private static final class Side {
+    // ancestor -> the number of generations it is above the horse, for all ancestors reached so far
+    private final Map<Integer, Integer> generations = new HashMap<>();
+    // ancestor -> the child it was reached from, to walk back down to the horse
+    private final Map<Integer, Integer> reachedFrom = new HashMap<>();
+    private List<Integer> frontier;
+    private int level;
+
+    private Side(int index) {
+      generations.put(index, 0);
+      frontier = List.of(index);
+    }
+
+    private boolean exhausted() {
+      return frontier.isEmpty();
+    }
+  }
+
+  /**
+   * Finds the nearest common ancestors of two horses, the path between the horses through the first of them,
+   * and the kinship coefficient of the horses.
+   *
+   * @param id the ID of the one horse
+   * @param otherId the ID of the other horse
+   * @return the relationship of the two horses, or {@code null} if there is no horse with one of the IDs
+   */
+  public HorseRelationshipDto relationship(long id, long otherId) {
+    LOG.trace("relationship({}, {})", id, otherId);
+    Snapshot graph = genealogy.snapshot();
+    int index = graph.indexOf(id);
+    int otherIndex = graph.indexOf(otherId);
+    if (index == NONE || otherIndex == NONE) {
+      return null;
+    }
+
+    Side side = new Side(index);
+    Side otherSide = new Side(otherIndex);
+    List<Integer> nearest = new ArrayList<>();
+    int nearestGenerations = Integer.MAX_VALUE;
+    while (!(side.exhausted() && otherSide.exhausted()) && unknownAncestorsAtLeast(side, otherSide) <= nearestGenerations) {
+      Side expanding = next(side, otherSide);
+      Side waiting = expanding == side ? otherSide : side;
+      expanding.level++;
+      List<Integer> reached = new ArrayList<>();
+      for (int child : expanding.frontier) {
+        for (int parent : new int[] {graph.mother(child), graph.father(child)}) {
+          if (parent == NONE || expanding.generations.containsKey(parent)) {
+            continue;
+          }
+          expanding.generations.put(parent, expanding.level);
+          expanding.reachedFrom.put(parent, child);
+          reached.add(parent);
+          Integer waitingGenerations = waiting.generations.get(parent);
+          if (waitingGenerations != null) {
+            int total = expanding.level + waitingGenerations;
+            if (total < nearestGenerations) {
+              nearestGenerations = total;
+              nearest.clear();
+            }
+            if (total == nearestGenerations) {
+              nearest.add(parent);
+            }
+          }
+        }
+      }
+      expanding.frontier = reached;
+    }
+    LOG.debug("Searched {} and {} ancestors of horses {} and {}", side.generations.size(), otherSide.generations.size(), id, otherId);
+
+    nearest.sort(Comparator.comparingInt((Integer ancestor) -> side.generations.get(ancestor)).thenComparingLong(graph::id));
+    List<HorseCommonAncestorDto> commonAncestors = nearest.stream()
+        .map(ancestor -> new HorseCommonAncestorDto(graph.id(ancestor), graph.name(ancestor),
+            side.generations.get(ancestor), otherSide.generations.get(ancestor)))
+        .toList();
+    List<HorseSuggestionDto> path = nearest.isEmpty() ? List.of() : path(graph, nearest.getFirst(), side, otherSide);
+    Double kinship = inbreeding.kinship(id, otherId);
+    return new HorseRelationshipDto(id, otherId, commonAncestors, path, kinship == null ? 0 : kinship);
+  }
+
+  /**
+   * The fewest generations between the two horses through a common ancestor that has not been found yet:
+   * such an ancestor has not been reached by at least one side, which has to go at least one generation further.
+   */
+  private static int unknownAncestorsAtLeast(Side side, Side otherSide) {
+    int generations = Integer.MAX_VALUE;
+    if (!side.exhausted()) {
+      generations = side.level + 1;
+    }
+    if (!otherSide.exhausted()) {
+      generations = Math.min(generations, otherSide.level + 1);
+    }
+    return generations;
+  }
+
+  private static Side next(Side side, Side otherSide) {
+    if (side.exhausted() || otherSide.exhausted()) {
+      return side.exhausted() ? otherSide : side;
+    }
+    if (side.level != otherSide.level) {
+      return side.level < otherSide.level ? side : otherSide;
+    }
+    return side.frontier.size() <= otherSide.frontier.size() ? side : otherSide;
+  }
+
+  private static List<HorseSuggestionDto> path(Snapshot graph, int ancestor, Side side, Side otherSide) {
+    List<HorseSuggestionDto> path = new ArrayList<>();
+    for (Integer horse = ancestor; horse != null; horse = side.reachedFrom.get(horse)) {
+      path.add(step(graph, horse));
+    }
+    Collections.reverse(path);
+    for (Integer horse = otherSide.reachedFrom.get(ancestor); horse != null; horse = otherSide.reachedFrom.get(horse)) {
+      path.add(step(graph, horse));
+    }
+    return path;
+  }
+
+  private static HorseSuggestionDto step(Snapshot graph, int index) {
+    return new HorseSuggestionDto(graph.id(index), graph.name(index), LocalDate.ofEpochDay(graph.epochDayOfBirth(index)), graph.sex(index));
+  }
+}
@@ -0,0 +1,268 @@
+package at.ac.tuwien.sepr.assignment.individual.service.impl;
+
+import at.ac.tuwien.sepr.assignment.individual.exception.FatalException;
+import at.ac.tuwien.sepr.assignment.individual.exception.NotFoundException;
+import at.ac.tuwien.sepr.assignment.individual.persistence.ImageStore;
+import at.ac.tuwien.sepr.assignment.individual.type.ImageFormat;
+import jakarta.annotation.PreDestroy;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Generates and serves fixed-width thumbnails of the images in the {@link ImageStore}.
+ * Thumbnails are stored as variants of their original image, named after their width (e.g. {@code w128}).
+ * After an upload, all thumbnails of the image are generated in the background on a small, bounded thread pool.
+ * A thumbnail that is requested before it exists is generated on demand; concurrent requests for the same
+ * missing thumbnail wait for one shared generation instead of each resizing the image themselves.
+ * Images are only decoded if they have at most {@link #MAX_PIXELS} pixels, as a small file can decode to a huge image.
+ * If no thumbnail can be generated (the image is too narrow, too large or cannot be decoded), an empty variant is
+ * stored as a marker, so the original is served from then on without looking at the image again.
+ */
+@Component
+public class ThumbnailGenerator {
+  private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  /** The widths thumbnails are generated in, in pixels. */
+  public static final List<Integer> WIDTHS = List.of(64, 128, 256);
+
+  /** The largest number of pixels an image may have to be decoded, which bounds the memory of one generation. */
+  public static final long MAX_PIXELS = 25L * 1000 * 1000;
+
+  private static final int THREADS = 2;
+  private static final int QUEUE_CAPACITY = 64;
+
+  private final ImageStore imageStore;
+  private final ThreadPoolExecutor executor;
+  private final ConcurrentMap<String, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+
+  /**
+   * Constructs a new {@code ThumbnailGenerator} storing its thumbnails in the given image store.
+   *
+   * @param imageStore the image store the originals are read from and the thumbnails are stored in
+   */
+  public ThumbnailGenerator(ImageStore imageStore) {
+    this.imageStore = imageStore;
+    AtomicInteger threadNumber = new AtomicInteger();
+    this.executor = new ThreadPoolExecutor(
+        THREADS, THREADS, 0, TimeUnit.SECONDS,
+        new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+        runnable -> {
+          Thread thread = new Thread(runnable, "thumbnail-" + threadNumber.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+  }
+
+  /**
+   * Checks whether thumbnails are generated in the given width.
+   *
+   * @param width the width to check, in pixels
+   * @return {@code true} if {@code width} is one of the {@link #WIDTHS}
+   */
+  public boolean isSupportedWidth(int width) {
+    return WIDTHS.contains(width);
+  }
+
+  /**
+   * Schedules the generation of all thumbnails of the given image in the background.
+   * If the thread pool is saturated, the thumbnails are left to be generated on first request.
+   *
+   * @param hash the hash of the original image in the image store
+   */
+  public void generateAllAsync(String hash) {
+    LOG.trace("generateAllAsync({})", hash);
+    for (int width : WIDTHS) {
+      generate(hash, width, false);
+    }
+  }
+
+  /**
+   * Returns the thumbnail of the given image in the given width, generating it first if necessary.
+   * Images that are narrower than the requested width, larger than {@link #MAX_PIXELS} or cannot be decoded,
+   * are returned unchanged.
+   *
+   * @param hash the hash of the original image in the image store
+   * @param width the width of the thumbnail, one of the {@link #WIDTHS}
+   * @return the thumbnail, or the original image if no thumbnail could be generated
+   * @throws NotFoundException if the original image is not in the image store
+   */
+  public Resource getThumbnail(String hash, int width) throws NotFoundException {
+    LOG.trace("getThumbnail({}, {})", hash, width);
+    String variant = variantName(width);
+    if (!imageStore.existsVariant(hash, variant)) {
+      try {
+        generate(hash, width, true).join();
+      } catch (CompletionException e) {
+        throw new FatalException("Could not generate thumbnail %s of image %s".formatted(variant, hash), e.getCause());
+      }
+    }
+    if (!imageStore.existsVariant(hash, variant)) {
+      return imageStore.load(hash);
+    }
+    Resource thumbnail = imageStore.loadVariant(hash, variant);
+    try {
+      return thumbnail.contentLength() == 0 ? imageStore.load(hash) : thumbnail;
+    } catch (IOException e) {
+      throw new FatalException("Could not read thumbnail %s of image %s".formatted(variant, hash), e);
+    }
+  }
+
+  /**
+   * Returns the future of the generation of one thumbnail, starting the generation if none is running yet.
+   * All callers asking for the same thumbnail while it is being generated share the same future.
+   * If the thread pool is saturated, the generation either runs in the calling thread,
+   * or is skipped to be done on demand later.
+   */
+  private CompletableFuture<Void> generate(String hash, int width, boolean runInCallerIfSaturated) {
+    String key = hash + "." + variantName(width);
+    CompletableFuture<Void> generation = new CompletableFuture<>();
+    CompletableFuture<Void> running = inFlight.putIfAbsent(key, generation);
+    if (running != null) {
+      return running;
+    }
+
+    Runnable task = () -> {
+      try {
+        resize(hash, width);
+        generation.complete(null);
+      } catch (RuntimeException e) {
+        generation.completeExceptionally(e);
+      } finally {
+        inFlight.remove(key, generation);
+      }
+    };
+    try {
+      executor.execute(task);
+    } catch (RejectedExecutionException e) {
+      if (runInCallerIfSaturated) {
+        task.run();
+      } else {
+        LOG.debug("Thumbnail pool saturated, thumbnail {} will be generated on demand", key);
+        inFlight.remove(key, generation);
+        generation.complete(null);
+      }
+    }
+    return generation;
+  }
+
+  private void resize(String hash, int width) {
+    String variant = variantName(width);
+    if (imageStore.existsVariant(hash, variant)) {
+      return;
+    }
+    byte[] thumbnail;
+    try (InputStream in = new BufferedInputStream(imageStore.load(hash).getInputStream())) {
+      thumbnail = thumbnail(hash, variant, width, in);
+    } catch (NotFoundException e) {
+      throw new FatalException("Could not read image %s to generate thumbnail %s".formatted(hash, variant), e);
+    } catch (IOException e) {
+      LOG.warn("Image {} is corrupt, not generating thumbnail {}: {}", hash, variant, e.getMessage());
+      thumbnail = null;
+    }
+    // the marker is stored as well, so that every later request serves the original without decoding it again
+    imageStore.storeVariant(hash, variant, thumbnail == null ? new byte[0] : thumbnail);
+    if (thumbnail != null) {
+      LOG.debug("Generated thumbnail {} of image {}", variant, hash);
+    }
+  }
+
+  /**
+   * Scales the image read from the given stream down to the given width.
+   * The dimensions are read from the header before anything is decoded, so too large images are never decoded.
+   *
+   * @return the encoded thumbnail, or {@code null} if the original is to be served instead
+   */
+  private static byte[] thumbnail(String hash, String variant, int width, InputStream in) throws IOException {
+    in.mark(ImageFormat.MAGIC_LENGTH);
+    byte[] header = in.readNBytes(ImageFormat.MAGIC_LENGTH);
+    ImageFormat format = ImageFormat.sniff(header, header.length);
+    in.reset();
+    if (format == null || !ImageIO.getImageWritersByFormatName(format.imageIoName()).hasNext()) {
+      LOG.debug("Image {} cannot be encoded, not generating thumbnail {}", hash, variant);
+      return null;
+    }
+
+    BufferedImage original;
+    try (ImageInputStream images = ImageIO.createImageInputStream(in)) {
+      Iterator<ImageReader> readers = images == null ? Collections.emptyIterator() : ImageIO.getImageReaders(images);
+      if (!readers.hasNext()) {
+        LOG.debug("Image {} cannot be decoded, not generating thumbnail {}", hash, variant);
+        return null;
+      }
+      ImageReader reader = readers.next();
+      try {
+        reader.setInput(images, true, true);
+        int originalWidth = reader.getWidth(0);
+        int originalHeight = reader.getHeight(0);
+        if ((long) originalWidth * originalHeight > MAX_PIXELS) {
+          LOG.warn("Image {} has {}x{} pixels, more than {}, not generating thumbnail {}", hash, originalWidth, originalHeight, MAX_PIXELS, variant);
+          return null;
+        }
+        if (originalWidth <= width) {
+          LOG.debug("Image {} is only {} pixels wide, not generating thumbnail {}", hash, originalWidth, variant);
+          return null;
+        }
+        original = reader.read(0);
+      } finally {
+        reader.dispose();
+      }
+    }
+
+    int height = Math.max(1, Math.round((float) original.getHeight() * width / original.getWidth()));
+    boolean keepAlpha = original.getColorModel().hasAlpha() && format != ImageFormat.JPEG;
+    BufferedImage thumbnail = new BufferedImage(width, height, keepAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+    Graphics2D graphics = thumbnail.createGraphics();
+    try {
+      graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+      graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+      graphics.drawImage(original, 0, 0, width, height, null);
+    } finally {
+      graphics.dispose();
+    }
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try {
+      ImageIO.write(thumbnail, format.imageIoName(), out);
+    } catch (IOException e) {
+      throw new FatalException("Could not encode thumbnail %s of image %s".formatted(variant, hash), e);
+    }
+    return out.toByteArray();
+  }
+
+  private static String variantName(int width) {
+    return "w" + width;
+  }
+
+  /**
+   * Stops the thumbnail thread pool; thumbnails that were not generated yet are generated on demand later.
+   */
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+}
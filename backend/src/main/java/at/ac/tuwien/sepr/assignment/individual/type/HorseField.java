@@ -0,0 +1,56 @@
+package at.ac.tuwien.sepr.assignment.individual.type;
+
+/**
+ * Enum representing the attributes of a horse that can be changed individually by a patch.
+ * Each field knows its property name in JSON and its column in the horse table.
+ */
+public enum HorseField {
+  NAME("name", "name"),
+  DESCRIPTION("description", "description"),
+  DATE_OF_BIRTH("dateOfBirth", "date_of_birth"),
+  SEX("sex", "sex"),
+  OWNER_ID("ownerId", "owner_id"),
+  MOTHER_ID("motherId", "mother_id"),
+  FATHER_ID("fatherId", "father_id");
+
+  private final String jsonName;
+  private final String column;
+
+  HorseField(String jsonName, String column) {
+    this.jsonName = jsonName;
+    this.column = column;
+  }
+
+  /**
+   * Returns the name of this field in JSON documents.
+   *
+   * @return the JSON property name, e.g. {@code dateOfBirth}
+   */
+  public String jsonName() {
+    return jsonName;
+  }
+
+  /**
+   * Returns the column this field is stored in.
+   *
+   * @return the column name, e.g. {@code date_of_birth}
+   */
+  public String column() {
+    return column;
+  }
+
+  /**
+   * Looks up the field with the given JSON property name.
+   *
+   * @param jsonName the JSON property name
+   * @return the field, or {@code null} if no field has this name
+   */
+  public static HorseField ofJsonName(String jsonName) {
+    for (HorseField field : values()) {
+      if (field.jsonName.equals(jsonName)) {
+        return field;
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,12 @@
+package at.ac.tuwien.sepr.assignment.individual.type;
+
+/**
+ * Enum representing the orders in which a horse search can be paged through.
+ * Every order is made unique by using the horse's ID as the final tie-breaker.
+ */
+public enum HorseSortKey {
+  NAME,
+  DATE_OF_BIRTH,
+  /** Best matches of the description or fuzzy name search first; only available when searching by one of them. */
+  RELEVANCE
+}
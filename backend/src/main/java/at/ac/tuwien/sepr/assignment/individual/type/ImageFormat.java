@@ -0,0 +1,67 @@
+package at.ac.tuwien.sepr.assignment.individual.type;
+
+import java.util.Arrays;
+
+/**
+ * Enum representing the image formats horse images may be stored in.
+ * Each format is recognized by the magic bytes its files start with, so the actual format of an image
+ * can be determined from its content instead of trusting the MIME type a client claims.
+ */
+public enum ImageFormat {
+  PNG("image/png", "png", new byte[] {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'}),
+  JPEG("image/jpeg", "jpeg", new byte[] {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF}),
+  GIF("image/gif", "gif", new byte[] {'G', 'I', 'F', '8'}),
+  WEBP("image/webp", "webp", new byte[] {'R', 'I', 'F', 'F'});
+
+  /** Number of leading bytes of an image that suffice to recognize its format. */
+  public static final int MAGIC_LENGTH = 12;
+
+  private final String mimeType;
+  private final String imageIoName;
+  private final byte[] magic;
+
+  ImageFormat(String mimeType, String imageIoName, byte[] magic) {
+    this.mimeType = mimeType;
+    this.imageIoName = imageIoName;
+    this.magic = magic;
+  }
+
+  /**
+   * Returns the MIME type of this format.
+   *
+   * @return the MIME type, e.g. {@code image/png}
+   */
+  public String mimeType() {
+    return mimeType;
+  }
+
+  /**
+   * Returns the name {@link javax.imageio.ImageIO} knows this format by.
+   *
+   * @return the ImageIO format name, e.g. {@code png}
+   */
+  public String imageIoName() {
+    return imageIoName;
+  }
+
+  /**
+   * Determines the format of an image from its leading bytes.
+   *
+   * @param header the first bytes of the image, ideally at least {@link #MAGIC_LENGTH} of them
+   * @param length the number of valid bytes in {@code header}
+   * @return the recognized format, or {@code null} if the bytes do not start any known image format
+   */
+  public static ImageFormat sniff(byte[] header, int length) {
+    for (ImageFormat format : values()) {
+      if (length >= format.magic.length
+          && Arrays.equals(header, 0, format.magic.length, format.magic, 0, format.magic.length)) {
+        // RIFF is a generic container, only the form type at offset 8 makes it a WebP image
+        if (format == WEBP && (length < MAGIC_LENGTH || !Arrays.equals(header, 8, 12, new byte[] {'W', 'E', 'B', 'P'}, 0, 4))) {
+          continue;
+        }
+        return format;
+      }
+    }
+    return null;
+  }
+}
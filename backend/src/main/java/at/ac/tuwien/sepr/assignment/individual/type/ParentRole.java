@@ -0,0 +1,25 @@
+package at.ac.tuwien.sepr.assignment.individual.type;
+
+/**
+ * Enum representing the role a horse can take in the lineage of another horse.
+ * Each role can only be taken by horses of one sex.
+ */
+public enum ParentRole {
+  MOTHER(Sex.FEMALE),
+  FATHER(Sex.MALE);
+
+  private final Sex sex;
+
+  ParentRole(Sex sex) {
+    this.sex = sex;
+  }
+
+  /**
+   * Returns the sex a horse must have to take this role.
+   *
+   * @return {@link Sex#FEMALE} for mothers, {@link Sex#MALE} for fathers
+   */
+  public Sex sex() {
+    return sex;
+  }
+}
@@ -29,29 +29,29 @@ VALUES (-10, 'Jax', 'Davis', 'I am Jax');
 INSERT INTO horse (id, name, description, date_of_birth, sex)
 VALUES (-1, 'Wendy', 'The famous one!', '2012-12-12', 'FEMALE');
 
-INSERT INTO horse (id, name, description, date_of_birth, sex, owner_id, mother_id, father_id, image, image_type)
+INSERT INTO horse (id, name, description, date_of_birth, sex, owner_id, mother_id, father_id, image_hash, image_type)
 VALUES (-2, 'Max', 'A strong stallion', '2010-05-15', 'MALE', -2, NULL, NULL, NULL, NULL);
 
-INSERT INTO horse (id, name, description, date_of_birth, sex, owner_id, mother_id, father_id, image, image_type)
+INSERT INTO horse (id, name, description, date_of_birth, sex, owner_id, mother_id, father_id, image_hash, image_type)
 VALUES (-3, 'Bella', 'Child of Wendy and Max', '2015-06-20', 'FEMALE', -3, -1, -2, NULL, NULL);
 
-INSERT INTO horse (id, name, description, date_of_birth, sex, owner_id, mother_id, father_id, image, image_type)
+INSERT INTO horse (id, name, description, date_of_birth, sex, owner_id, mother_id, father_id, image_hash, image_type)
 VALUES (-4, 'Daisy', 'Child of Wendy and Max', '2016-08-01', 'FEMALE', -4, -1, -2, NULL, NULL);
 
-INSERT INTO horse (id, name, description, date_of_birth, sex, owner_id, mother_id, father_id, image, image_type)
+INSERT INTO horse (id, name, description, date_of_birth, sex, owner_id, mother_id, father_id, image_hash, image_type)
 VALUES (-5, 'Jason', 'Child of Bella, grandchild of Wendy and Max', '2018-07-10', 'MALE', -5, -3, NULL, NULL, NULL);
 
-INSERT INTO horse (id, name, description, date_of_birth, sex, owner_id, mother_id, father_id, image, image_type)
+INSERT INTO horse (id, name, description, date_of_birth, sex, owner_id, mother_id, father_id, image_hash, image_type)
 VALUES (-6, 'Sam', 'Sam', '2011-04-04', 'MALE', -6, NULL, NULL, NULL, NULL);
 
-INSERT INTO horse (id, name, description, date_of_birth, sex, owner_id, mother_id, father_id, image, image_type)
+INSERT INTO horse (id, name, description, date_of_birth, sex, owner_id, mother_id, father_id, image_hash, image_type)
 VALUES (-7, 'Jenny', 'Child of Bella and Sam', '2018-09-09', 'FEMALE', -7, -3, -6, NULL, NULL);
 
-INSERT INTO horse (id, name, description, date_of_birth, sex, owner_id, mother_id, father_id, image, image_type)
+INSERT INTO horse (id, name, description, date_of_birth, sex, owner_id, mother_id, father_id, image_hash, image_type)
 VALUES (-8, 'Leo', 'Child of Jenny', '2020-01-15', 'MALE', -8, -7, NULL, NULL, NULL);
 
-INSERT INTO horse (id, name, description, date_of_birth, sex, owner_id, mother_id, father_id, image, image_type)
+INSERT INTO horse (id, name, description, date_of_birth, sex, owner_id, mother_id, father_id, image_hash, image_type)
 VALUES (-9, 'Mia', 'Child of Daisy and Max', '2019-03-10', 'FEMALE', -9, -4, -2, NULL, NULL);
 
-INSERT INTO horse (id, name, description, date_of_birth, sex, owner_id, mother_id, father_id, image, image_type)
+INSERT INTO horse (id, name, description, date_of_birth, sex, owner_id, mother_id, father_id, image_hash, image_type)
 VALUES (-10, 'Bob', 'Child of Mia and Leo', '2022-05-20', 'MALE', -10, -9, -8, NULL, NULL);
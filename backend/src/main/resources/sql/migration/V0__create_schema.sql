@@ -17,11 +17,16 @@ CREATE TABLE IF NOT EXISTS horse
   owner_id BIGINT,
   mother_id BIGINT,
   father_id BIGINT,
-  image BLOB,
+  image_hash VARCHAR(64),
   image_type VARCHAR(50),
   CONSTRAINT FK_Owner FOREIGN KEY (owner_id) REFERENCES owner(id) ON DELETE SET NULL,
   CONSTRAINT FK_Mother FOREIGN KEY (mother_id) REFERENCES horse(id) ON DELETE SET NULL,
   CONSTRAINT FK_Father FOREIGN KEY (father_id) REFERENCES horse(id) ON DELETE SET NULL
 );
 
+-- images are kept in the content-addressed image store, the row only references them by their SHA-256 hash
+-- databases created before that still carry the old image BLOB column, which ImageBlobMigration (version 3) moves out
+ALTER TABLE horse ADD COLUMN IF NOT EXISTS image_hash VARCHAR(64);
 
+CREATE INDEX IF NOT EXISTS idx_horse_name_id ON horse (name, id);
+CREATE INDEX IF NOT EXISTS idx_horse_date_of_birth_id ON horse (date_of_birth, id);
@@ -0,0 +1,5 @@
+-- the foreign keys only guarantee referential integrity; these indexes serve the lookups along them:
+-- the children of a horse, the parents in the pedigree, and the owner join of the search
+CREATE INDEX IF NOT EXISTS idx_horse_mother_id ON horse (mother_id);
+CREATE INDEX IF NOT EXISTS idx_horse_father_id ON horse (father_id);
+CREATE INDEX IF NOT EXISTS idx_horse_owner_id ON horse (owner_id);
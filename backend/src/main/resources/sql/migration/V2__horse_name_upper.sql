@@ -0,0 +1,5 @@
+-- the name search is a case-insensitive prefix match; UPPER(name) LIKE ... cannot use the index on name,
+-- so the upper-cased name is persisted in a generated column of its own, with its own index
+ALTER TABLE horse ADD COLUMN IF NOT EXISTS name_upper VARCHAR(255) GENERATED ALWAYS AS (UPPER(name));
+
+CREATE INDEX IF NOT EXISTS idx_horse_name_upper_id ON horse (name_upper, id);
@@ -0,0 +1,3 @@
+-- parent candidates are the horses of one sex born before the foal, so the index leads with the sex, followed by the
+-- birthdate range; the upper-cased name completes it, so the name prefix is checked on the index entries
+CREATE INDEX IF NOT EXISTS idx_horse_sex_date_of_birth ON horse (sex, date_of_birth, name_upper);
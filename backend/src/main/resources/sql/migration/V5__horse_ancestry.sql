@@ -0,0 +1,16 @@
+-- closure of the parent relation: one row per horse and each of its ancestors at each distance, including the horse
+-- itself at depth 0; path is the route from the descendant up to the ancestor, M for mother and F for father, e.g.
+-- MF for the father of the mother, and the first one alphabetically if there are several routes of the same depth
+CREATE TABLE IF NOT EXISTS horse_ancestry
+(
+  descendant_id BIGINT NOT NULL,
+  ancestor_id BIGINT NOT NULL,
+  depth INT NOT NULL,
+  path VARCHAR(1024) NOT NULL,
+  CONSTRAINT PK_Horse_Ancestry PRIMARY KEY (descendant_id, depth, ancestor_id),
+  CONSTRAINT FK_Ancestry_Descendant FOREIGN KEY (descendant_id) REFERENCES horse(id) ON DELETE CASCADE,
+  CONSTRAINT FK_Ancestry_Ancestor FOREIGN KEY (ancestor_id) REFERENCES horse(id) ON DELETE CASCADE
+);
+
+-- the ancestors of a horse are a range of the primary key, its descendants a range of this index
+CREATE INDEX IF NOT EXISTS idx_horse_ancestry_ancestor ON horse_ancestry (ancestor_id, depth, descendant_id);
@@ -0,0 +1,101 @@
+package at.ac.tuwien.sepr.assignment.individual;
+
+import at.ac.tuwien.sepr.assignment.individual.entity.Horse;
+import at.ac.tuwien.sepr.assignment.individual.type.Sex;
+import java.time.LocalDate;
+
+/**
+ * Test fixture for {@link Horse} entities. Every attribute a test does not care about has a default:
+ * the name is "Horse" followed by the ID, the horse is a mare born on 1 January 2020,
+ * and it has no description, owner, parents or image.
+ */
+public final class HorseBuilder {
+  private final long id;
+  private String name;
+  private String description;
+  private LocalDate dateOfBirth = LocalDate.of(2020, 1, 1);
+  private Sex sex = Sex.FEMALE;
+  private Long motherId;
+  private Long fatherId;
+
+  private HorseBuilder(long id) {
+    this.id = id;
+    this.name = "Horse " + id;
+  }
+
+  /**
+   * Starts a horse with the given ID and the defaults for everything else.
+   *
+   * @param id the ID of the horse
+   * @return the builder of the horse
+   */
+  public static HorseBuilder horse(long id) {
+    return new HorseBuilder(id);
+  }
+
+  /**
+   * Sets the name of the horse.
+   *
+   * @param name the name
+   * @return this builder
+   */
+  public HorseBuilder name(String name) {
+    this.name = name;
+    return this;
+  }
+
+  /**
+   * Sets the description of the horse.
+   *
+   * @param description the description
+   * @return this builder
+   */
+  public HorseBuilder description(String description) {
+    this.description = description;
+    return this;
+  }
+
+  /**
+   * Lets the horse be born on 1 January of the given year.
+   *
+   * @param year the year of birth
+   * @return this builder
+   */
+  public HorseBuilder born(int year) {
+    this.dateOfBirth = LocalDate.of(year, 1, 1);
+    return this;
+  }
+
+  /**
+   * Sets the sex of the horse.
+   *
+   * @param sex the sex
+   * @return this builder
+   */
+  public HorseBuilder sex(Sex sex) {
+    this.sex = sex;
+    return this;
+  }
+
+  /**
+   * Sets the parents of the horse.
+   *
+   * @param motherId the ID of the mother, or {@code null} for none
+   * @param fatherId the ID of the father, or {@code null} for none
+   * @return this builder
+   */
+  public HorseBuilder parents(Long motherId, Long fatherId) {
+    this.motherId = motherId;
+    this.fatherId = fatherId;
+    return this;
+  }
+
+  /**
+   * Builds the horse.
+   *
+   * @return the horse with the attributes set so far
+   */
+  public Horse build() {
+    return new Horse(id, name, description, dateOfBirth, sex, null, motherId, fatherId, null, null);
+  }
+}
@@ -0,0 +1,129 @@
+package at.ac.tuwien.sepr.assignment.individual.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseCreateDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseUpdateDto;
+import at.ac.tuwien.sepr.assignment.individual.exception.NotFoundException;
+import at.ac.tuwien.sepr.assignment.individual.type.Sex;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Integration test for {@link HorseAncestryDao}, ensuring the ancestry follows every change to the parents
+ * made through the {@link HorseDao}.
+ */
+@ActiveProfiles({"test", "datagen"})
+@SpringBootTest
+public class HorseAncestryDaoTest {
+
+  @Autowired
+  HorseAncestryDao ancestryDao;
+
+  @Autowired
+  HorseDao horseDao;
+
+  @Autowired
+  JdbcClient jdbcClient;
+
+  private final List<Long> createdHorseIds = new ArrayList<>();
+
+  private record Ancestor(long id, int depth, String path) {
+  }
+
+  private List<Ancestor> ancestors(long id) {
+    return jdbcClient.sql("SELECT ancestor_id, depth, path FROM horse_ancestry WHERE descendant_id = :id")
+        .param("id", id)
+        .query((result, rownum) -> new Ancestor(result.getLong("ancestor_id"), result.getInt("depth"), result.getString("path")))
+        .list();
+  }
+
+  private long create(String name, LocalDate dateOfBirth, Sex sex, Long motherId, Long fatherId) {
+    long id = horseDao.create(new HorseCreateDto(name, null, dateOfBirth, sex, null, motherId, fatherId, null, null), null).id();
+    createdHorseIds.add(id);
+    return id;
+  }
+
+  /**
+   * Tests that the ancestry of the test data holds every route to every ancestor, one row per depth.
+   */
+  @Test
+  public void ancestryHoldsEveryAncestorPerDepth() {
+    assertThat(ancestors(-10))
+        .extracting(Ancestor::id, Ancestor::depth, Ancestor::path)
+        .contains(
+            tuple(-10L, 0, ""),
+            tuple(-9L, 1, "M"),
+            tuple(-8L, 1, "F"),
+            tuple(-2L, 2, "MF"),
+            tuple(-2L, 3, "MMF"),
+            tuple(-2L, 4, "FMMF"),
+            tuple(-1L, 3, "MMM"),
+            tuple(-1L, 4, "FMMM"));
+    assertThat(ancestryDao.getDescendantIds(-3)).containsExactly(-5L, -7L, -8L, -10L);
+    assertThat(ancestryDao.check()).isEmpty();
+  }
+
+  /**
+   * Tests that changing the parents of a horse carries over to its descendants,
+   * and deleting a horse removes the routes through it from its descendants.
+   */
+  @Test
+  public void ancestryFollowsParentChanges() throws NotFoundException {
+    long mother = create("Ancestry Mare", LocalDate.of(2019, 1, 1), Sex.FEMALE, -1L, null);
+    long foal = create("Ancestry Foal", LocalDate.of(2023, 1, 1), Sex.MALE, mother, null);
+    assertThat(ancestors(foal)).extracting(Ancestor::id).containsExactlyInAnyOrder(foal, mother, -1L);
+
+    horseDao.update(new HorseUpdateDto(mother, "Ancestry Mare", null, LocalDate.of(2019, 1, 1), Sex.FEMALE,
+        null, -4L, -6L, null, null), null, horseDao.getLineageById(mother));
+    assertThat(ancestors(foal))
+        .extracting(Ancestor::id, Ancestor::depth, Ancestor::path)
+        .containsExactlyInAnyOrder(
+            tuple(foal, 0, ""),
+            tuple(mother, 1, "M"),
+            tuple(-4L, 2, "MM"),
+            tuple(-6L, 2, "MF"),
+            tuple(-1L, 3, "MMM"),
+            tuple(-2L, 3, "MMF"));
+    assertThat(ancestryDao.check()).isEmpty();
+
+    horseDao.delete(mother);
+    createdHorseIds.remove(mother);
+    assertThat(ancestors(foal)).extracting(Ancestor::id).containsExactly(foal);
+    assertThat(ancestryDao.check()).isEmpty();
+  }
+
+  /**
+   * Tests that the check reports a row that does not follow from the parents, and a rebuild repairs it.
+   */
+  @Test
+  public void checkFindsAndRebuildRepairsInconsistencies() {
+    jdbcClient.sql("DELETE FROM horse_ancestry WHERE descendant_id = -5 AND ancestor_id = -1").update();
+    jdbcClient.sql("INSERT INTO horse_ancestry (descendant_id, ancestor_id, depth, path) VALUES (-5, -6, 1, 'F')").update();
+
+    assertThat(ancestryDao.check()).hasSize(2);
+
+    ancestryDao.rebuild();
+    assertThat(ancestryDao.check()).isEmpty();
+    assertThat(ancestors(-5)).extracting(Ancestor::id).containsExactlyInAnyOrder(-5L, -3L, -1L, -2L);
+  }
+
+  /**
+   * Cleanup method to delete the created horses after each test, descendants first.
+   */
+  @AfterEach
+  public void removeCreations() throws NotFoundException {
+    for (Long id : createdHorseIds.reversed()) {
+      horseDao.delete(id);
+    }
+    createdHorseIds.clear();
+  }
+}
@@ -6,9 +6,13 @@ import static org.junit.jupiter.api.Assertions.assertAll;
 
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseCreateDto;
 import at.ac.tuwien.sepr.assignment.individual.entity.Horse;
+import at.ac.tuwien.sepr.assignment.individual.entity.HorseFamily;
+import at.ac.tuwien.sepr.assignment.individual.entity.HorseLineage;
+import at.ac.tuwien.sepr.assignment.individual.entity.HorseWithRelations;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 
 import at.ac.tuwien.sepr.assignment.individual.exception.NotFoundException;
 import at.ac.tuwien.sepr.assignment.individual.type.Sex;
@@ -45,57 +49,85 @@ public class HorseDaoTest {
   }
 
   /**
-   * Positive test for getChildrenByParentId:
-   * For a known parent horse (e.g., Wendy with ID -1), verify that at least one child is returned.
+   * Tests that horses can be fetched by a set of IDs in one call, ignoring IDs that do not exist.
    */
   @Test
-  public void getChildrenByParent_Positive() {
-
-    List<Horse> children = horseDao.getChildrenByParentId(-1L);
-    boolean found = children.stream().anyMatch(child -> {
-      Long motherIdChecker = child.motherId();
-      return motherIdChecker != null && motherIdChecker.equals(-1L);
-    });
-    assertAll(() -> assertThat(children).isNotEmpty(),
-            () -> assertThat(found).isTrue());
-
+  public void getAllByIdReturnsExistingHorses() {
+    List<Horse> horses = horseDao.getAllById(List.of(-1L, -2L, 999999L));
+    assertThat(horses)
+        .extracting(Horse::id)
+        .containsExactlyInAnyOrder(-1L, -2L);
   }
 
   /**
-   * Negative test for getChildrenByParentId:
-   * For a horse that is not a parent (e.g., Oscar with ID -10, assuming no horse references it as a parent),
-   * verify that an empty list is returned.
+   * Tests that a horse is read together with its parents and owner, and that missing relations stay empty.
    */
   @Test
-  public void getChildrenByParent_Negative() {
-    List<Horse> children = horseDao.getChildrenByParentId(-10L);
-    assertThat(children).isEmpty();
+  public void getWithRelationsByIdJoinsParentsAndOwner() throws NotFoundException {
+    HorseWithRelations bella = horseDao.getWithRelationsById(-3L);
+    HorseWithRelations wendy = horseDao.getWithRelationsById(-1L);
+    assertAll(() -> assertThat(bella.horse().name()).isEqualTo("Bella"),
+        () -> assertThat(bella.mother().name()).isEqualTo("Wendy"),
+        () -> assertThat(bella.father().name()).isEqualTo("Max"),
+        () -> assertThat(bella.father().sex()).isEqualTo(Sex.MALE),
+        () -> assertThat(bella.owner().firstName()).isEqualTo("Charlie"),
+        () -> assertThat(wendy.mother()).isNull(),
+        () -> assertThat(wendy.father()).isNull(),
+        () -> assertThat(wendy.owner()).isNull());
   }
 
   /**
-   * Positive test for getPedigree:
-   * Retrieve the pedigree for a valid horse (e.g., Bella with ID -3) with a generation limit,
-   * and verify that the result is not empty and contains expected ancestor names.
+   * Tests that the family of a horse contains the horse, its current and prospective parents and its children,
+   * and that a prospective parent that does not exist is simply missing.
    */
   @Test
-  public void getPedigree_Positive() {
-    List<Horse> pedigreeList = horseDao.getPedigree(-3, 2);
-    boolean containsBella = pedigreeList.stream().anyMatch(h -> h.name().toLowerCase().contains("bella"));
-    assertAll(() -> assertThat(pedigreeList).isNotEmpty(),
-            () -> assertThat(containsBella).isTrue());
+  public void getFamilyLoadsHorseParentsAndChildren() {
+    HorseFamily bella = horseDao.getFamily(-3L, -4L, 999999L);
+    HorseFamily wendy = horseDao.getFamily(-1L, null, null);
+    assertAll(() -> assertThat(bella.horse().id()).isEqualTo(-3L),
+        () -> assertThat(bella.relative(-1L).sex()).isEqualTo(Sex.FEMALE),
+        () -> assertThat(bella.relative(-2L).sex()).isEqualTo(Sex.MALE),
+        () -> assertThat(bella.relative(-4L)).isNotNull(),
+        () -> assertThat(bella.relative(999999L)).isNull(),
+        () -> assertThat(wendy.horse().id()).isEqualTo(-1L),
+        () -> assertThat(wendy.children()).extracting(HorseLineage::id).contains(-3L, -4L));
+  }
 
+  /**
+   * Tests that the lineage projection of a horse contains its sex, birthdate and parents.
+   */
+  @Test
+  public void getLineageByIdReturnsParents() throws NotFoundException {
+    HorseLineage bella = horseDao.getLineageById(-3L);
+    assertAll(() -> assertThat(bella.sex()).isEqualTo(Sex.FEMALE),
+        () -> assertThat(bella.dateOfBirth()).isEqualTo(LocalDate.of(2015, 6, 20)),
+        () -> assertThat(bella.motherId()).isEqualTo(-1L),
+        () -> assertThat(bella.fatherId()).isEqualTo(-2L));
   }
 
   /**
-   * Negative test for getPedigree (invalid generation):
-   * Calling getPedigree with a negative generation limit should throw a ValidationException.
+   * Tests that the lineage projections of several horses are read together and unknown IDs are left out.
    */
   @Test
-  public void getPedigree_Negative_InvalidGeneration() {
-    List<Horse> pedigreeList = horseDao.getPedigree(-1, -1);
-    assertAll(() -> assertThat(pedigreeList).isNotNull(),
-            (() -> assertThat(pedigreeList.size()).isLessThanOrEqualTo(1)));
+  public void getLineagesByIdSkipsUnknownIds() {
+    Map<Long, HorseLineage> lineages = horseDao.getLineagesById(List.of(-1L, -2L, 999999L));
+    assertAll(() -> assertThat(lineages).containsOnlyKeys(-1L, -2L),
+        () -> assertThat(lineages.get(-1L).sex()).isEqualTo(Sex.FEMALE),
+        () -> assertThat(lineages.get(-2L).sex()).isEqualTo(Sex.MALE));
+  }
 
+  /**
+   * Positive test for getDescendants:
+   * Wendy's progeny is read one generation at a time, ordered by birthdate, and Bob, who descends from her
+   * on lines of three and four generations, is part of both generations.
+   */
+  @Test
+  public void getDescendants_Positive() {
+    assertAll(() -> assertThat(horseDao.getDescendants(-1, 1)).extracting(Horse::id).containsExactly(-3L, -4L),
+        () -> assertThat(horseDao.getDescendants(-1, 2)).extracting(Horse::id).containsExactly(-5L, -7L, -9L),
+        () -> assertThat(horseDao.getDescendants(-1, 3)).extracting(Horse::id).containsExactly(-8L, -10L),
+        () -> assertThat(horseDao.getDescendants(-1, 4)).extracting(Horse::id).containsExactly(-10L),
+        () -> assertThat(horseDao.getDescendants(-1, 5)).isEmpty());
   }
 
   /**
@@ -117,7 +149,7 @@ public class HorseDaoTest {
             null
     );
 
-    Horse createdHorse = horseDao.create(createDto);
+    Horse createdHorse = horseDao.create(createDto, null);
 
     createdHorseId = createdHorse.id();
 
@@ -0,0 +1,73 @@
+package at.ac.tuwien.sepr.assignment.individual.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseSearchCursor;
+import at.ac.tuwien.sepr.assignment.individual.persistence.impl.HorseSearchQuery;
+import at.ac.tuwien.sepr.assignment.individual.persistence.impl.HorseSearchQuery.Column;
+import at.ac.tuwien.sepr.assignment.individual.persistence.impl.HorseSearchQuery.Operator;
+import at.ac.tuwien.sepr.assignment.individual.type.HorseSortKey;
+import at.ac.tuwien.sepr.assignment.individual.type.Sex;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.SqlParameterValue;
+
+/**
+ * Unit test for the {@link HorseSearchQuery}.
+ */
+public class HorseSearchQueryTest {
+
+  /**
+   * Tests that absent values leave no trace in the SQL.
+   */
+  @Test
+  public void emitsOnlyTheGivenConditions() {
+    var byName = HorseSearchQuery.select("h.id")
+        .where(Column.NAME, Operator.PREFIX, "wen")
+        .where(Column.DESCRIPTION, Operator.CONTAINS, "")
+        .where(Column.SEX, Operator.EQUALS, null)
+        .orderBy(HorseSortKey.NAME, null);
+
+    assertAll(() -> assertThat(byName.sql())
+            .isEqualTo("SELECT h.id FROM horse h WHERE TRUE AND h.name_upper LIKE :p0 ESCAPE '\\' ORDER BY h.name, h.id"),
+        () -> assertThat(byName.params()).containsEntry("p0", "WEN%").hasSize(1));
+  }
+
+  /**
+   * Tests that searches of the same shape share their SQL, whatever their values.
+   */
+  @Test
+  public void sameShapeSharesTheSql() {
+    var first = HorseSearchQuery.select("h.id")
+        .where(Column.SEX, Operator.EQUALS, Sex.FEMALE)
+        .orderBy(HorseSortKey.DATE_OF_BIRTH, new HorseSearchCursor(HorseSortKey.DATE_OF_BIRTH, null, LocalDate.of(2012, 12, 12), null, -1))
+        .limit(10);
+    var second = HorseSearchQuery.select("h.id")
+        .where(Column.SEX, Operator.EQUALS, Sex.MALE)
+        .orderBy(HorseSortKey.DATE_OF_BIRTH, new HorseSearchCursor(HorseSortKey.DATE_OF_BIRTH, null, LocalDate.of(2010, 5, 15), null, -2))
+        .limit(20);
+
+    assertAll(() -> assertThat(first.sql()).isSameAs(second.sql()),
+        () -> assertThat(second.params()).containsEntry("p0", "MALE").containsEntry("afterId", -2L));
+  }
+
+  /**
+   * Tests the range and in-list operators, and that wildcards in search terms are matched literally.
+   */
+  @Test
+  public void rendersRangesInListsAndEscapedPatterns() {
+    var query = HorseSearchQuery.select("h.id")
+        .between(Column.DATE_OF_BIRTH, LocalDate.of(2010, 1, 1), null)
+        .where(Column.ID, Operator.IN, List.of(-1L, -2L))
+        .where(Column.NAME, Operator.PREFIX, "100%_");
+
+    assertAll(() -> assertThat(query.sql())
+            .contains("h.date_of_birth >= :p0")
+            .doesNotContain("h.date_of_birth <=")
+            .contains("h.id = ANY(:p1)"),
+        () -> assertThat(((SqlParameterValue) query.params().get("p1")).getValue()).isEqualTo(new Object[] {-1L, -2L}),
+        () -> assertThat(query.params()).containsEntry("p2", "100\\%\\_%"));
+  }
+}
@@ -0,0 +1,103 @@
+package at.ac.tuwien.sepr.assignment.individual.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import at.ac.tuwien.sepr.assignment.individual.entity.Horse;
+import at.ac.tuwien.sepr.assignment.individual.exception.ImageTooLargeException;
+import at.ac.tuwien.sepr.assignment.individual.exception.NotFoundException;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Integration test for the {@link ImageStore} and the migration of images out of the database.
+ */
+@ActiveProfiles({"test", "datagen"}) // Enables "test" Spring profile to load test data
+@SpringBootTest
+public class ImageStoreTest {
+
+  @Autowired
+  ImageStore imageStore;
+
+  @Autowired
+  ImageBlobMigration imageBlobMigration;
+
+  @Autowired
+  HorseDao horseDao;
+
+  @Autowired
+  JdbcClient jdbcClient;
+
+  /**
+   * Tests that identical images are stored only once, under the SHA-256 hash of their content.
+   */
+  @Test
+  public void storingIdenticalImagesTwiceYieldsTheSameHash() throws Exception {
+    byte[] image = "identical image content".getBytes(StandardCharsets.UTF_8);
+
+    String first = imageStore.store(image);
+    String second = imageStore.store(image.clone());
+
+    assertAll(() -> assertThat(first).isEqualTo(second),
+        () -> assertThat(first).isEqualTo("01d085222931a04d0e6ab5c8fc6d49e281d6ddb6be6c48a88688c85eb8d5930d"),
+        () -> assertThat(imageStore.exists(first)).isTrue(),
+        () -> assertThat(imageStore.load(first).getContentAsByteArray()).isEqualTo(image));
+  }
+
+  /**
+   * Tests that an image streamed into the store is stored under the same hash as its bytes,
+   * and that a stream exceeding the size limit is rejected.
+   */
+  @Test
+  public void storingStreamHashesLikeBytesAndEnforcesSizeLimit() throws Exception {
+    byte[] image = "identical image content".getBytes(StandardCharsets.UTF_8);
+
+    String streamed = imageStore.store(new ByteArrayInputStream(image), image.length);
+
+    assertAll(() -> assertThat(streamed).isEqualTo(imageStore.store(image)),
+        () -> assertThat(imageStore.load(streamed).getContentAsByteArray()).isEqualTo(image),
+        () -> assertThrows(ImageTooLargeException.class,
+            () -> imageStore.store(new ByteArrayInputStream(image), image.length - 1)));
+  }
+
+  /**
+   * Tests that loading an image that was never stored fails with a {@link NotFoundException}.
+   */
+  @Test
+  public void readingUnknownHashThrowsNotFound() {
+    String unknown = "0".repeat(64);
+    assertAll(() -> assertThat(imageStore.exists(unknown)).isFalse(),
+        () -> assertThrows(NotFoundException.class, () -> imageStore.load(unknown)));
+  }
+
+  /**
+   * Tests that images of a database from before the image store are moved to the image store,
+   * and that the old image column is dropped afterwards.
+   */
+  @Test
+  public void migrationMovesImageBlobsToTheImageStore() throws Exception {
+    byte[] image = "legacy image of Wendy".getBytes(StandardCharsets.UTF_8);
+    jdbcClient.sql("ALTER TABLE horse ADD COLUMN IF NOT EXISTS image BLOB").update();
+    jdbcClient.sql("UPDATE horse SET image = :image WHERE id = -1").param("image", image).update();
+
+    try {
+      imageBlobMigration.migrate();
+
+      Horse wendy = horseDao.getById(-1);
+      Integer imageColumns = jdbcClient.sql("SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS "
+              + "WHERE TABLE_NAME = 'HORSE' AND COLUMN_NAME = 'IMAGE'")
+          .query(Integer.class).single();
+      assertAll(() -> assertThat(wendy.imageHash()).isNotNull(),
+          () -> assertThat(imageStore.load(wendy.imageHash()).getContentAsByteArray()).isEqualTo(image),
+          () -> assertThat(imageColumns).isZero());
+    } finally {
+      jdbcClient.sql("UPDATE horse SET image_hash = NULL WHERE id = -1").update();
+    }
+  }
+}
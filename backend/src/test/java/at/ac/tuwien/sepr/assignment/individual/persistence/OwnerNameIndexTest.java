@@ -0,0 +1,52 @@
+package at.ac.tuwien.sepr.assignment.individual.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+import at.ac.tuwien.sepr.assignment.individual.entity.Owner;
+import at.ac.tuwien.sepr.assignment.individual.persistence.impl.OwnerNameIndex;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test for the {@link OwnerNameIndex}.
+ */
+public class OwnerNameIndexTest {
+
+  private static OwnerNameIndex index() {
+    OwnerNameIndex index = new OwnerNameIndex();
+    index.rebuild(List.of(
+        new Owner(1L, "Alice", "Smith", null),
+        new Owner(2L, "Bob", "Smithson", null),
+        new Owner(3L, "Smix", "Mith", null),
+        new Owner(4L, "Carol", "Jones", null)));
+    return index;
+  }
+
+  /**
+   * Tests that a substring matches across first and last name, ignoring case,
+   * and that owners having all trigrams of the search, but not the search itself, do not match.
+   */
+  @Test
+  public void matchesSubstringsOfTheFullName() {
+    OwnerNameIndex index = index();
+    assertAll(() -> assertThat(index.search("smith", null)).containsExactly(1L, 2L),
+        () -> assertThat(index.search("ce smi", null)).containsExactly(1L),
+        () -> assertThat(index.search("xyz", null)).isEmpty(),
+        () -> assertThat(index.search("o", null)).containsExactly(2L, 4L),
+        () -> assertThat(index.search(null, null)).containsExactly(1L, 2L, 3L, 4L));
+  }
+
+  /**
+   * Tests that the search stops after the requested number of matches, and that created owners are found.
+   */
+  @Test
+  public void stopsAtMaxAmountAndFindsCreatedOwners() {
+    OwnerNameIndex index = index();
+    index.put(new Owner(5L, "Anna", "Smith", null));
+
+    assertAll(() -> assertThat(index.search("SMITH", 2)).containsExactly(1L, 2L),
+        () -> assertThat(index.search("anna", 5)).containsExactly(5L),
+        () -> assertThat(index.search("s", 0)).isEmpty());
+  }
+}
@@ -0,0 +1,49 @@
+package at.ac.tuwien.sepr.assignment.individual.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Integration test for the {@link SchemaMigrator}.
+ */
+@ActiveProfiles({"test", "datagen"})
+@SpringBootTest
+public class SchemaMigratorTest {
+
+  @Autowired
+  SchemaMigrator schemaMigrator;
+
+  @Autowired
+  JdbcClient jdbcClient;
+
+  private List<Integer> appliedVersions() {
+    return jdbcClient.sql("SELECT version FROM schema_version ORDER BY version").query(Integer.class).list();
+  }
+
+  /**
+   * Tests that the SQL scripts and the Java migrations are all recorded as applied on startup.
+   */
+  @Test
+  public void startupAppliesAllMigrations() {
+    assertThat(appliedVersions()).containsExactly(0, 1, 2, 3, 4, 5, 6);
+  }
+
+  /**
+   * Tests that migrating an up-to-date schema applies nothing, and leaves the data untouched.
+   */
+  @Test
+  public void migratingAgainAppliesNothing() {
+    Integer horsesBefore = jdbcClient.sql("SELECT COUNT(*) FROM horse").query(Integer.class).single();
+
+    schemaMigrator.migrate();
+
+    assertThat(appliedVersions()).containsExactly(0, 1, 2, 3, 4, 5, 6);
+    assertThat(jdbcClient.sql("SELECT COUNT(*) FROM horse").query(Integer.class).single()).isEqualTo(horsesBefore);
+  }
+}
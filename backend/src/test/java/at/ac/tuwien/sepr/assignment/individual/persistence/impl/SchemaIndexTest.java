@@ -0,0 +1,155 @@
+package at.ac.tuwien.sepr.assignment.individual.persistence.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import at.ac.tuwien.sepr.assignment.individual.persistence.impl.HorseSearchQuery.Column;
+import at.ac.tuwien.sepr.assignment.individual.persistence.impl.HorseSearchQuery.Operator;
+import at.ac.tuwien.sepr.assignment.individual.type.HorseSortKey;
+import at.ac.tuwien.sepr.assignment.individual.type.Sex;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Query plan tests for the indexes created by the schema migrations.
+ * Each test asks H2 to explain a query the DAOs use, and checks that the plan reads the index
+ * instead of scanning the whole table. The statements of the DAOs are explained as they are,
+ * so the tests are in the package of the DAOs.
+ */
+@ActiveProfiles({"test", "datagen"})
+@SpringBootTest
+public class SchemaIndexTest {
+
+  @Autowired
+  JdbcClient jdbcClient;
+
+  private String explain(String sql) {
+    return jdbcClient.sql("EXPLAIN " + sql).query(String.class).single().toUpperCase();
+  }
+
+  private String explain(String sql, Map<String, ?> params) {
+    return jdbcClient.sql("EXPLAIN " + sql).params(params).query(String.class).single().toUpperCase();
+  }
+
+  private String explain(HorseSearchQuery query) {
+    return explain(query.sql(), query.params());
+  }
+
+  /**
+   * Tests that the family query finds the children of the horse through the index on each parent column.
+   */
+  @Test
+  public void familyQueryUsesParentIndexes() {
+    Map<String, Object> params = new HashMap<>();
+    params.put("id", -1L);
+    params.put("motherId", null);
+    params.put("fatherId", null);
+    assertThat(explain(HorseJdbcDao.SQL_GET_FAMILY, params))
+        .contains("IDX_HORSE_MOTHER_ID")
+        .contains("IDX_HORSE_FATHER_ID");
+  }
+
+  /**
+   * Tests that the horses of the owners matching an owner name search are found through the index on the owner column.
+   */
+  @Test
+  public void searchQueryOwnerUsesOwnerIndex() {
+    var query = HorseSearchQuery.select("h.id")
+        .where(Column.OWNER_ID, Operator.IN, List.of(-2L))
+        .orderBy(HorseSortKey.NAME, null);
+    assertThat(explain(query)).contains("IDX_HORSE_OWNER_ID");
+  }
+
+  /**
+   * Tests that the case-insensitive name prefix search is a range scan of the upper-cased name index.
+   */
+  @Test
+  public void namePrefixSearchUsesUpperCasedNameIndex() {
+    assertThat(explain("SELECT h.id FROM horse h WHERE h.name_upper LIKE 'WEN%'"))
+        .contains("IDX_HORSE_NAME_UPPER_ID");
+  }
+
+  /**
+   * Tests that the name search built by the {@link HorseSearchQuery} range-scans the upper-cased name index,
+   * even though its prefix is a parameter.
+   */
+  @Test
+  public void searchQueryNamePrefixUsesUpperCasedNameIndex() {
+    var query = HorseSearchQuery.select("h.id")
+        .where(Column.NAME, Operator.PREFIX, "wen")
+        .orderBy(HorseSortKey.NAME, null);
+    assertThat(explain(query)).contains("IDX_HORSE_NAME_UPPER_ID");
+  }
+
+  /**
+   * Tests that the parent candidates of a foal are read from the index on sex and birthdate.
+   */
+  @Test
+  public void parentCandidateQueryUsesSexAndBirthdateIndex() {
+    var query = HorseSearchQuery.select("h.id, h.name")
+        .where(Column.SEX, Operator.EQUALS, Sex.FEMALE)
+        .where(Column.DATE_OF_BIRTH, Operator.LESS_THAN, LocalDate.of(2018, 9, 9))
+        .orderBy(HorseSortKey.NAME, null)
+        .limit(5);
+    assertThat(explain(query)).contains("IDX_HORSE_SEX_DATE_OF_BIRTH");
+  }
+
+  /**
+   * Tests that a birthdate range is a range scan of the birthdate index, and of the composite index if the sex is given.
+   */
+  @Test
+  public void birthdateRangeUsesBirthdateIndexes() {
+    var byBirthdate = HorseSearchQuery.select("h.id")
+        .between(Column.DATE_OF_BIRTH, LocalDate.of(2015, 1, 1), LocalDate.of(2016, 12, 31))
+        .orderBy(HorseSortKey.DATE_OF_BIRTH, null);
+    var bySexAndBirthdate = HorseSearchQuery.select("h.id")
+        .between(Column.DATE_OF_BIRTH, LocalDate.of(2015, 1, 1), LocalDate.of(2016, 12, 31))
+        .where(Column.SEX, Operator.EQUALS, Sex.FEMALE)
+        .orderBy(HorseSortKey.NAME, null);
+    assertThat(explain(byBirthdate)).contains("IDX_HORSE_DATE_OF_BIRTH_ID");
+    assertThat(explain(bySexAndBirthdate)).contains("IDX_HORSE_SEX_DATE_OF_BIRTH");
+  }
+
+  /**
+   * Tests that the generated column follows the name, so it never needs to be written by the DAOs.
+   */
+  @Test
+  public void upperCasedNameFollowsName() {
+    String nameUpper = jdbcClient.sql("SELECT name_upper FROM horse WHERE id = -1")
+        .query(String.class)
+        .single();
+    assertThat(nameUpper).isEqualTo("WENDY");
+  }
+
+  /**
+   * Tests that the descendants of a horse, also those the ancestry is recomputed for, are read from the index
+   * on the ancestor.
+   */
+  @Test
+  public void ancestryLookupsUseAncestryIndexes() {
+    assertThat(explain(HorseJdbcDao.SQL_GET_DESCENDANTS, Map.of("id", -1L, "generation", 2))).contains("IDX_HORSE_ANCESTRY_ANCESTOR");
+    assertThat(explain(HorseAncestryJdbcDao.SQL_SELECT_DESCENDANT_IDS, Map.of("id", -1L))).contains("IDX_HORSE_ANCESTRY_ANCESTOR");
+  }
+
+  /**
+   * Tests that the migrations are idempotent, i.e. running them again neither fails nor changes the schema.
+   */
+  @Test
+  public void migrationsCanBeRunAgain() {
+    jdbcClient.sql("RUNSCRIPT FROM 'classpath:sql/migration/V1__horse_relation_indexes.sql'").update();
+    jdbcClient.sql("RUNSCRIPT FROM 'classpath:sql/migration/V2__horse_name_upper.sql'").update();
+    jdbcClient.sql("RUNSCRIPT FROM 'classpath:sql/migration/V4__horse_parent_candidate_index.sql'").update();
+    jdbcClient.sql("RUNSCRIPT FROM 'classpath:sql/migration/V5__horse_ancestry.sql'").update();
+    Integer indexes = jdbcClient.sql("SELECT COUNT(*) FROM INFORMATION_SCHEMA.INDEXES"
+            + " WHERE TABLE_NAME = 'HORSE' AND INDEX_NAME LIKE 'IDX_HORSE_%'")
+        .query(Integer.class)
+        .single();
+    assertThat(indexes).isEqualTo(7);
+  }
+}
@@ -3,20 +3,34 @@ package at.ac.tuwien.sepr.assignment.individual.rest;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.tuple;
 import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseCommonAncestorDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseCreateDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseDescendantDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseDetailDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseInbreedingDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseListDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseRelationshipDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseSuggestionDto;
 import at.ac.tuwien.sepr.assignment.individual.exception.ConflictException;
 import at.ac.tuwien.sepr.assignment.individual.exception.ValidationException;
 import at.ac.tuwien.sepr.assignment.individual.service.HorseService;
+import at.ac.tuwien.sepr.assignment.individual.service.impl.ThumbnailGenerator;
 import at.ac.tuwien.sepr.assignment.individual.type.Sex;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.time.LocalDate;
+import java.time.Period;
+import java.util.ArrayList;
 import java.util.List;
+import javax.imageio.ImageIO;
 
 import org.apache.el.lang.FunctionMapperFactory;
 import org.junit.jupiter.api.AfterEach;
@@ -29,6 +43,7 @@ import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.web.WebAppConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
@@ -167,6 +182,356 @@ public class HorseEndpointTest {
     assertThat(horses).isEmpty();
   }
 
+  /**
+   * Search Horses – Paging.
+   * Pages through all horses two at a time and verifies that:
+   * - Every page but the last carries a cursor for the next one.
+   * - The pages do not overlap and are ordered by name.
+   */
+  @Test
+  public void testSearchHorses_PagesAreDisjointAndOrdered() throws Exception {
+    List<HorseListDto> all = new ArrayList<>();
+    String cursor = null;
+    do {
+      var request = get("/horses")
+          .param("limit", "2")
+          .accept(MediaType.APPLICATION_JSON);
+      if (cursor != null) {
+        request.param("cursor", cursor);
+      }
+      var response = mockMvc.perform(request)
+          .andExpect(status().isOk())
+          .andReturn().getResponse();
+      List<HorseListDto> page = objectMapper.readValue(response.getContentAsString(), new TypeReference<List<HorseListDto>>() {});
+      assertThat(page.size()).isLessThanOrEqualTo(2);
+      all.addAll(page);
+      cursor = response.getHeader("X-Next-Cursor");
+    } while (cursor != null);
+
+    assertAll(() -> assertThat(all).extracting(HorseListDto::id).doesNotHaveDuplicates(),
+        () -> assertThat(all).extracting(HorseListDto::name).isSorted(),
+        () -> assertThat(all).extracting(HorseListDto::id).contains(-1L, -10L));
+  }
+
+  /**
+   * Search Horses – Description.
+   * Searches the descriptions for a word and a word prefix, one horse per page, and verifies that:
+   * - Only the horses whose description contains both words are found, each of them once.
+   * - Paging by relevance hands out a cursor until the last match.
+   */
+  @Test
+  public void testSearchHorses_DescriptionPagesByRelevance() throws Exception {
+    List<HorseListDto> all = new ArrayList<>();
+    String cursor = null;
+    do {
+      var request = get("/horses")
+          .param("description", "max wen")
+          .param("limit", "1")
+          .accept(MediaType.APPLICATION_JSON);
+      if (cursor != null) {
+        request.param("cursor", cursor);
+      }
+      var response = mockMvc.perform(request)
+          .andExpect(status().isOk())
+          .andReturn().getResponse();
+      all.addAll(objectMapper.readValue(response.getContentAsString(), new TypeReference<List<HorseListDto>>() {}));
+      cursor = response.getHeader("X-Next-Cursor");
+    } while (cursor != null);
+
+    assertThat(all).extracting(HorseListDto::id).containsExactlyInAnyOrder(-3L, -4L, -5L);
+  }
+
+  /**
+   * Search Horses – Description by name.
+   * Searches the descriptions for "child" among the mares, ordered by name, one horse per page, and verifies that
+   * the matches the other criteria drop in between do not end a page early or get listed.
+   */
+  @Test
+  public void testSearchHorses_DescriptionPagesByNameWithFilter() throws Exception {
+    List<HorseListDto> all = new ArrayList<>();
+    String cursor = null;
+    do {
+      var request = get("/horses")
+          .param("description", "child")
+          .param("sex", "FEMALE")
+          .param("sort", "NAME")
+          .param("limit", "1")
+          .accept(MediaType.APPLICATION_JSON);
+      if (cursor != null) {
+        request.param("cursor", cursor);
+      }
+      var response = mockMvc.perform(request)
+          .andExpect(status().isOk())
+          .andReturn().getResponse();
+      List<HorseListDto> page = objectMapper.readValue(response.getContentAsString(), new TypeReference<List<HorseListDto>>() {});
+      cursor = response.getHeader("X-Next-Cursor");
+      assertThat(page).hasSize(cursor == null ? page.size() : 1);
+      all.addAll(page);
+    } while (cursor != null);
+
+    assertThat(all).extracting(HorseListDto::name).containsExactly("Bella", "Daisy", "Jenny", "Mia");
+  }
+
+  /**
+   * Autocomplete – Positive.
+   * Asks for the mares whose name starts with "b" and verifies that:
+   * - HTTP 200 is returned.
+   * - Only Bella is suggested, with the attributes needed to pick her.
+   */
+  @Test
+  public void testAutocomplete_SuggestsByPrefixAndSex() throws Exception {
+    String response = mockMvc.perform(get("/horses/autocomplete")
+            .param("prefix", "b")
+            .param("sex", "FEMALE")
+            .param("limit", "5")
+            .accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isOk())
+        .andReturn().getResponse().getContentAsString();
+
+    List<HorseSuggestionDto> suggestions = objectMapper.readValue(response, new TypeReference<List<HorseSuggestionDto>>() {});
+    assertThat(suggestions)
+        .extracting(HorseSuggestionDto::id, HorseSuggestionDto::name, HorseSuggestionDto::dateOfBirth, HorseSuggestionDto::sex)
+        .containsExactly(tuple(-3L, "Bella", LocalDate.of(2015, 6, 20), Sex.FEMALE));
+  }
+
+  /**
+   * Autocomplete – Invalid limit.
+   * A non-positive number of suggestions is rejected as a validation error (HTTP 422).
+   */
+  @Test
+  public void testAutocomplete_InvalidLimit() throws Exception {
+    mockMvc.perform(get("/horses/autocomplete")
+            .param("prefix", "b")
+            .param("limit", "0")
+            .accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isUnprocessableEntity());
+  }
+
+  /**
+   * Parent Candidates – Existing horse.
+   * Only horses that would pass as the mother of Jenny are suggested: females born before her,
+   * which rules out Jenny herself and her younger relatives.
+   */
+  @Test
+  public void testParentCandidates_OnlyEligibleMothers() throws Exception {
+    String response = mockMvc.perform(get("/horses/-7/parent-candidates")
+            .param("role", "MOTHER")
+            .accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isOk())
+        .andReturn().getResponse().getContentAsString();
+
+    List<HorseSuggestionDto> candidates = objectMapper.readValue(response, new TypeReference<List<HorseSuggestionDto>>() {});
+    assertThat(candidates)
+        .allSatisfy(candidate -> {
+          assertThat(candidate.sex()).isEqualTo(Sex.FEMALE);
+          assertThat(candidate.dateOfBirth()).isBefore(LocalDate.of(2018, 9, 9));
+        })
+        .extracting(HorseSuggestionDto::id)
+        .contains(-1L, -3L, -4L)
+        .doesNotContain(-7L, -9L);
+  }
+
+  /**
+   * Parent Candidates – New horse.
+   * For a horse that is not created yet, its birthdate is given as parameter; Sam is born too late to be its father.
+   */
+  @Test
+  public void testParentCandidates_ForNewHorseByBirthdate() throws Exception {
+    String response = mockMvc.perform(get("/horses/parent-candidates")
+            .param("role", "FATHER")
+            .param("dateOfBirth", "2011-01-01")
+            .param("prefix", "s")
+            .accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isOk())
+        .andReturn().getResponse().getContentAsString();
+
+    List<HorseSuggestionDto> candidates = objectMapper.readValue(response, new TypeReference<List<HorseSuggestionDto>>() {});
+    assertThat(candidates).extracting(HorseSuggestionDto::id).doesNotContain(-6L);
+
+    mockMvc.perform(get("/horses/-999/parent-candidates")
+            .param("role", "FATHER")
+            .accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isNotFound());
+  }
+
+  /**
+   * Descendants – streamed generation by generation.
+   * Wendy's children come first, then her grandchildren, each generation ordered by birthdate,
+   * and nothing beyond the requested number of generations.
+   *
+   * @throws Exception if the request fails
+   */
+  @Test
+  public void testGetDescendants_StreamsGenerationsInOrder() throws Exception {
+    MvcResult pending = mockMvc.perform(get("/horses/-1/descendants")
+            .param("maxGenerations", "2")
+            .accept(MediaType.APPLICATION_NDJSON))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+    String response = mockMvc.perform(asyncDispatch(pending))
+        .andExpect(status().isOk())
+        .andReturn().getResponse().getContentAsString();
+
+    List<HorseDescendantDto> descendants = new ArrayList<>();
+    for (String line : response.split("\n")) {
+      descendants.add(objectMapper.readValue(line, HorseDescendantDto.class));
+    }
+    assertThat(descendants)
+        .extracting(HorseDescendantDto::id, HorseDescendantDto::generation)
+        .containsExactly(
+            tuple(-3L, 1), tuple(-4L, 1),
+            tuple(-5L, 2), tuple(-7L, 2), tuple(-9L, 2));
+
+    mockMvc.perform(get("/horses/-999/descendants")
+            .accept(MediaType.APPLICATION_NDJSON))
+        .andExpect(status().isNotFound());
+  }
+
+  /**
+   * Inbreeding – single horse and whole registry.
+   * Mia is the foal of Max and his daughter Daisy; Bob's parents Mia and Leo share Max and Wendy as ancestors.
+   *
+   * @throws Exception if the request fails
+   */
+  @Test
+  public void testGetInbreeding() throws Exception {
+    String response = mockMvc.perform(get("/horses/-10/inbreeding")
+            .accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isOk())
+        .andReturn().getResponse().getContentAsString();
+    assertThat(objectMapper.readValue(response, HorseInbreedingDto.class).coefficientOfInbreeding()).isEqualTo(1.0 / 16);
+
+    response = mockMvc.perform(get("/horses/inbreeding")
+            .accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isOk())
+        .andReturn().getResponse().getContentAsString();
+    List<HorseInbreedingDto> all = objectMapper.readValue(response, new TypeReference<List<HorseInbreedingDto>>() {});
+    assertThat(all)
+        .extracting(HorseInbreedingDto::id, HorseInbreedingDto::coefficientOfInbreeding)
+        .contains(tuple(-9L, 0.25), tuple(-10L, 1.0 / 16), tuple(-1L, 0.0));
+
+    mockMvc.perform(get("/horses/-999/inbreeding")
+            .accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isNotFound());
+  }
+
+  /**
+   * Relationship – nearest common ancestor.
+   * Jason's grandfather Max is Mia's father; their shared granddam Wendy is further away and thus not the nearest.
+   *
+   * @throws Exception if the request fails
+   */
+  @Test
+  public void testGetRelationship() throws Exception {
+    String response = mockMvc.perform(get("/horses/-5/relationship/-9")
+            .accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isOk())
+        .andReturn().getResponse().getContentAsString();
+
+    HorseRelationshipDto relationship = objectMapper.readValue(response, HorseRelationshipDto.class);
+    assertAll(
+        () -> assertThat(relationship.nearestCommonAncestors())
+            .extracting(HorseCommonAncestorDto::id, HorseCommonAncestorDto::generations, HorseCommonAncestorDto::otherGenerations)
+            .containsExactly(tuple(-2L, 2, 1)),
+        () -> assertThat(relationship.path()).extracting(HorseSuggestionDto::name).containsExactly("Jason", "Bella", "Max", "Mia"),
+        () -> assertThat(relationship.kinshipCoefficient()).isEqualTo(0.125));
+
+    mockMvc.perform(get("/horses/-5/relationship/-5")
+            .accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isUnprocessableEntity());
+    mockMvc.perform(get("/horses/-5/relationship/-999")
+            .accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isNotFound());
+  }
+
+  /**
+   * Search Horses – Birthdate range.
+   * Only the mares born within the given dates, both inclusive, are found.
+   */
+  @Test
+  public void testSearchHorses_BornBetween() throws Exception {
+    String response = mockMvc.perform(get("/horses")
+            .param("bornAfter", "2015-06-20")
+            .param("bornBefore", "2016-12-31")
+            .param("sex", "FEMALE")
+            .accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isOk())
+        .andReturn().getResponse().getContentAsString();
+
+    List<HorseListDto> horses = objectMapper.readValue(response, new TypeReference<List<HorseListDto>>() {});
+    assertThat(horses).extracting(HorseListDto::id).containsExactly(-3L, -4L);
+  }
+
+  /**
+   * Search Horses – Age range.
+   * The ages are counted in full years as of today, so every horse found has exactly the requested age;
+   * a minimum age above the maximum age is rejected as a validation error (HTTP 422).
+   */
+  @Test
+  public void testSearchHorses_ByAge() throws Exception {
+    int age = Period.between(LocalDate.of(2015, 6, 20), LocalDate.now()).getYears();
+    String response = mockMvc.perform(get("/horses")
+            .param("minAge", String.valueOf(age))
+            .param("maxAge", String.valueOf(age))
+            .accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isOk())
+        .andReturn().getResponse().getContentAsString();
+
+    List<HorseListDto> horses = objectMapper.readValue(response, new TypeReference<List<HorseListDto>>() {});
+    assertThat(horses)
+        .allSatisfy(horse -> assertThat(Period.between(horse.dateOfBirth(), LocalDate.now()).getYears()).isEqualTo(age))
+        .extracting(HorseListDto::id)
+        .contains(-3L);
+
+    mockMvc.perform(get("/horses")
+            .param("minAge", "5")
+            .param("maxAge", "3")
+            .accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isUnprocessableEntity());
+
+    mockMvc.perform(get("/horses")
+            .param("maxAge", "2000000000")
+            .accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isUnprocessableEntity());
+  }
+
+  /**
+   * Search Horses – Fuzzy name.
+   * A misspelled name finds nothing by prefix, but with fuzzy matching the intended horse comes first.
+   */
+  @Test
+  public void testSearchHorses_FuzzyNameToleratesTypos() throws Exception {
+    String strict = mockMvc.perform(get("/horses")
+            .param("name", "Wnedy")
+            .accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isOk())
+        .andReturn().getResponse().getContentAsString();
+    String fuzzy = mockMvc.perform(get("/horses")
+            .param("name", "Wnedy")
+            .param("fuzzy", "true")
+            .accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isOk())
+        .andReturn().getResponse().getContentAsString();
+
+    assertThat(objectMapper.readValue(strict, new TypeReference<List<HorseListDto>>() {})).isEmpty();
+    assertThat(objectMapper.readValue(fuzzy, new TypeReference<List<HorseListDto>>() {}))
+        .extracting(HorseListDto::id)
+        .first()
+        .isEqualTo(-1L);
+  }
+
+  /**
+   * Search Horses – Invalid cursor.
+   * A cursor that was not issued by the server is rejected as a validation error (HTTP 422).
+   */
+  @Test
+  public void testSearchHorses_InvalidCursor() throws Exception {
+    mockMvc.perform(get("/horses")
+            .param("cursor", "not-a-cursor")
+            .accept(MediaType.APPLICATION_JSON))
+        .andExpect(status().isUnprocessableEntity());
+  }
+
   /**
    * POST Horse – Positive.
    * Creates a new horse using a valid HorseCreateDto object (with name "Jessy")
@@ -200,6 +565,222 @@ public class HorseEndpointTest {
     );
   }
 
+  /**
+   * PATCH Horse.
+   * Patches only the description of a horse with an image and verifies that:
+   * - The description is changed.
+   * - All other attributes, including the image, are untouched.
+   */
+  @Test
+  public void testPatchHorse_ChangesOnlyGivenAttributes() throws Exception {
+    byte[] image = {(byte) 0x89, 'P', 'N', 'G', 1, 2, 3};
+    HorseDetailDto created = horseService.create(new HorseCreateDto(
+            "Patchy", "Before", LocalDate.of(2021, 3, 3), Sex.MALE, null, null, null, image, "image/png"));
+    createdHorseId = created.id();
+
+    byte[] body = mockMvc.perform(MockMvcRequestBuilders.patch("/horses/{id}", createdHorseId)
+                    .contentType("application/merge-patch+json")
+                    .content("{\"description\": \"After\"}"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsByteArray();
+    HorseDetailDto patched = objectMapper.readValue(body, HorseDetailDto.class);
+
+    assertAll(() -> assertThat(patched.description()).isEqualTo("After"),
+            () -> assertThat(patched.name()).isEqualTo("Patchy"),
+            () -> assertThat(patched.dateOfBirth()).isEqualTo(LocalDate.of(2021, 3, 3)),
+            () -> assertThat(patched.sex()).isEqualTo(Sex.MALE),
+            () -> assertThat(patched.imageUrl()).isEqualTo(created.imageUrl()));
+  }
+
+  /**
+   * PUT Horse.
+   * Updates a horse with an image without sending an image, and verifies that the stored image is kept.
+   */
+  @Test
+  public void testUpdateHorse_WithoutImageKeepsImage() throws Exception {
+    byte[] image = {(byte) 0x89, 'P', 'N', 'G', 4, 5, 6};
+    HorseDetailDto created = horseService.create(new HorseCreateDto(
+            "Keepy", "Before", LocalDate.of(2021, 3, 3), Sex.MALE, null, null, null, image, "image/png"));
+    createdHorseId = created.id();
+
+    byte[] body = mockMvc.perform(MockMvcRequestBuilders.put("/horses/{id}", createdHorseId)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"name\": \"Keepy\", \"description\": \"After\", \"dateOfBirth\": \"2021-03-03\", \"sex\": \"MALE\"}"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsByteArray();
+    HorseDetailDto updated = objectMapper.readValue(body, HorseDetailDto.class);
+
+    assertAll(() -> assertThat(updated.description()).isEqualTo("After"),
+            () -> assertThat(updated.imageUrl()).isNotNull().isEqualTo(created.imageUrl()));
+  }
+
+  /**
+   * PATCH Horse – Negative.
+   * Removing a required attribute, or patching an unknown one, is rejected.
+   */
+  @Test
+  public void testPatchHorse_InvalidPatch() throws Exception {
+    mockMvc.perform(MockMvcRequestBuilders.patch("/horses/{id}", -1)
+                    .contentType("application/merge-patch+json")
+                    .content("{\"name\": null}"))
+            .andExpect(status().isUnprocessableEntity());
+    mockMvc.perform(MockMvcRequestBuilders.patch("/horses/{id}", -1)
+                    .contentType("application/merge-patch+json")
+                    .content("{\"image\": \"AAAA\"}"))
+            .andExpect(status().isUnprocessableEntity());
+  }
+
+  /**
+   * PATCH Horse – Negative.
+   * Patching a horse that does not exist results in HTTP 404.
+   */
+  @Test
+  public void testPatchHorse_NotFound() throws Exception {
+    mockMvc.perform(MockMvcRequestBuilders.patch("/horses/{id}", 999999)
+                    .contentType("application/merge-patch+json")
+                    .content("{\"description\": \"Nobody\"}"))
+            .andExpect(status().isNotFound());
+  }
+
+  /**
+   * GET Horse image.
+   * Creates a horse with an image and verifies that the image endpoint:
+   * - Streams the raw bytes with the stored content type and the hash as strong ETag.
+   * - Lets the versioned URL be cached forever.
+   * - Answers Range requests with HTTP 206 and conditional requests with HTTP 304.
+   */
+  @Test
+  public void testGetHorseImage_StreamsWithRangeAndEtag() throws Exception {
+    byte[] image = {(byte) 0x89, 'P', 'N', 'G', 10, 20, 30, 40};
+    HorseDetailDto created = horseService.create(new HorseCreateDto(
+            "Pixel", null, LocalDate.of(2021, 3, 3), Sex.MALE, null, null, null, image, "image/png"));
+    createdHorseId = created.id();
+
+    var response = mockMvc.perform(get(created.imageUrl()))
+            .andExpect(status().isOk())
+            .andReturn().getResponse();
+    String etag = response.getHeader("ETag");
+    assertAll(() -> assertThat(response.getContentAsByteArray()).isEqualTo(image),
+            () -> assertThat(response.getContentType()).isEqualTo("image/png"),
+            () -> assertThat(etag).startsWith("\"").doesNotStartWith("W/"),
+            () -> assertThat(response.getHeader("Cache-Control")).contains("immutable"));
+
+    var partial = mockMvc.perform(get("/horses/{id}/image", createdHorseId).header("Range", "bytes=1-3"))
+            .andExpect(status().isPartialContent())
+            .andReturn().getResponse();
+    assertThat(partial.getContentAsByteArray()).isEqualTo(new byte[] {'P', 'N', 'G'});
+
+    mockMvc.perform(get("/horses/{id}/image", createdHorseId).header("If-None-Match", etag))
+            .andExpect(status().isNotModified());
+  }
+
+  /**
+   * GET Horse image thumbnail.
+   * Creates a horse with a real 300x200 PNG and verifies that the 128 pixel thumbnail:
+   * - Is a PNG scaled down to 128 pixels width, keeping the aspect ratio.
+   * - Has an ETag different from the original image.
+   */
+  @Test
+  public void testGetHorseImage_Thumbnail() throws Exception {
+    BufferedImage original = new BufferedImage(300, 200, BufferedImage.TYPE_INT_RGB);
+    ByteArrayOutputStream png = new ByteArrayOutputStream();
+    ImageIO.write(original, "png", png);
+    HorseDetailDto created = horseService.create(new HorseCreateDto(
+            "Thumb", null, LocalDate.of(2021, 3, 3), Sex.MALE, null, null, null, png.toByteArray(), "image/png"));
+    createdHorseId = created.id();
+
+    var response = mockMvc.perform(get("/horses/{id}/image", createdHorseId).param("w", "128"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse();
+    BufferedImage thumbnail = ImageIO.read(new ByteArrayInputStream(response.getContentAsByteArray()));
+    String originalEtag = mockMvc.perform(get("/horses/{id}/image", createdHorseId))
+            .andReturn().getResponse().getHeader("ETag");
+    assertAll(() -> assertThat(response.getContentType()).isEqualTo("image/png"),
+            () -> assertThat(thumbnail.getWidth()).isEqualTo(128),
+            () -> assertThat(thumbnail.getHeight()).isEqualTo(85),
+            () -> assertThat(response.getHeader("ETag")).isNotEqualTo(originalEtag));
+  }
+
+  /**
+   * GET Horse image thumbnail of a too large image.
+   * Creates a horse with a PNG of more than {@link ThumbnailGenerator#MAX_PIXELS} pixels, which compresses to a few
+   * kilobytes, and verifies that it is never decoded: the original image is served instead of a thumbnail.
+   */
+  @Test
+  public void testGetHorseImage_ThumbnailOfTooLargeImageIsOriginal() throws Exception {
+    BufferedImage original = new BufferedImage(6000, 5000, BufferedImage.TYPE_BYTE_BINARY);
+    ByteArrayOutputStream png = new ByteArrayOutputStream();
+    ImageIO.write(original, "png", png);
+    HorseDetailDto created = horseService.create(new HorseCreateDto(
+            "Bomb", null, LocalDate.of(2021, 3, 3), Sex.MALE, null, null, null, png.toByteArray(), "image/png"));
+    createdHorseId = created.id();
+
+    for (int request = 0; request < 2; request++) {
+      var response = mockMvc.perform(get("/horses/{id}/image", createdHorseId).param("w", "128"))
+              .andExpect(status().isOk())
+              .andReturn().getResponse();
+      assertThat(response.getContentAsByteArray()).isEqualTo(png.toByteArray());
+    }
+  }
+
+  /**
+   * GET Horse image thumbnail – Negative.
+   * Thumbnails only exist in a fixed set of widths, so any other width is rejected.
+   */
+  @Test
+  public void testGetHorseImage_UnsupportedThumbnailWidth() throws Exception {
+    mockMvc.perform(get("/horses/{id}/image", -1).param("w", "100"))
+            .andExpect(status().isUnprocessableEntity());
+  }
+
+  /**
+   * PUT Horse image.
+   * Uploads a PNG as raw request body and verifies that it is stored with the sniffed content type,
+   * regardless of the content type claimed by the client.
+   */
+  @Test
+  public void testUpdateHorseImage_StreamsUpload() throws Exception {
+    HorseDetailDto created = horseService.create(new HorseCreateDto(
+            "Upload", null, LocalDate.of(2021, 3, 3), Sex.MALE, null, null, null, null, null));
+    createdHorseId = created.id();
+    byte[] image = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 1, 2, 3, 4};
+
+    byte[] body = mockMvc.perform(MockMvcRequestBuilders.put("/horses/{id}/image", createdHorseId)
+                    .contentType(MediaType.IMAGE_JPEG)
+                    .content(image))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsByteArray();
+    HorseDetailDto updated = objectMapper.readValue(body, HorseDetailDto.class);
+
+    var response = mockMvc.perform(get(updated.imageUrl()))
+            .andExpect(status().isOk())
+            .andReturn().getResponse();
+    assertAll(() -> assertThat(response.getContentAsByteArray()).isEqualTo(image),
+            () -> assertThat(response.getContentType()).isEqualTo("image/png"));
+  }
+
+  /**
+   * PUT Horse image – Negative.
+   * A body that is not an image in a supported format is rejected.
+   */
+  @Test
+  public void testUpdateHorseImage_NotAnImage() throws Exception {
+    mockMvc.perform(MockMvcRequestBuilders.put("/horses/{id}/image", -1)
+                    .contentType(MediaType.IMAGE_PNG)
+                    .content("<script>alert(1)</script>"))
+            .andExpect(status().isUnprocessableEntity());
+  }
+
+  /**
+   * GET Horse image – Negative.
+   * A horse without an image has no image to stream, so HTTP 404 is returned.
+   */
+  @Test
+  public void testGetHorseImage_NoImage() throws Exception {
+    mockMvc.perform(get("/horses/{id}/image", -1))
+            .andExpect(status().isNotFound());
+  }
+
   /**
    * Cleanup method to delete any created horse after each test.
    */
@@ -0,0 +1,97 @@
+package at.ac.tuwien.sepr.assignment.individual.service;
+
+import static at.ac.tuwien.sepr.assignment.individual.HorseBuilder.horse;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseTreeDto;
+import at.ac.tuwien.sepr.assignment.individual.entity.Horse;
+import at.ac.tuwien.sepr.assignment.individual.service.impl.GenealogyGraph;
+import at.ac.tuwien.sepr.assignment.individual.type.Sex;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test for the {@link GenealogyGraph}.
+ */
+public class GenealogyGraphTest {
+
+  /**
+   * Tests that pedigrees are built up to the requested generation, even if children are loaded before their parents.
+   */
+  @Test
+  public void buildsPedigreesUpToTheRequestedGeneration() {
+    GenealogyGraph graph = new GenealogyGraph();
+    graph.rebuild(List.of(
+        horse(3).name("Bella").born(2015).sex(Sex.FEMALE).parents(1L, 2L).build(),
+        horse(5).name("Jason").born(2018).sex(Sex.MALE).parents(3L, null).build(),
+        horse(1).name("Wendy").born(2012).sex(Sex.FEMALE).build(),
+        horse(2).name("Max").born(2010).sex(Sex.MALE).build()));
+
+    HorseTreeDto full = graph.pedigree(5, null);
+    HorseTreeDto limited = graph.pedigree(5, 1);
+
+    assertAll(() -> assertThat(full.mother().name()).isEqualTo("Bella"),
+        () -> assertThat(full.mother().mother().id()).isEqualTo(1L),
+        () -> assertThat(full.mother().father().sex()).isEqualTo(Sex.MALE),
+        () -> assertThat(full.mother().father().dateOfBirth()).isEqualTo(LocalDate.of(2010, 1, 1)),
+        () -> assertThat(full.father()).isNull(),
+        () -> assertThat(limited.mother().mother()).isNull(),
+        () -> assertThat(graph.pedigree(99, null)).isNull());
+  }
+
+  /**
+   * Tests that created and changed horses are walked with their new parents, and that deleted horses are gone,
+   * also as the parents of other horses, beyond the initial capacity of the graph.
+   */
+  @Test
+  public void followsCreatesUpdatesAndDeletes() {
+    GenealogyGraph graph = new GenealogyGraph();
+    graph.rebuild(List.of(horse(1).name("Wendy").born(2012).sex(Sex.FEMALE).build()));
+    List<Horse> foals = new ArrayList<>();
+    for (long id = 2; id <= 200; id++) {
+      foals.add(horse(id).name("Foal").born(2020).sex(Sex.MALE).parents(1L, null).build());
+    }
+    foals.forEach(graph::put);
+
+    graph.put(horse(201).name("Max").born(2005).sex(Sex.MALE).build());
+    graph.put(horse(1).name("Wendy").born(2012).sex(Sex.FEMALE).parents(null, 201L).build());
+    HorseTreeDto before = graph.pedigree(200, null);
+    graph.remove(1);
+
+    assertAll(() -> assertThat(before.mother().father().name()).isEqualTo("Max"),
+        () -> assertThat(graph.pedigree(200, null).mother()).isNull(),
+        () -> assertThat(graph.pedigree(1, null)).isNull(),
+        () -> assertThat(graph.pedigree(150, 0).name()).isEqualTo("Foal"));
+  }
+
+  /**
+   * Tests that changing single attributes of a horse, or none of them, keeps the others,
+   * and that a deleted horse comes back when it is put again.
+   */
+  @Test
+  public void appliesChangedAttributesOnly() {
+    GenealogyGraph graph = new GenealogyGraph();
+    graph.rebuild(List.of(
+        horse(1).name("Wendy").born(2012).sex(Sex.FEMALE).build(),
+        horse(2).name("Max").born(2010).sex(Sex.MALE).build(),
+        horse(3).name("Bella").born(2015).sex(Sex.FEMALE).parents(1L, 2L).build()));
+
+    graph.put(horse(3).name("Bella").born(2015).sex(Sex.FEMALE).parents(1L, 2L).build());
+    final HorseTreeDto unchanged = graph.pedigree(3, null);
+    graph.put(horse(3).name("Belle").born(2015).sex(Sex.MALE).parents(1L, 2L).build());
+    final HorseTreeDto renamed = graph.pedigree(3, null);
+    graph.remove(2);
+    graph.put(horse(2).name("Max").born(2011).sex(Sex.MALE).build());
+
+    assertAll(() -> assertThat(unchanged.name()).isEqualTo("Bella"),
+        () -> assertThat(unchanged.father().id()).isEqualTo(2L),
+        () -> assertThat(renamed.name()).isEqualTo("Belle"),
+        () -> assertThat(renamed.sex()).isEqualTo(Sex.MALE),
+        () -> assertThat(renamed.mother().id()).isEqualTo(1L),
+        () -> assertThat(renamed.dateOfBirth()).isEqualTo(LocalDate.of(2015, 1, 1)),
+        () -> assertThat(graph.pedigree(3, null).father().dateOfBirth()).isEqualTo(LocalDate.of(2011, 1, 1)));
+  }
+}
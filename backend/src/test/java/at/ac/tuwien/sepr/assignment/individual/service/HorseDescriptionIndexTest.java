@@ -0,0 +1,54 @@
+package at.ac.tuwien.sepr.assignment.individual.service;
+
+import static at.ac.tuwien.sepr.assignment.individual.HorseBuilder.horse;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+import at.ac.tuwien.sepr.assignment.individual.service.impl.HorseDescriptionIndex;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test for the {@link HorseDescriptionIndex}.
+ */
+public class HorseDescriptionIndexTest {
+
+  /**
+   * Tests that all words of a search have to match, that the last word may be a prefix,
+   * and that exact and repeated words rank higher than prefixes.
+   */
+  @Test
+  public void matchesAllWordsAndRanksExactMatchesFirst() {
+    HorseDescriptionIndex index = new HorseDescriptionIndex();
+    index.rebuild(List.of(
+        horse(1).description("A fast horse, really fast").build(),
+        horse(2).description("A fast horse").build(),
+        horse(3).description("The fastest horse of all").build(),
+        horse(4).description("A slow horse").build()));
+
+    Map<Long, Double> fast = index.search("FAST hor");
+
+    assertAll(() -> assertThat(fast).containsOnlyKeys(1L, 2L, 3L),
+        () -> assertThat(fast.get(1L)).isGreaterThan(fast.get(2L)),
+        () -> assertThat(fast.get(2L)).isGreaterThan(fast.get(3L)),
+        () -> assertThat(index.search("fast slow")).isEmpty(),
+        () -> assertThat(index.search("?!")).isEmpty());
+  }
+
+  /**
+   * Tests that changed and removed horses are found by their new description only.
+   */
+  @Test
+  public void followsChangesAndRemovals() {
+    HorseDescriptionIndex index = new HorseDescriptionIndex();
+    index.rebuild(List.of(horse(1).description("Brown mare").build(), horse(2).description("Brown stallion").build()));
+
+    index.put(horse(1).description("Grey mare").build());
+    index.remove(2);
+
+    assertAll(() -> assertThat(index.search("brown")).isEmpty(),
+        () -> assertThat(index.search("grey")).containsOnlyKeys(1L),
+        () -> assertThat(index.search("stallion")).isEmpty());
+  }
+}
@@ -0,0 +1,84 @@
+package at.ac.tuwien.sepr.assignment.individual.service;
+
+import static at.ac.tuwien.sepr.assignment.individual.HorseBuilder.horse;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+import at.ac.tuwien.sepr.assignment.individual.entity.Horse;
+import at.ac.tuwien.sepr.assignment.individual.service.impl.HorseFuzzyNameIndex;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test for the {@link HorseFuzzyNameIndex}.
+ */
+public class HorseFuzzyNameIndexTest {
+
+  // a name within two replaced letters of "aaaaaaaaaa", so that a search for that name has to compare all of them
+  private static String nearName(int number) {
+    char[] name = "aaaaaaaaaa".toCharArray();
+    name[number % 10] = (char) ('b' + number / 10 % 25);
+    name[number / 250 % 10] = (char) ('b' + number / 2500 % 25);
+    return new String(name);
+  }
+
+  /**
+   * Tests that names are found despite typos, by their edit distance, and names that only sound alike
+   * one edit further away than the tolerated ones.
+   */
+  @Test
+  public void findsNamesWithinEditDistanceOrBySound() {
+    HorseFuzzyNameIndex index = new HorseFuzzyNameIndex();
+    index.rebuild(List.of(
+        horse(1).name("Wendy").build(),
+        horse(2).name("Wendi").build(),
+        horse(3).name("Windy").build(),
+        horse(4).name("Max").build(),
+        horse(5).name("Mia").build(),
+        horse(6).name("Wandaaa").build()));
+
+    assertAll(() -> assertThat(index.search("wendy").distances()).containsEntry(1L, 0).containsEntry(2L, 1).containsEntry(3L, 1),
+        () -> assertThat(index.search("Wnedy").distances()).containsEntry(1L, 2).doesNotContainKeys(4L, 5L),
+        () -> assertThat(index.search("Wendy").distances()).containsEntry(6L, 3),
+        () -> assertThat(index.search("Mx").distances()).containsOnlyKeys(4L).containsEntry(4L, 1),
+        () -> assertThat(index.search("-").distances()).isEmpty(),
+        () -> assertThat(index.search("wendy").truncated()).isFalse());
+  }
+
+  /**
+   * Tests that renamed horses are only found under their new name, and deleted ones not at all,
+   * while the tree still routes searches through the names no horse has any more.
+   */
+  @Test
+  public void followsRenamesAndRemovals() {
+    HorseFuzzyNameIndex index = new HorseFuzzyNameIndex();
+    index.rebuild(List.of(horse(1).name("Bella").build(), horse(2).name("Belle").build(), horse(3).name("Bello").build()));
+
+    index.put(horse(1).name("Daisy").build());
+    index.remove(2);
+
+    assertAll(() -> assertThat(index.search("Bella").distances()).containsOnlyKeys(3L),
+        () -> assertThat(index.search("Daisy").distances()).containsEntry(1L, 0));
+  }
+
+  /**
+   * Tests that a search over more names than it may compare is marked as truncated,
+   * and still finds the horse with exactly the searched name.
+   */
+  @Test
+  public void truncatedSearchStillFindsExactName() {
+    List<Horse> horses = new ArrayList<>();
+    for (int i = 0; i < 2 * HorseFuzzyNameIndex.MAX_COMPARISONS; i++) {
+      horses.add(horse(i).name(nearName(i)).build());
+    }
+    horses.add(horse(-1).name("Aaaaaaaaaa").build());
+    HorseFuzzyNameIndex index = new HorseFuzzyNameIndex();
+    index.rebuild(horses);
+
+    HorseFuzzyNameIndex.Matches matches = index.search("aaaaaaaaaa");
+
+    assertAll(() -> assertThat(matches.truncated()).isTrue(),
+        () -> assertThat(matches.distances()).containsEntry(-1L, 0));
+  }
+}
@@ -0,0 +1,56 @@
+package at.ac.tuwien.sepr.assignment.individual.service;
+
+import static at.ac.tuwien.sepr.assignment.individual.HorseBuilder.horse;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseSuggestionDto;
+import at.ac.tuwien.sepr.assignment.individual.service.impl.HorseNameIndex;
+import at.ac.tuwien.sepr.assignment.individual.type.Sex;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test for the {@link HorseNameIndex}.
+ */
+public class HorseNameIndexTest {
+
+  /**
+   * Tests that the horses starting with a prefix are suggested in the order of their names,
+   * ignoring case, restricted to one sex if asked, and no more than the limit.
+   */
+  @Test
+  public void suggestsHorsesByPrefixInNameOrder() {
+    HorseNameIndex index = new HorseNameIndex();
+    index.rebuild(List.of(
+        horse(1).name("Mia").sex(Sex.FEMALE).build(),
+        horse(2).name("max").sex(Sex.MALE).build(),
+        horse(3).name("Maxima").sex(Sex.FEMALE).build(),
+        horse(4).name("Wendy").sex(Sex.FEMALE).build(),
+        horse(5).name("Max").sex(Sex.MALE).build()));
+
+    assertAll(() -> assertThat(index.suggest("MA", null, 10))
+            .extracting(HorseSuggestionDto::id).containsExactly(2L, 5L, 3L),
+        () -> assertThat(index.suggest("ma", Sex.FEMALE, 10))
+            .extracting(HorseSuggestionDto::id).containsExactly(3L),
+        () -> assertThat(index.suggest("m", null, 2)).hasSize(2),
+        () -> assertThat(index.suggest("x", null, 10)).isEmpty(),
+        () -> assertThat(index.suggest(null, Sex.MALE, 10)).hasSize(2));
+  }
+
+  /**
+   * Tests that renamed horses are only suggested under their new name, and deleted ones not at all.
+   */
+  @Test
+  public void followsRenamesAndRemovals() {
+    HorseNameIndex index = new HorseNameIndex();
+    index.rebuild(List.of(horse(1).name("Mia").sex(Sex.FEMALE).build(), horse(2).name("Max").sex(Sex.MALE).build()));
+
+    index.put(horse(1).name("Bella").sex(Sex.FEMALE).build());
+    index.remove(2);
+
+    assertAll(() -> assertThat(index.suggest("m", null, 10)).isEmpty(),
+        () -> assertThat(index.suggest("bel", Sex.FEMALE, 10))
+            .extracting(HorseSuggestionDto::name).containsExactly("Bella"));
+  }
+}
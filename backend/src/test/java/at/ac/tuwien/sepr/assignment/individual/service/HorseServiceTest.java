@@ -7,15 +7,25 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseCreateDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseDetailDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseImageDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseListDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorsePatchDto;
 import at.ac.tuwien.sepr.assignment.individual.dto.HorseTreeDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.ImageCacheStatsDto;
 import at.ac.tuwien.sepr.assignment.individual.exception.ConflictException;
+import at.ac.tuwien.sepr.assignment.individual.exception.ImageUploadException;
 import at.ac.tuwien.sepr.assignment.individual.exception.NotFoundException;
 import at.ac.tuwien.sepr.assignment.individual.exception.ValidationException;
+import at.ac.tuwien.sepr.assignment.individual.type.HorseField;
 import at.ac.tuwien.sepr.assignment.individual.type.Sex;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Set;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
@@ -134,6 +144,81 @@ public class HorseServiceTest {
             () -> assertThat(createdHorse.sex()).isEqualTo(Sex.FEMALE));
   }
 
+  /**
+   * create – with image.
+   * Creates a horse with an image and asserts that its details link to the image,
+   * which is read back unchanged from the image store.
+   */
+  @Test
+  void testServiceCreateHorse_WithImage() throws Exception {
+    byte[] image = {(byte) 0x89, 'P', 'N', 'G', 1, 2, 3};
+    HorseCreateDto createDto = new HorseCreateDto(
+            "Pixel", null, LocalDate.of(2021, 3, 3), Sex.MALE, null, null, null, image, "image/png");
+    createdHorseId = horseService.create(createDto).id();
+
+    HorseDetailDto horse = horseService.getById(createdHorseId);
+    HorseImageDto storedImage = horseService.getImage(createdHorseId, null);
+    assertAll(() -> assertThat(horse.imageUrl()).isEqualTo("/horses/%d/image?v=%s".formatted(createdHorseId, storedImage.hash())),
+            () -> assertThat(storedImage.content().getContentAsByteArray()).isEqualTo(image),
+            () -> assertThat(storedImage.contentType()).isEqualTo("image/png"));
+  }
+
+  /**
+   * patch – lineage.
+   * Patches the mother of a horse to a horse born after it, and asserts that the lineage is validated
+   * against the horse's unchanged date of birth.
+   */
+  @Test
+  void testServicePatchHorse_ValidatesNewMotherAgainstStoredBirthDate() throws Exception {
+    createdHorseId = horseService.create(new HorseCreateDto(
+            "Elder", null, LocalDate.of(2000, 1, 1), Sex.MALE, null, null, null, null, null)).id();
+    HorsePatchDto patch = new HorsePatchDto(createdHorseId, Set.of(HorseField.MOTHER_ID),
+            null, null, null, null, null, -1L, null);
+
+    ValidationException exception = assertThrows(ValidationException.class, () -> horseService.patch(patch));
+    assertThat(exception.errors()).contains("Mother's date of birth must be before the horse's date of birth");
+  }
+
+  /**
+   * getImage – cached.
+   * Requests the same image twice and asserts that only the first request reads the image store,
+   * while the second one is served from the image cache with the same content.
+   */
+  @Test
+  void testServiceGetImage_SecondRequestHitsCache() throws Exception {
+    byte[] image = {(byte) 0x89, 'P', 'N', 'G', 'c', 'a', 'c', 'h', 'e'};
+    createdHorseId = horseService.create(new HorseCreateDto(
+            "Cached", null, LocalDate.of(2021, 3, 3), Sex.MALE, null, null, null, image, "image/png")).id();
+    ImageCacheStatsDto before = horseService.imageCacheStats();
+
+    byte[] first = horseService.getImage(createdHorseId, null).content().getContentAsByteArray();
+    byte[] second = horseService.getImage(createdHorseId, null).content().getContentAsByteArray();
+
+    ImageCacheStatsDto after = horseService.imageCacheStats();
+    assertAll(() -> assertThat(first).isEqualTo(image),
+            () -> assertThat(second).isEqualTo(image),
+            () -> assertThat(after.misses() - before.misses()).isEqualTo(1),
+            () -> assertThat(after.hits() - before.hits()).isEqualTo(1));
+  }
+
+  /**
+   * Tests that an upload breaking off after the image header is reported as failed upload,
+   * and that the horse keeps its image.
+   */
+  @Test
+  void updateImageFromBrokenUploadThrowsImageUploadException() throws Exception {
+    byte[] header = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 0, 0, 0, 13, 'I', 'H', 'D', 'R'};
+    InputStream brokenUpload = new SequenceInputStream(new ByteArrayInputStream(header), new InputStream() {
+      @Override
+      public int read() throws IOException {
+        throw new IOException("Connection reset");
+      }
+    });
+
+    assertAll(() -> assertThrows(ImageUploadException.class, () -> horseService.updateImage(-1, brokenUpload)),
+        () -> assertThat(horseService.getById(-1).imageUrl()).isNull());
+  }
+
   /**
    * Cleanup method to delete any created horse after each test.
    */
@@ -0,0 +1,62 @@
+package at.ac.tuwien.sepr.assignment.individual.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+import at.ac.tuwien.sepr.assignment.individual.dto.ImageCacheStatsDto;
+import at.ac.tuwien.sepr.assignment.individual.service.impl.ImageCache;
+import java.io.InputStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+
+/**
+ * Unit test for the {@link ImageCache}.
+ */
+public class ImageCacheTest {
+
+  /**
+   * Tests that the least recently used image is evicted once the capacity is exceeded,
+   * while a recently used one is kept.
+   */
+  @Test
+  public void evictsLeastRecentlyUsedImageWhenFull() throws Exception {
+    ImageCache cache = new ImageCache(160);
+    for (int i = 0; i < 8; i++) {
+      byte[] image = new byte[20];
+      cache.get("image" + i, () -> new ByteArrayResource(image));
+    }
+    cache.get("image0", () -> new ByteArrayResource(new byte[20]));
+
+    cache.get("image8", () -> new ByteArrayResource(new byte[20]));
+
+    ImageCacheStatsDto stats = cache.stats();
+    assertAll(() -> assertThat(stats.evictions()).isEqualTo(1),
+        () -> assertThat(stats.entries()).isEqualTo(8),
+        () -> assertThat(stats.bytes()).isEqualTo(160),
+        () -> assertThat(cache.get("image0", () -> null).contentLength()).isEqualTo(20),
+        () -> assertThat(cache.stats().misses()).isEqualTo(9));
+  }
+
+  /**
+   * Tests that a cached image can be read partially, as for range requests,
+   * and that invalidating it removes it and its variants.
+   */
+  @Test
+  public void skipsIntoCachedImageAndInvalidatesVariants() throws Exception {
+    ImageCache cache = new ImageCache(1024);
+    byte[] image = {1, 2, 3, 4, 5, 6};
+    cache.get("abc", () -> new ByteArrayResource(image));
+    cache.get("abc.w64", () -> new ByteArrayResource(image));
+
+    byte[] tail;
+    try (InputStream in = cache.get("abc", () -> null).getInputStream()) {
+      assertThat(in.skip(4)).isEqualTo(4);
+      tail = in.readAllBytes();
+    }
+    cache.invalidate("abc");
+
+    assertAll(() -> assertThat(tail).isEqualTo(new byte[] {5, 6}),
+        () -> assertThat(cache.stats().entries()).isZero(),
+        () -> assertThat(cache.stats().bytes()).isZero());
+  }
+}
@@ -0,0 +1,107 @@
+package at.ac.tuwien.sepr.assignment.individual.service;
+
+import static at.ac.tuwien.sepr.assignment.individual.HorseBuilder.horse;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+import at.ac.tuwien.sepr.assignment.individual.entity.Horse;
+import at.ac.tuwien.sepr.assignment.individual.service.impl.GenealogyGraph;
+import at.ac.tuwien.sepr.assignment.individual.service.impl.InbreedingCalculator;
+import at.ac.tuwien.sepr.assignment.individual.type.Sex;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test for the {@link InbreedingCalculator}, against coefficients counted by hand with Wright's path formula.
+ */
+public class InbreedingCalculatorTest {
+
+  // 3 and 4 are full siblings, 5 is their foal; 6 is the foal of 3 and her father 2; 7 is the foal of 5 and 6
+  private static final List<Horse> HORSES = List.of(
+      horse(7).born(2018).sex(Sex.MALE).parents(6L, 5L).build(),
+      horse(1).born(2005).sex(Sex.FEMALE).build(),
+      horse(2).born(2004).sex(Sex.MALE).build(),
+      horse(3).born(2010).sex(Sex.FEMALE).parents(1L, 2L).build(),
+      horse(4).born(2010).sex(Sex.MALE).parents(1L, 2L).build(),
+      horse(5).born(2014).sex(Sex.MALE).parents(3L, 4L).build(),
+      horse(6).born(2014).sex(Sex.FEMALE).parents(3L, 2L).build());
+
+  /**
+   * Tests the coefficients of single horses and of the whole registry, which have to agree.
+   */
+  @Test
+  public void computesCoefficientsOfSingleHorsesAndOfAllHorses() {
+    GenealogyGraph graph = new GenealogyGraph();
+    graph.rebuild(HORSES);
+    InbreedingCalculator calculator = new InbreedingCalculator(graph);
+
+    // 7: the paths between 6 and 5 are 6-3-5, 6-2-4-5, 6-2-3-5, 6-3-1-4-5 and 6-3-2-4-5,
+    // so its coefficient is 1/8 + 1/16 + 1/16 + 1/32 + 1/32 = 10/32
+    assertAll(() -> assertThat(calculator.coefficientOfInbreeding(1)).isEqualTo(0.0),
+        () -> assertThat(calculator.coefficientOfInbreeding(3)).isEqualTo(0.0),
+        () -> assertThat(calculator.coefficientOfInbreeding(5)).isCloseTo(0.25, within(1e-12)),
+        () -> assertThat(calculator.coefficientOfInbreeding(6)).isCloseTo(0.25, within(1e-12)),
+        () -> assertThat(calculator.coefficientOfInbreeding(7)).isCloseTo(10.0 / 32, within(1e-12)),
+        () -> assertThat(calculator.coefficientOfInbreeding(99)).isNull());
+
+    InbreedingCalculator batch = new InbreedingCalculator(graph);
+    Map<Long, Double> all = batch.coefficientsOfInbreeding();
+    assertThat(all).hasSize(HORSES.size());
+    for (Horse horse : HORSES) {
+      assertThat(all.get(horse.id())).isCloseTo(calculator.coefficientOfInbreeding(horse.id()), within(1e-12));
+    }
+  }
+
+  /**
+   * Tests that changing the parents of an ancestor changes the cached coefficients of its descendants.
+   */
+  @Test
+  public void recomputesDescendantsWhenParentsChange() {
+    GenealogyGraph graph = new GenealogyGraph();
+    graph.rebuild(HORSES);
+    InbreedingCalculator calculator = new InbreedingCalculator(graph);
+    assertThat(calculator.coefficientOfInbreeding(5)).isCloseTo(0.25, within(1e-12));
+    assertThat(calculator.coefficientOfInbreeding(7)).isCloseTo(10.0 / 32, within(1e-12));
+
+    // 4 loses his parents, so 5 is no longer the foal of full siblings, and 7 is only related through 3 and 2
+    graph.put(horse(4).born(2010).sex(Sex.MALE).build());
+
+    assertAll(() -> assertThat(calculator.coefficientOfInbreeding(5)).isEqualTo(0.0),
+        () -> assertThat(calculator.coefficientOfInbreeding(7)).isCloseTo(1.0 / 8 + 1.0 / 16, within(1e-12)));
+
+    graph.remove(3);
+    assertThat(calculator.coefficientOfInbreeding(7)).isEqualTo(0.0);
+  }
+
+  /**
+   * Tests that coefficients computed while the parents of an ancestor keep changing are not cached
+   * once they are outdated, so that afterwards all coefficients follow the final lineage.
+   *
+   * @throws InterruptedException if the test is interrupted while waiting for the changes
+   */
+  @Test
+  public void invalidationRacingComputationLeavesNoOutdatedCoefficients() throws InterruptedException {
+    GenealogyGraph graph = new GenealogyGraph();
+    graph.rebuild(HORSES);
+    InbreedingCalculator calculator = new InbreedingCalculator(graph);
+
+    // 4 loses and regains his parents, ending with them as at the start
+    Thread changes = new Thread(() -> {
+      for (int i = 0; i < 1000; i++) {
+        graph.put(horse(4).born(2010).sex(Sex.MALE).build());
+        graph.put(horse(4).born(2010).sex(Sex.MALE).parents(1L, 2L).build());
+      }
+    });
+    changes.start();
+    while (changes.isAlive()) {
+      calculator.coefficientsOfInbreeding();
+      calculator.coefficientOfInbreeding(7);
+    }
+    changes.join();
+
+    assertAll(() -> assertThat(calculator.coefficientOfInbreeding(5)).isCloseTo(0.25, within(1e-12)),
+        () -> assertThat(calculator.coefficientOfInbreeding(7)).isCloseTo(10.0 / 32, within(1e-12)));
+  }
+}
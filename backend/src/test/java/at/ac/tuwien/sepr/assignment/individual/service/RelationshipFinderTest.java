@@ -0,0 +1,121 @@
+package at.ac.tuwien.sepr.assignment.individual.service;
+
+import static at.ac.tuwien.sepr.assignment.individual.HorseBuilder.horse;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.assertj.core.api.Assertions.within;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseCommonAncestorDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseRelationshipDto;
+import at.ac.tuwien.sepr.assignment.individual.dto.HorseSuggestionDto;
+import at.ac.tuwien.sepr.assignment.individual.entity.Horse;
+import at.ac.tuwien.sepr.assignment.individual.service.impl.GenealogyGraph;
+import at.ac.tuwien.sepr.assignment.individual.service.impl.InbreedingCalculator;
+import at.ac.tuwien.sepr.assignment.individual.service.impl.RelationshipFinder;
+import at.ac.tuwien.sepr.assignment.individual.type.Sex;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test for the {@link RelationshipFinder}.
+ */
+public class RelationshipFinderTest {
+
+  private static RelationshipFinder finder(List<Horse> horses) {
+    GenealogyGraph graph = new GenealogyGraph();
+    graph.rebuild(horses);
+    return new RelationshipFinder(graph, new InbreedingCalculator(graph));
+  }
+
+  // 3 and 4 are full siblings, 5 is their foal; 6 is the foal of 3 and her father 2; 7 is the foal of 5 and 6
+  private static final List<Horse> HORSES = List.of(
+      horse(1).born(2005).sex(Sex.FEMALE).build(),
+      horse(2).born(2004).sex(Sex.MALE).build(),
+      horse(3).born(2010).sex(Sex.FEMALE).parents(1L, 2L).build(),
+      horse(4).born(2010).sex(Sex.MALE).parents(1L, 2L).build(),
+      horse(5).born(2014).sex(Sex.MALE).parents(3L, 4L).build(),
+      horse(6).born(2014).sex(Sex.FEMALE).parents(3L, 2L).build(),
+      horse(7).born(2018).sex(Sex.MALE).parents(6L, 5L).build());
+
+  /**
+   * Tests that only the nearest common ancestors are reported, with the path through them,
+   * whereas the kinship coefficient takes all common ancestors into account.
+   */
+  @Test
+  public void findsNearestCommonAncestorsAndPath() {
+    RelationshipFinder finder = finder(HORSES);
+
+    HorseRelationshipDto halfSiblings = finder.relationship(6, 5);
+    HorseRelationshipDto ancestor = finder.relationship(7, 3);
+    HorseRelationshipDto unrelated = finder.relationship(1, 2);
+
+    assertAll(
+        () -> assertThat(halfSiblings.nearestCommonAncestors())
+            .extracting(HorseCommonAncestorDto::id, HorseCommonAncestorDto::generations, HorseCommonAncestorDto::otherGenerations)
+            .containsExactly(tuple(3L, 1, 1)),
+        () -> assertThat(halfSiblings.path()).extracting(HorseSuggestionDto::id).containsExactly(6L, 3L, 5L),
+        () -> assertThat(halfSiblings.kinshipCoefficient()).isCloseTo(10.0 / 32, within(1e-12)),
+        () -> assertThat(ancestor.nearestCommonAncestors())
+            .extracting(HorseCommonAncestorDto::id, HorseCommonAncestorDto::generations, HorseCommonAncestorDto::otherGenerations)
+            .containsExactly(tuple(3L, 2, 0)),
+        () -> assertThat(ancestor.path()).extracting(HorseSuggestionDto::id).containsExactly(7L, 6L, 3L),
+        () -> assertThat(ancestor.kinshipCoefficient()).isCloseTo(0.375, within(1e-12)),
+        () -> assertThat(unrelated.nearestCommonAncestors()).isEmpty(),
+        () -> assertThat(unrelated.path()).isEmpty(),
+        () -> assertThat(unrelated.kinshipCoefficient()).isEqualTo(0.0),
+        () -> assertThat(finder.relationship(1, 99)).isNull());
+  }
+
+  /**
+   * Tests that a parent is the nearest common ancestor of itself and its foal, whichever of them is asked about first,
+   * with the path going straight from the one to the other.
+   */
+  @Test
+  public void findsParentAsNearestCommonAncestor() {
+    RelationshipFinder finder = finder(HORSES);
+
+    HorseRelationshipDto foalFirst = finder.relationship(5, 3);
+    HorseRelationshipDto parentFirst = finder.relationship(3, 5);
+
+    // 5 shares the genes of its dam 3 and of her full sibling 4: 1/2 * (1/2 + 1/4)
+    assertAll(
+        () -> assertThat(foalFirst.nearestCommonAncestors())
+            .extracting(HorseCommonAncestorDto::id, HorseCommonAncestorDto::generations, HorseCommonAncestorDto::otherGenerations)
+            .containsExactly(tuple(3L, 1, 0)),
+        () -> assertThat(foalFirst.path()).extracting(HorseSuggestionDto::id).containsExactly(5L, 3L),
+        () -> assertThat(foalFirst.kinshipCoefficient()).isCloseTo(0.375, within(1e-12)),
+        () -> assertThat(parentFirst.nearestCommonAncestors())
+            .extracting(HorseCommonAncestorDto::id, HorseCommonAncestorDto::generations, HorseCommonAncestorDto::otherGenerations)
+            .containsExactly(tuple(3L, 0, 1)),
+        () -> assertThat(parentFirst.path()).extracting(HorseSuggestionDto::id).containsExactly(3L, 5L));
+  }
+
+  /**
+   * Tests that two half-cousins are found to be related through their shared granddam only,
+   * even though their pedigrees go back a thousand generations.
+   */
+  @Test
+  public void findsNearRelativesInDeepPedigrees() {
+    List<Horse> horses = new ArrayList<>();
+    // a line of a thousand ancestors above the mare 1000, and two grandfoals of her through two different foals
+    horses.add(horse(1).born(1000).sex(Sex.FEMALE).build());
+    for (int generation = 2; generation <= 1000; generation++) {
+      horses.add(horse(generation).born(1000 + generation).sex(Sex.FEMALE).parents(generation - 1L, null).build());
+    }
+    horses.add(horse(2001).born(2001).sex(Sex.FEMALE).parents(1000L, null).build());
+    horses.add(horse(2002).born(2001).sex(Sex.MALE).parents(1000L, null).build());
+    horses.add(horse(2003).born(2005).sex(Sex.FEMALE).parents(2001L, null).build());
+    horses.add(horse(2004).born(2005).sex(Sex.MALE).parents(null, 2002L).build());
+
+    HorseRelationshipDto halfCousins = finder(horses).relationship(2003, 2004);
+
+    assertAll(
+        () -> assertThat(halfCousins.nearestCommonAncestors())
+            .extracting(HorseCommonAncestorDto::id, HorseCommonAncestorDto::generations, HorseCommonAncestorDto::otherGenerations)
+            .containsExactly(tuple(1000L, 2, 2)),
+        () -> assertThat(halfCousins.path()).extracting(HorseSuggestionDto::id).containsExactly(2003L, 2001L, 1000L, 2002L, 2004L),
+        () -> assertThat(halfCousins.kinshipCoefficient()).isCloseTo(1.0 / 32, within(1e-12)));
+  }
+}
@@ -2,9 +2,9 @@ import {Component, OnInit} from '@angular/core';
 import {FormsModule, NgForm, NgModel} from '@angular/forms';
 import {ActivatedRoute, Router, RouterLink} from '@angular/router';
 import {ToastrService} from 'ngx-toastr';
-import {map, Observable, of} from 'rxjs';
+import {Observable, of} from 'rxjs';
 import {AutocompleteComponent} from 'src/app/component/autocomplete/autocomplete.component';
-import {Horse, convertFromHorseToCreate, convertFromHorseToUpdate} from 'src/app/dto/horse';
+import {Horse, HorseUpdate, convertFromHorseToCreate, convertFromHorseToUpdate, mergePatchOf} from 'src/app/dto/horse';
 import {Owner} from 'src/app/dto/owner';
 import {Sex} from 'src/app/dto/sex';
 import {ErrorFormatterService} from 'src/app/service/error-formatter.service';
@@ -46,6 +46,7 @@ export class HorseCreateEditComponent implements OnInit {
     sex: Sex.female,
   };
   horseBirthDateIsSet = false;
+  private loadedHorse: HorseUpdate | undefined;
   selectedImage: File|null = null;
 
 
@@ -130,17 +131,13 @@ export class HorseCreateEditComponent implements OnInit {
 
   motherSuggestions = (input: string): Observable<Horse[]> => {
     return input && input.trim().length > 0
-      ? this.service.search({ name: input, sex: 'FEMALE' }).pipe(
-        map(horses => horses.slice(0, 5))
-      )
+      ? this.service.parentCandidates('MOTHER', this.horse.dateOfBirth, input.trim(), 5)
       : of([]);
   };
 
   fatherSuggestions = (input: string): Observable<Horse[]> => {
     return input && input.trim().length > 0
-      ? this.service.search({ name: input, sex: 'MALE' }).pipe(
-        map(horses => horses.slice(0, 5))
-      )
+      ? this.service.parentCandidates('FATHER', this.horse.dateOfBirth, input.trim(), 5)
       : of([]);
   };
 
@@ -168,6 +165,7 @@ export class HorseCreateEditComponent implements OnInit {
           this.service.getById(Number(id)).subscribe({
             next: (data) => {
               this.horse = data;
+              this.loadedHorse = convertFromHorseToUpdate(data);
               this.horseBirthDateIsSet = true;
             },
             error: (error) => {
@@ -217,7 +215,7 @@ export class HorseCreateEditComponent implements OnInit {
           );
           break;
         case HorseCreateEditDetailMode.edit:
-          observable = this.service.update(convertFromHorseToUpdate(this.horse));
+          observable = this.service.patch(this.horse.id!, mergePatchOf(this.loadedHorse!, convertFromHorseToUpdate(this.horse)));
           break;
         default:
           console.error('Unknown HorseCreateEditMode', this.mode);
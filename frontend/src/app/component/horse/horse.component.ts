@@ -4,7 +4,7 @@ import { RouterLink } from '@angular/router';
 import { ToastrService } from 'ngx-toastr';
 import { AutocompleteComponent } from 'src/app/component/autocomplete/autocomplete.component';
 import { HorseService } from 'src/app/service/horse.service';
-import { Horse } from 'src/app/dto/horse';
+import { Horse, HorsePage } from 'src/app/dto/horse';
 import { Owner } from 'src/app/dto/owner';
 import { ConfirmDeleteDialogComponent } from 'src/app/component/confirm-delete-dialog/confirm-delete-dialog.component';
 import {ErrorFormatterService} from "../../service/error-formatter.service";
@@ -24,8 +24,11 @@ import {ErrorFormatterService} from "../../service/error-formatter.service";
 })
 export class HorseComponent implements OnInit {
   horses: Horse[] = [];
+  nextCursor: string | null = null;
   bannerError: string | null = null;
   horseForDeletion: Horse | undefined;
+  // the filters of the listed horses, which the following pages are fetched with
+  private query: Parameters<HorseService['search']>[0] = {};
 
 
   constructor(
@@ -47,21 +50,7 @@ export class HorseComponent implements OnInit {
   }
 
   reloadHorses() {
-    this.service.getAll()
-      .subscribe({
-        next: data => {
-          this.horses = data;
-          this.bannerError = null;
-        },
-        error: error => {
-          console.error('Error fetching horses', error);
-          this.bannerError = 'Could not fetch horses: ' + error.message;
-          const errorMessage = error.status === 0
-            ? 'Is the backend up?'
-            : error.message.message;
-          this.notification.error(errorMessage, 'Could Not Fetch Horses');
-        }
-      });
+    this.showFirstPage({});
   }
 
   public formatOwnerName(owner: any): string {
@@ -71,30 +60,59 @@ export class HorseComponent implements OnInit {
   }
 
   onSearch(): void {
-    const query = {
+    this.showFirstPage({
       name: this.searchParams.name?.trim() || null,
       description: this.searchParams.description?.trim() || null,
       dateOfBirth: this.searchParams.dateOfBirth || null,
       sex: this.searchParams.sex || null,
       ownerName: this.searchParams.ownerName?.trim() || null
-    };
+    });
+  }
 
+  /**
+   * Appends the next page of the current search to the listed horses.
+   */
+  loadMore(): void {
+    if (!this.nextCursor) {
+      return;
+    }
+    const query = this.query;
+    this.service.search(query, this.nextCursor).subscribe({
+      next: page => {
+        // a page of an outdated search does not belong to the listed horses
+        if (query === this.query) {
+          this.horses = this.horses.concat(page.horses);
+          this.nextCursor = page.next;
+          this.bannerError = null;
+        }
+      },
+      error: error => this.showFetchError(error)
+    });
+  }
+
+  private showFirstPage(query: Parameters<HorseService['search']>[0]): void {
+    this.query = query;
     this.service.search(query).subscribe({
-      next: data => {
-        this.horses = data;
-        this.bannerError = null;
+      next: (page: HorsePage) => {
+        if (query === this.query) {
+          this.horses = page.horses;
+          this.nextCursor = page.next;
+          this.bannerError = null;
+        }
       },
-      error: error => {
-        console.error('Error searching horses', error);
-        this.bannerError = 'Could not fetch horses: ' + error.message;
-        const errorMessage = error.status === 0
-          ? 'Is the backend up?'
-          : error.message.message;
-        this.notification.error(errorMessage, 'Could Not Fetch Horses');
-      }
+      error: error => this.showFetchError(error)
     });
   }
 
+  private showFetchError(error: any): void {
+    console.error('Error fetching horses', error);
+    this.bannerError = 'Could not fetch horses: ' + error.message;
+    const errorMessage = error.status === 0
+      ? 'Is the backend up?'
+      : error.message.message;
+    this.notification.error(errorMessage, 'Could Not Fetch Horses');
+  }
+
   ownerName(owner: Owner | null): string {
     return owner
       ? `${owner.firstName} ${owner.lastName}`
@@ -1,5 +1,6 @@
 import {Owner} from './owner';
 import {Sex} from './sex';
+import {formatIsoDate} from '../utils/date-helper';
 
 export interface Horse {
   id?: number;
@@ -14,6 +15,14 @@ export interface Horse {
   imageType?: string;
 }
 
+/**
+ * One page of a horse search, with the cursor to fetch the following page with.
+ */
+export interface HorsePage {
+  horses: Horse[];
+  next: string | null;
+}
+
 export interface HorseCreate {
   name: string;
   description?: string;
@@ -51,6 +60,24 @@ export interface HorseUpdate {
   imageType?: string;
 }
 
+/**
+ * The changes to a horse as JSON Merge Patch: only changed attributes are present,
+ * and attributes set to null are removed.
+ */
+export type HorsePatch = {
+  [K in keyof Omit<HorseUpdate, 'id' | 'image' | 'imageType'>]?: HorseUpdate[K] | null;
+};
+
+/**
+ * A horse suggested while its name is typed, with just what tells horses of the same name apart.
+ */
+export interface HorseSuggestion {
+  id: number;
+  name: string;
+  dateOfBirth: Date;
+  sex: Sex;
+}
+
 export interface HorsePedigree {
   id: number;
   name: string;
@@ -73,3 +100,16 @@ export function convertFromHorseToUpdate(horse: Horse): HorseUpdate {
     fatherId: horse.father ? horse.father.id : undefined,
   };
 }
+
+export function mergePatchOf(original: HorseUpdate, changed: HorseUpdate): HorsePatch {
+  const patch: any = {};
+  const keys: (keyof HorsePatch)[] = ['name', 'description', 'dateOfBirth', 'sex', 'ownerId', 'motherId', 'fatherId'];
+  for (const key of keys) {
+    const before = key === 'dateOfBirth' ? formatIsoDate(original.dateOfBirth) : original[key] ?? null;
+    const after = key === 'dateOfBirth' ? formatIsoDate(changed.dateOfBirth) : changed[key] ?? null;
+    if (before !== after) {
+      patch[key] = after;
+    }
+  }
+  return patch;
+}
@@ -1,12 +1,13 @@
-import {HttpClient, HttpParams} from '@angular/common/http';
+import {HttpClient, HttpHeaders, HttpParams} from '@angular/common/http';
 import {Injectable} from '@angular/core';
 import {map, Observable} from 'rxjs';
 import {environment} from 'src/environments/environment';
-import {Horse, HorseCreate, HorsePedigree} from '../dto/horse';
+import {Horse, HorseCreate, HorsePage, HorsePatch, HorsePedigree, HorseSuggestion} from '../dto/horse';
 import {formatIsoDate} from "../utils/date-helper";
 
 
 const baseUri = environment.backendUrl + '/horses';
+const nextCursorHeader = 'X-Next-Cursor';
 
 @Injectable({
   providedIn: 'root'
@@ -19,15 +20,13 @@ export class HorseService {
   }
 
   /**
-   * Get all horses stored in the system
+   * Get the first page of all horses stored in the system.
+   * The following pages are fetched with {@link search}, passing the cursor of the previous page.
    *
-   * @return observable list of found horses.
+   * @return observable page of found horses.
    */
-  getAll(): Observable<Horse[]> {
-    return this.http.get<Horse[]>(baseUri)
-      .pipe(
-        map(horses => horses.map(this.fixHorseDate))
-      );
+  getAll(): Observable<HorsePage> {
+    return this.search({});
   }
 
   /**
@@ -77,6 +76,19 @@ export class HorseService {
     return this.http.put<Horse>(`${baseUri}/${horse.id}`, horse);
   }
 
+  /**
+   * Change only some attributes of an existing horse.
+   *
+   * @param id the unique identifier of the horse to change
+   * @param patch the changed attributes, as JSON Merge Patch
+   * @return an Observable containing the updated horse details
+   */
+  patch(id: number, patch: HorsePatch): Observable<Horse> {
+    return this.http.patch<Horse>(`${baseUri}/${id}`, patch, {
+      headers: new HttpHeaders({'Content-Type': 'application/merge-patch+json'})
+    });
+  }
+
   /**
    * Deletes a horse from the system.
    *
@@ -95,19 +107,30 @@ export class HorseService {
    *
    * @param params An object containing the search parameters:
    *               name: Partial or full name of the horse.
-   *               description: Partial or full description of the horse.
-   *               date_of_birth: Date string to filter horses born on this date.
+   *               fuzzy: Whether the name may contain typos; the closest names then come first.
+   *               description: Words of the description of the horse, the last of which may be incomplete;
+   *                            the best matches come first.
+   *               dateOfBirth: Date string to filter horses born on this date.
+   *               bornAfter, bornBefore: Date strings bounding the birthdate, both inclusive.
+   *               minAge, maxAge: Bounds of the age in full years, both inclusive.
    *               sex: The gender of the horse ("MALE" or "FEMALE").
    *               ownerName: Partial or full name of the owner.
-   * @return An Observable emitting an array of horses that match the search criteria.
+   * @param cursor The cursor of the previous page, as returned with it, or null for the first page.
+   * @return An Observable emitting one page of the horses that match the search criteria,
+   *         with the cursor of the following page if there are more.
    */
   search(params: {
     name?: string | null,
+    fuzzy?: boolean | null,
     description?: string | null,
-    date_of_birth?: string | null,
+    dateOfBirth?: string | null,
+    bornAfter?: string | null,
+    bornBefore?: string | null,
+    minAge?: number | null,
+    maxAge?: number | null,
     sex?: string | null,
     ownerName?: string | null
-  }): Observable<Horse[]> {
+  }, cursor: string | null = null): Observable<HorsePage> {
     let query = new HttpParams();
     for (const key of Object.keys(params)) {
       const value = params[key as keyof typeof params];
@@ -115,8 +138,36 @@ export class HorseService {
         query = query.set(key, value);
       }
     }
-    return this.http.get<Horse[]>(baseUri, { params: query })
-      .pipe(map(horses => horses.map(this.fixHorseDate)));
+    if (cursor) {
+      query = query.set('cursor', cursor);
+    }
+    return this.http.get<Horse[]>(baseUri, { params: query, observe: 'response' })
+      .pipe(map(response => ({
+        horses: (response.body ?? []).map(this.fixHorseDate),
+        next: response.headers.get(nextCursorHeader)
+      })));
+  }
+
+  /**
+   * Suggests the horses that could be the mother or father of a horse born on the given date,
+   * i.e. the horses of the right sex born before it, so that every suggestion passes validation.
+   *
+   * @param role whether to suggest mothers or fathers
+   * @param dateOfBirth the birthdate of the horse the parent is picked for, if already known
+   * @param prefix the beginning of the name, ignoring case
+   * @param limit the maximum number of suggestions
+   * @return An Observable emitting the eligible parents, in the order of their names.
+   */
+  parentCandidates(role: 'MOTHER' | 'FATHER', dateOfBirth: Date | null, prefix: string, limit: number): Observable<HorseSuggestion[]> {
+    let params = new HttpParams()
+      .set('role', role)
+      .set('prefix', prefix)
+      .set('limit', limit);
+    if (dateOfBirth) {
+      params = params.set('dateOfBirth', formatIsoDate(dateOfBirth));
+    }
+    return this.http.get<HorseSuggestion[]>(`${baseUri}/parent-candidates`, { params })
+      .pipe(map(horses => horses.map(horse => ({...horse, dateOfBirth: new Date(horse.dateOfBirth as unknown as string)}))));
   }
 
   getPedigree(id: number, maxGenerations: number | null) {